@@ -1,3 +1,4 @@
 package com.chaoschess.backend.api;
 
-public record GameSettingsDTO(int chaosLevel) {}
+// aiSearchThreads is optional, without it the game uses the configured default (ai.search-threads)
+public record GameSettingsDTO(int chaosLevel, Integer aiSearchThreads) {}
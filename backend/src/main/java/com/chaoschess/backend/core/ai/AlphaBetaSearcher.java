@@ -2,29 +2,80 @@ package com.chaoschess.backend.core.ai;
 
 import com.chaoschess.backend.core.engine.board.Board;
 import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MoveEncoding;
 import com.chaoschess.backend.core.engine.RuleProcessor;
-import com.chaoschess.backend.core.model.GameOutcome;
-import com.chaoschess.backend.core.model.GameOutcomeCategory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Searches for the best move with iterative deepening (see SearchWorker for the search itself). With more than one
+// thread, the search uses Lazy SMP: helper threads search the same root on their own board copies, odd helpers one ply
+// deeper than the main thread, and only share the transposition table with it. The entries they store make the main
+// thread's search faster, and the move of the deepest completed iteration of all threads is played.
 @Service
 public class AlphaBetaSearcher {
 
-    public static long alphaBetaCallCounter = 0;
+    public static final int DEFAULT_TRANSPOSITION_TABLE_SIZE_MB = 32;
+
+    public static final int MAX_SEARCH_DEPTH = 64;
+    public static final long NO_TIME_LIMIT = -1;
+    public static final int MAX_SEARCH_THREADS = 64;
 
     private final RuleProcessor ruleProcessor;
     private final BoardEvaluator boardEvaluator;
-
+    // Null if disabled (size 0)
+    private final TranspositionTable transpositionTable;
+    // Set by startNewGame(), so that the next search starts with an empty transposition table
+    private volatile boolean isTranspositionTableOutdated;
+    // Runs the helper threads of Lazy SMP searches, threads are only created when needed
+    private final ExecutorService helperThreadPool;
+
+    private long alphaBetaCallsPerMove;
     private long boardsEvaluatedPerMove;
     private long leafNodesEvaluatedPerMove;
+    private long transpositionTableProbesPerMove;
+    private long transpositionTableHitsPerMove;
+    private long transpositionTableCutoffsPerMove;
+    private long betaCutoffsPerMove;
+    private long firstMoveBetaCutoffsPerMove;
+    private long nullMoveCutoffsPerMove;
+    private long lateMoveReductionsPerMove;
+    private long lateMoveReductionResearchesPerMove;
+    private long futilityPrunedMovesPerMove;
+    private long razoringCutoffsPerMove;
+    private long deltaPrunedMovesPerMove;
+    private int completedDepthPerMove;
 
     public AlphaBetaSearcher(RuleProcessor ruleProcessor, BoardEvaluator boardEvaluator) {
+        this(ruleProcessor, boardEvaluator, DEFAULT_TRANSPOSITION_TABLE_SIZE_MB);
+    }
+
+    @Autowired
+    public AlphaBetaSearcher(RuleProcessor ruleProcessor, BoardEvaluator boardEvaluator,
+                             @Value("${ai.transposition-table-size-mb:" + DEFAULT_TRANSPOSITION_TABLE_SIZE_MB + "}")
+                             int transpositionTableSizeMb) {
         this.ruleProcessor = ruleProcessor;
         this.boardEvaluator = boardEvaluator;
+        this.transpositionTable = (transpositionTableSizeMb > 0)
+                ? new TranspositionTable(transpositionTableSizeMb) : null;
+        this.helperThreadPool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ai-search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Nodes visited by the main search (not by quiescence search), summed over all threads like the other statistics
+    public long getAlphaBetaCallsPerMove() {
+        return alphaBetaCallsPerMove;
     }
 
     public long getBoardsEvaluatedPerMove() {
@@ -35,187 +86,208 @@ public class AlphaBetaSearcher {
         return leafNodesEvaluatedPerMove;
     }
 
-    public Move findBestMove(Board board, int depth) throws InterruptedException {
-        this.boardsEvaluatedPerMove = 0;
-        int bestScore = Integer.MIN_VALUE;
-        Move bestMove = null;
-
-        List<Move> legalMoves = ruleProcessor.calculateLegalMoves(board);
-
-        orderMoves(legalMoves);
+    // Statistics are summed over all threads of a search. Hits are probes that found an entry for the position (whose
+    // best move is then searched first), cutoffs are hits whose stored score or bound ended the search of the node
+    public long getTranspositionTableProbesPerMove() {
+        return transpositionTableProbesPerMove;
+    }
 
-        for (Move move : legalMoves) {
-            board.makeMove(move);
-            // Call the recursive function (with negated window)
-            // Integer.MIN_VALUE must be incremented by 1 because -Integer.MIN_VALUE == Integer.MIN_VALUE, due to the
-            // smallest int value in Java having no positive complement
-            int score = -alphaBeta(board, depth - 1, Integer.MIN_VALUE + 1, Integer.MAX_VALUE, 1, true);
-            board.unmakeMove(move);
+    public long getTranspositionTableHitsPerMove() {
+        return transpositionTableHitsPerMove;
+    }
 
-            if (score > bestScore) {
-                if (bestMove != null) {
-                    this.ruleProcessor.getMovePool().releaseMove(bestMove);
-                }
-                bestScore = score;
-                bestMove = move;
-            } else {
-                this.ruleProcessor.getMovePool().releaseMove(move);
-            }
-        }
-        return bestMove;
+    public long getTranspositionTableCutoffsPerMove() {
+        return transpositionTableCutoffsPerMove;
     }
 
-    private int alphaBeta(Board board, int depth, int alpha, int beta, int ply, boolean useQuiescenceSearch)
-            throws InterruptedException {
-        alphaBetaCallCounter++;
+    // Nodes of the main search (not quiescence search) that failed high, and how many of them did so on the first move
+    // searched. The share of the latter measures how well the moves are ordered.
+    public long getBetaCutoffsPerMove() {
+        return betaCutoffsPerMove;
+    }
 
-        if (Thread.currentThread().isInterrupted()) {
-            throw new InterruptedException("AI search canceled by user action.");
-        }
+    public long getFirstMoveBetaCutoffsPerMove() {
+        return firstMoveBetaCutoffsPerMove;
+    }
 
-        List<Move> legalMoves = ruleProcessor.calculateLegalMoves(board);
+    // Nodes pruned because a null move search still reached beta
+    public long getNullMoveCutoffsPerMove() {
+        return nullMoveCutoffsPerMove;
+    }
 
-        GameOutcome gameOutcome = ruleProcessor.determineGameOutcome(board, legalMoves);
+    // Moves searched with a late move reduction, and how many of them beat alpha and had to be searched again at full
+    // depth. Many re-searches mean that the reductions are too aggressive for the move ordering.
+    public long getLateMoveReductionsPerMove() {
+        return lateMoveReductionsPerMove;
+    }
 
-        if (((depth == 0) && !useQuiescenceSearch) || (gameOutcome.getCategory() != GameOutcomeCategory.ONGOING)) {
-            this.ruleProcessor.getMovePool().releaseAllMoves(legalMoves);
-            this.boardsEvaluatedPerMove++;
-            this.leafNodesEvaluatedPerMove++;
-            return boardEvaluator.evaluate(board, ply, gameOutcome);
-        } else if (depth == 0) {
-            this.ruleProcessor.getMovePool().releaseAllMoves(legalMoves);
-            // Do NOT swap and negate alpha and beta here, as the quiescence search continues on the current node first
-            // (rather than on a child node)
-            return quiescenceSearch(board, alpha, beta, ply);
-        }
+    public long getLateMoveReductionResearchesPerMove() {
+        return lateMoveReductionResearchesPerMove;
+    }
 
-        orderMoves(legalMoves);
+    // Quiet moves skipped by futility pruning, nodes resolved by quiescence search alone after razoring, and captures
+    // skipped by delta pruning in quiescence search
+    public long getFutilityPrunedMovesPerMove() {
+        return futilityPrunedMovesPerMove;
+    }
 
-        int moveIndex = 0;
+    public long getRazoringCutoffsPerMove() {
+        return razoringCutoffsPerMove;
+    }
 
-        for (Move move : legalMoves) {
+    public long getDeltaPrunedMovesPerMove() {
+        return deltaPrunedMovesPerMove;
+    }
 
-            board.makeMove(move);
-            // Recursive call (with negated window)
-            int score = -alphaBeta(board, depth - 1, -beta, -alpha, ply + 1, useQuiescenceSearch);
-            board.unmakeMove(move);
+    // Depth of the deepest iteration completed by any thread
+    public int getCompletedDepthPerMove() {
+        return completedDepthPerMove;
+    }
 
-            // Alpha-beta pruning logic
-            // TODO: Find out if this ALSO needs to be >= instead of > here, like in quiescence search
-            if (score >= beta) {
-                this.ruleProcessor.getMovePool().releaseAllMoves(legalMoves.subList(moveIndex, legalMoves.size()));
-                // TODO: Figure out what difference it makes here whether to return beta or standPat (keywords:
-                //  "fail-soft" vs "fail-hard")
-                return beta;
-            }
-            alpha = Math.max(alpha, score);
+    // Returns null if the transposition table is disabled
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
 
-            this.ruleProcessor.getMovePool().releaseMove(move);
-            moveIndex++;
-        }
-        return alpha;
+    // Forgets the positions of the previous game. The zobrist keys only depend on the square coordinates, not on the
+    // board size, so the entries of a game on another board could produce cutoffs (and moves) that belong to a
+    // different position. The table is cleared when the next search starts rather than right away, so that a canceled
+    // search of the previous game that is still winding down is unlikely to store its entries after the clear.
+    public void startNewGame() {
+        this.isTranspositionTableOutdated = true;
     }
 
-    private int quiescenceSearch(Board board, int alpha, int beta, int ply) throws InterruptedException {
-        if (Thread.currentThread().isInterrupted()) {
-            throw new InterruptedException("AI search canceled by user action.");
-        }
+    // Fixed-depth search without time limit
+    public Move findBestMove(Board board, int depth) throws InterruptedException {
+        return findBestMove(board, depth, NO_TIME_LIMIT, NO_TIME_LIMIT);
+    }
 
-        // TODO: Redundant calculation on initial call (already handled at depth == 0 in alphaBeta())
-        List<Move> legalMoves = ruleProcessor.calculateLegalMoves(board);
-        // TODO: Unnecessary on initial call
-        GameOutcome gameOutcome = ruleProcessor.determineGameOutcome(board, legalMoves);
+    public Move findBestMove(Board rootBoard, int maxDepth, long softTimeLimitMillis, long hardTimeLimitMillis)
+            throws InterruptedException {
+        return findBestMove(rootBoard, maxDepth, softTimeLimitMillis, hardTimeLimitMillis, 1);
+    }
 
-        if (gameOutcome.getCategory() != GameOutcomeCategory.ONGOING) {
-            this.ruleProcessor.getMovePool().releaseAllMoves(legalMoves);
-            this.boardsEvaluatedPerMove++;
-            this.leafNodesEvaluatedPerMove++;
-            return boardEvaluator.evaluate(board, ply, gameOutcome);
+    // Iterative deepening: searches to depth 1, 2, 3, ... up to maxDepth and returns the best move of the last
+    // completed iteration. No new iteration is started once the soft time limit has passed (or half of it, if the best
+    // move has not changed for a few iterations) or a mate has been found, and a running iteration is abandoned at the
+    // hard time limit. The first iteration always completes, so that there is a move to return. The helper threads run
+    // until the main thread stops. The given board is not modified.
+    public Move findBestMove(Board rootBoard, int maxDepth, long softTimeLimitMillis, long hardTimeLimitMillis,
+                             int threadCount) throws InterruptedException {
+        if (threadCount < 1 || threadCount > MAX_SEARCH_THREADS) {
+            throw new IllegalArgumentException("Thread count must be between 1 and " + MAX_SEARCH_THREADS + ", was "
+                    + threadCount);
         }
+        long searchStartTime = System.nanoTime();
 
-        this.boardsEvaluatedPerMove++;
-        int standPat = boardEvaluator.evaluate(board, ply, gameOutcome);
-
-        // TODO: Figure out what difference it makes here whether to return beta or standPat
-        if (standPat >= beta) {
-            this.ruleProcessor.getMovePool().releaseAllMoves(legalMoves);
-            return beta;
+        int hashMove = MoveEncoding.NONE;
+        if (this.transpositionTable != null) {
+            if (this.isTranspositionTableOutdated) {
+                this.isTranspositionTableOutdated = false;
+                this.transpositionTable.clear();
+            }
+            this.transpositionTable.startNewSearch();
+            hashMove = TranspositionTable.getMove(this.transpositionTable.probe(rootBoard.getZobristHash()));
         }
 
-        if (standPat > alpha) {
-            alpha = standPat;
+        // An abandoned iteration leaves its moves made on the board, so every worker searches its own copy
+        AtomicBoolean stopSignal = new AtomicBoolean();
+        List<SearchWorker> workers = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            workers.add(new SearchWorker(this.ruleProcessor, this.boardEvaluator, this.transpositionTable,
+                    rootBoard.snapshot(), stopSignal, searchStartTime));
         }
-
-        // Optional hard cutoff to prevent tactical sequences from going too deep
-        final int MAX_QS_PLY = 12;
-        if (ply >= MAX_QS_PLY) {
-            this.ruleProcessor.getMovePool().releaseAllMoves(legalMoves);
-            this.leafNodesEvaluatedPerMove++;
-            return alpha;
+        SearchWorker mainWorker = workers.getFirst();
+        if (!mainWorker.hasRootMoves()) {
+            collectStatistics(List.of());
+            return null;
         }
 
-        List<Move> tacticalMoves = new ArrayList<>();
-        for (Move move : legalMoves) {
-            if (move.isCapture() || move.isPromo()) {
-                tacticalMoves.add(move);
-            } else {
-                this.ruleProcessor.getMovePool().releaseMove(move);
-            }
+        List<Future<?>> helperFutures = new ArrayList<>(threadCount - 1);
+        for (int i = 1; i < threadCount; i++) {
+            SearchWorker helper = workers.get(i);
+            int depthOffset = i % 2;
+            int firstMoveToSearch = hashMove;
+            helperFutures.add(this.helperThreadPool.submit(() -> {
+                helper.runIterativeDeepening(maxDepth, depthOffset, NO_TIME_LIMIT, NO_TIME_LIMIT, firstMoveToSearch);
+                return null;
+            }));
         }
-
-        if (tacticalMoves.isEmpty()) {
-            this.leafNodesEvaluatedPerMove++;
-            return alpha;
+        try {
+            mainWorker.runIterativeDeepening(maxDepth, 0, softTimeLimitMillis, hardTimeLimitMillis, hashMove);
+        } finally {
+            stopSignal.set(true);
+            awaitHelpers(helperFutures);
         }
+        collectStatistics(workers);
 
-        orderMoves(tacticalMoves);
-
-        int moveIndex = 0;
-
-        for (Move move : tacticalMoves) {
-            board.makeMove(move);
-            // Recursive call (with negated window)
-            int score = -quiescenceSearch(board, -beta, -alpha, ply + 1);
-            board.unmakeMove(move);
-
-            // Alpha-beta pruning logic
-            // TODO: Find out why this has to be >= instead of >, so that the quiescence search works properly
-            if (score >= beta) {
-                this.ruleProcessor.getMovePool().releaseAllMoves(tacticalMoves.subList(moveIndex,
-                        tacticalMoves.size()));
-                // TODO: Figure out what difference it makes here whether to return beta or score
-                return beta;
+        SearchWorker bestWorker = mainWorker;
+        for (SearchWorker worker : workers) {
+            if (worker.getCompletedDepth() > bestWorker.getCompletedDepth()) {
+                bestWorker = worker;
             }
-            alpha = Math.max(alpha, score);
-
-            this.ruleProcessor.getMovePool().releaseMove(move);
-            moveIndex++;
         }
-
-        return alpha;
+        // The search itself only works with encoded moves, the caller gets a Move object for the REST layer
+        return MoveEncoding.toMove(rootBoard, bestWorker.getBestMove(), this.ruleProcessor.getMovePool());
     }
 
-    private void orderMoves(List<Move> moves) {
-        moves.sort(Comparator.comparingInt(this::scoreMoveForOrdering).reversed());
-    }
-
-    private int scoreMoveForOrdering(Move move) {
-        int score = 0;
-
-        if (move.isCapture()) {
-            int movingPieceValue = BoardEvaluator.MATERIAL_VALUES.get(move.getMovingPiece().type().name());
-            int capturedPieceValue = BoardEvaluator.MATERIAL_VALUES.get(move.getCapturedPiece().type().name());
-            // TODO: Potentially suboptimal: value could become negative with fairy chess pieces (e.g., amazon capturing
-            //  a pawn)
-            score += 10 * capturedPieceValue - movingPieceValue;
+    // Helpers stop within a few nodes once the stop signal is set. They are waited for even if the search was
+    // canceled (the calling thread interrupted), since they still use the transposition table and the evaluator, which
+    // the caller may reinitialize right afterwards. The interrupt is then passed on.
+    private void awaitHelpers(List<Future<?>> helperFutures) throws InterruptedException {
+        boolean wasInterrupted = Thread.interrupted();
+        for (Future<?> helperFuture : helperFutures) {
+            while (true) {
+                try {
+                    helperFuture.get();
+                    break;
+                } catch (InterruptedException e) {
+                    wasInterrupted = true;
+                } catch (ExecutionException e) {
+                    // A helper only shortens the main thread's search, so losing one does not affect the result
+                    System.err.println("AI search helper failed: " + e.getCause());
+                    break;
+                }
+            }
         }
-
-        if (move.isPromo()) {
-            int promoPieceValue = BoardEvaluator.MATERIAL_VALUES.get(move.getPromoPieceType().name());
-            // TODO: Weighted too lightly compared to captures
-            score += promoPieceValue;
+        if (wasInterrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedException("AI search canceled by user action.");
         }
+    }
 
-        return score;
+    private void collectStatistics(List<SearchWorker> workers) {
+        this.alphaBetaCallsPerMove = 0;
+        this.boardsEvaluatedPerMove = 0;
+        this.leafNodesEvaluatedPerMove = 0;
+        this.transpositionTableProbesPerMove = 0;
+        this.transpositionTableHitsPerMove = 0;
+        this.transpositionTableCutoffsPerMove = 0;
+        this.betaCutoffsPerMove = 0;
+        this.firstMoveBetaCutoffsPerMove = 0;
+        this.nullMoveCutoffsPerMove = 0;
+        this.lateMoveReductionsPerMove = 0;
+        this.lateMoveReductionResearchesPerMove = 0;
+        this.futilityPrunedMovesPerMove = 0;
+        this.razoringCutoffsPerMove = 0;
+        this.deltaPrunedMovesPerMove = 0;
+        this.completedDepthPerMove = 0;
+        for (SearchWorker worker : workers) {
+            this.alphaBetaCallsPerMove += worker.getAlphaBetaCalls();
+            this.boardsEvaluatedPerMove += worker.getBoardsEvaluated();
+            this.leafNodesEvaluatedPerMove += worker.getLeafNodesEvaluated();
+            this.transpositionTableProbesPerMove += worker.getTranspositionTableProbes();
+            this.transpositionTableHitsPerMove += worker.getTranspositionTableHits();
+            this.transpositionTableCutoffsPerMove += worker.getTranspositionTableCutoffs();
+            this.betaCutoffsPerMove += worker.getBetaCutoffs();
+            this.firstMoveBetaCutoffsPerMove += worker.getFirstMoveBetaCutoffs();
+            this.nullMoveCutoffsPerMove += worker.getNullMoveCutoffs();
+            this.lateMoveReductionsPerMove += worker.getLateMoveReductions();
+            this.lateMoveReductionResearchesPerMove += worker.getLateMoveReductionResearches();
+            this.futilityPrunedMovesPerMove += worker.getFutilityPrunedMoves();
+            this.razoringCutoffsPerMove += worker.getRazoringCutoffs();
+            this.deltaPrunedMovesPerMove += worker.getDeltaPrunedMoves();
+            this.completedDepthPerMove = Math.max(this.completedDepthPerMove, worker.getCompletedDepth());
+        }
     }
 }
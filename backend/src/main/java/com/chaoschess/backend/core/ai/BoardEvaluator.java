@@ -1,16 +1,14 @@
 package com.chaoschess.backend.core.ai;
 
 import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.ScoreTables;
 import com.chaoschess.backend.core.model.Color;
 import com.chaoschess.backend.core.model.GameOutcome;
 import com.chaoschess.backend.core.model.GameOutcomeCategory;
-import com.chaoschess.backend.core.model.PieceRole;
 import com.chaoschess.backend.core.model.PieceType;
 import com.chaoschess.backend.core.model.PieceTypes;
-import com.chaoschess.backend.core.model.Square;
 import org.springframework.stereotype.Service;
 
-import java.util.EnumMap;
 import java.util.Map;
 
 @Service
@@ -40,24 +38,59 @@ public class BoardEvaluator {
             Map.entry("Nightrider", 650)
     );
 
-    private static final int MATE_SCORE = 1000000;
+    public static final int MATE_SCORE = 1000000;
+    // Scores at least this far from 0 are mate scores (reduced by the ply of the mate)
+    public static final int MATE_SCORE_THRESHOLD = MATE_SCORE - 10_000;
     private static final int MIDGAME_MATERIAL_CUTOFF = 3200;
     private static final int ENDGAME_MATERIAL_CUTOFF = 1400;
 
-    // TODO: Never accessed at the moment
-    private final PieceTypes pieceTypes;
+    // MATERIAL_VALUES resolved once per piece type, indexed by piece type ID
+    private final int[] materialValuesById;
+    // Highest of these values, the most a single capture can win
+    private final int maxMaterialValue;
 
-    private Map<PieceType, int[][]> midgamePSTs;
-    private Map<PieceType, int[][]> endgamePSTs;
+    // Set on every board passed to evaluate(), which then keeps its material and PST sums up to date by itself
+    private ScoreTables scoreTables;
 
     public BoardEvaluator(PieceTypes pieceTypes) {
-        this.pieceTypes = pieceTypes;
+        this.materialValuesById = new int[pieceTypes.pieceTypesMap().size()];
+        for (PieceType pieceType : pieceTypes.pieceTypesMap().values()) {
+            this.materialValuesById[pieceType.id()] = MATERIAL_VALUES.get(pieceType.name());
+        }
+        int maxMaterialValue = 0;
+        for (int materialValue : this.materialValuesById) {
+            maxMaterialValue = Math.max(maxMaterialValue, materialValue);
+        }
+        this.maxMaterialValue = maxMaterialValue;
+    }
+
+    public int getMaterialValue(int pieceTypeId) {
+        return this.materialValuesById[pieceTypeId];
+    }
+
+    // Depends on the loaded piece types, e.g. 900 (queen) for standard chess and 1250 with amazons
+    public int getMaxMaterialValue() {
+        return this.maxMaterialValue;
     }
 
     public void initializePSTs(int width, int height, PieceTypes pieceTypes) {
         PSTData pstData = PSTGenerator.generatePSTs(width, height, pieceTypes);
-        this.midgamePSTs = pstData.midgamePSTs();
-        this.endgamePSTs = pstData.endgamePSTs();
+
+        int[][] midgamePSTs = new int[2 * pieceTypes.pieceTypesMap().size()][width * height];
+        int[][] endgamePSTs = new int[2 * pieceTypes.pieceTypesMap().size()][width * height];
+        for (PieceType pieceType : pieceTypes.pieceTypesMap().values()) {
+            for (Color color : Color.values()) {
+                int tableIndex = 2 * pieceType.id() + color.ordinal();
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        int pstY = color.equals(Color.WHITE) ? y : ((height - 1) - y);
+                        midgamePSTs[tableIndex][y * width + x] = pstData.midgamePSTs().get(pieceType)[x][pstY];
+                        endgamePSTs[tableIndex][y * width + x] = pstData.endgamePSTs().get(pieceType)[x][pstY];
+                    }
+                }
+            }
+        }
+        this.scoreTables = new ScoreTables(width, height, this.materialValuesById, midgamePSTs, endgamePSTs);
     }
 
     public int evaluate(Board board, int ply, GameOutcome gameOutcome) {
@@ -72,59 +105,25 @@ public class BoardEvaluator {
             return sign * (MATE_SCORE - ply);
         }
 
-        MaterialValues materialValues = countMaterialValues(board);
+        if (board.getScoreTables() != this.scoreTables) {
+            board.setScoreTables(this.scoreTables);
+        }
 
-        int totalMaterialValueExcludingPawns = materialValues.excludingPawns().get(hero)
-                + materialValues.excludingPawns().get(villain);
+        int totalMaterialValueExcludingPawns = board.getNonPawnMaterialValue(hero)
+                + board.getNonPawnMaterialValue(villain);
         double pstMidgameWeightingFactor = ((double) totalMaterialValueExcludingPawns - ENDGAME_MATERIAL_CUTOFF)
                 / (MIDGAME_MATERIAL_CUTOFF - ENDGAME_MATERIAL_CUTOFF);
         pstMidgameWeightingFactor = Math.clamp(pstMidgameWeightingFactor, 0.0, 1.0);
 
-        PositionalValues positionalValues = countPositionalValues(board, pstMidgameWeightingFactor);
-
-        int materialScore = materialValues.total().get(hero) - materialValues.total().get(villain);
-        int positionalScore = positionalValues.total().get(hero) - positionalValues.total().get(villain);
+        int materialScore = board.getMaterialValue(hero) - board.getMaterialValue(villain);
+        int positionalScore = calculatePositionalValue(board, hero, pstMidgameWeightingFactor)
+                - calculatePositionalValue(board, villain, pstMidgameWeightingFactor);
 
         return materialScore + positionalScore;
     }
 
-    private MaterialValues countMaterialValues(Board board) {
-        Map<Color, Integer> totalValues = new EnumMap<>(Color.class);
-        Map<Color, Integer> excludingPawnsValues = new EnumMap<>(Color.class);
-
-        for (Color color : Color.values()) {
-            int onlyPawnsValue = 0;
-            int excludingPawnsValue = 0;
-
-            for (Square pieceLoc : board.getPieceLocs().get(color)) {
-                PieceType pieceType = board.getPieceAt(pieceLoc).type();
-                if (pieceType.role() == PieceRole.PAWN_LIKE) {
-                    onlyPawnsValue += MATERIAL_VALUES.get(pieceType.name());
-                } else {
-                    excludingPawnsValue += MATERIAL_VALUES.get(pieceType.name());
-                }
-            }
-            totalValues.put(color, onlyPawnsValue + excludingPawnsValue);
-            excludingPawnsValues.put(color, excludingPawnsValue);
-        }
-        return new MaterialValues(totalValues, excludingPawnsValues);
-    }
-
-    private PositionalValues countPositionalValues(Board board, double pstMidgameWeightingFactor) {
-        Map<Color, Integer> positionalValues = new EnumMap<>(Color.class);
-
-        for (Color color : Color.values()) {
-            double totalValue = 0;
-
-            for (Square pieceLoc : board.getPieceLocs().get(color)) {
-                PieceType pieceType = board.getPieceAt(pieceLoc).type();
-                int pstX = pieceLoc.x();
-                int pstY = color.equals(Color.WHITE) ? pieceLoc.y() : ((board.getHeight() - 1) - pieceLoc.y());
-                totalValue += pstMidgameWeightingFactor * this.midgamePSTs.get(pieceType)[pstX][pstY]
-                        + (1.0 - pstMidgameWeightingFactor) * this.endgamePSTs.get(pieceType)[pstX][pstY];
-            }
-            positionalValues.put(color, (int) Math.round(totalValue));
-        }
-        return new PositionalValues(positionalValues);
+    private int calculatePositionalValue(Board board, Color color, double pstMidgameWeightingFactor) {
+        return (int) Math.round(pstMidgameWeightingFactor * board.getMidgamePSTValue(color)
+                + (1.0 - pstMidgameWeightingFactor) * board.getEndgamePSTValue(color));
     }
 }
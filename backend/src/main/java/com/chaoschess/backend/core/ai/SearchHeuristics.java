@@ -0,0 +1,74 @@
+package com.chaoschess.backend.core.ai;
+
+import com.chaoschess.backend.core.engine.MoveEncoding;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.model.Color;
+
+// Quiet move ordering statistics of one search thread, learned from the quiet moves that caused beta cutoffs:
+//  - killer moves: the last two cutoff moves per ply, which often refute the sibling positions as well,
+//  - history (butterfly table): a score per side to move and from/to square pair, raised by depth^2 on every cutoff,
+//  - counter moves: the last cutoff move played in reply to each opponent move, by its from/to squares.
+// The tables are indexed by square index (see MoveEncoding) and sized for the largest board, so they fit every board.
+final class SearchHeuristics {
+
+    private static final int SQUARE_COUNT = Board.MAX_BOARD_SIZE * Board.MAX_BOARD_SIZE;
+    private static final int FROM_TO_COUNT = SQUARE_COUNT * SQUARE_COUNT;
+    // Once a history score exceeds this, all scores are halved, so that recent cutoffs outweigh old ones
+    private static final int MAX_HISTORY_SCORE = 1 << 20;
+
+    // Two per ply, the most recent one first
+    private final int[] killerMoves;
+    // Both indexed by side to move, then from/to squares (of the move itself, or of the opponent's move it answers)
+    private final int[] history;
+    private final int[] counterMoves;
+
+    // All tables start empty (MoveEncoding.NONE is 0)
+    SearchHeuristics(int maxPly) {
+        this.killerMoves = new int[2 * (maxPly + 1)];
+        this.history = new int[2 * FROM_TO_COUNT];
+        this.counterMoves = new int[2 * FROM_TO_COUNT];
+    }
+
+    int getFirstKillerMove(int ply) {
+        return (2 * ply < this.killerMoves.length) ? this.killerMoves[2 * ply] : MoveEncoding.NONE;
+    }
+
+    int getSecondKillerMove(int ply) {
+        return (2 * ply < this.killerMoves.length) ? this.killerMoves[2 * ply + 1] : MoveEncoding.NONE;
+    }
+
+    // Returns MoveEncoding.NONE if there is no previous move (e.g. at the root) or no counter move for it
+    int getCounterMove(Color colorToMove, int previousMove) {
+        if (previousMove == MoveEncoding.NONE) {
+            return MoveEncoding.NONE;
+        }
+        return this.counterMoves[getIndex(colorToMove, previousMove)];
+    }
+
+    int getHistoryScore(Color colorToMove, int move) {
+        return this.history[getIndex(colorToMove, move)];
+    }
+
+    // Records a quiet move that caused a beta cutoff at the given node
+    void recordCutoff(Color colorToMove, int move, int previousMove, int depth, int ply) {
+        if (2 * ply < this.killerMoves.length && this.killerMoves[2 * ply] != move) {
+            this.killerMoves[2 * ply + 1] = this.killerMoves[2 * ply];
+            this.killerMoves[2 * ply] = move;
+        }
+        if (previousMove != MoveEncoding.NONE) {
+            this.counterMoves[getIndex(colorToMove, previousMove)] = move;
+        }
+        int index = getIndex(colorToMove, move);
+        this.history[index] += depth * depth;
+        if (this.history[index] > MAX_HISTORY_SCORE) {
+            for (int i = 0; i < this.history.length; i++) {
+                this.history[i] >>= 1;
+            }
+        }
+    }
+
+    private static int getIndex(Color colorToMove, int move) {
+        return colorToMove.ordinal() * FROM_TO_COUNT + MoveEncoding.getFrom(move) * SQUARE_COUNT
+                + MoveEncoding.getTo(move);
+    }
+}
@@ -0,0 +1,656 @@
+package com.chaoschess.backend.core.ai;
+
+import com.chaoschess.backend.core.engine.MoveEncoding;
+import com.chaoschess.backend.core.engine.MoveFilter;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePicker;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.SearchContext;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.GameOutcome;
+import com.chaoschess.backend.core.model.GameOutcomeCategory;
+import com.chaoschess.backend.core.model.GameOutcomeState;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// One thread's share of a search (see AlphaBetaSearcher): the iterative deepening on its own copy of the root board,
+// with its own move buffers, move ordering heuristics and statistics. Workers of the same search only share the
+// transposition table and the stop signal.
+final class SearchWorker {
+
+    // Outcome of all nodes that are not checked for the end of the game
+    private static final GameOutcome ONGOING = new GameOutcome(GameOutcomeState.ONGOING, null);
+
+    // Iterations in a row that have to agree on the best move before the search may stop at half the soft time limit
+    private static final int STABLE_BEST_MOVE_ITERATIONS = 3;
+    // Half width of the first aspiration window around the previous iteration's score (a pawn is worth 100), and the
+    // first depth that uses one. The window grows by ASPIRATION_WINDOW_GROWTH on every fail, up to the full window.
+    private static final int ASPIRATION_WINDOW = 50;
+    private static final int ASPIRATION_WINDOW_GROWTH = 4;
+    private static final int MIN_ASPIRATION_DEPTH = 3;
+    // Null move pruning: the minimum depth, and the depth reduction of the null move search (the base reduction plus
+    // one more ply per NULL_MOVE_DEPTH_DIVISOR plies of depth). The side to move needs non-pawn material worth at least
+    // a minor piece, since with only king and pawns, passing is often better than any move (zugzwang), and the null
+    // move would then wrongly prove that the position is good.
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    private static final int NULL_MOVE_BASE_REDUCTION = 2;
+    private static final int NULL_MOVE_DEPTH_DIVISOR = 4;
+    private static final int NULL_MOVE_MIN_NON_PAWN_MATERIAL = 300;
+    // Late move reductions: quiet moves picked after the first LMR_MIN_MOVE_COUNT moves of a node with at least
+    // LMR_MIN_DEPTH remaining depth are searched LATE_MOVE_REDUCTIONS[depth][move number] plies shallower, see
+    // calculateLateMoveReductions()
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_MOVE_COUNT = 3;
+    private static final double LMR_BASE = 0.75;
+    private static final double LMR_DIVISOR = 2.25;
+    private static final int LMR_MAX_MOVE_COUNT = 63;
+    private static final int[][] LATE_MOVE_REDUCTIONS = calculateLateMoveReductions();
+    // Frontier pruning at zero-window nodes close to the leaves, based on the static evaluation: with a remaining
+    // depth of up to FUTILITY_MAX_DEPTH, quiet moves are skipped if the evaluation plus FUTILITY_MARGIN per ply of
+    // depth does not reach alpha. With up to RAZORING_MAX_DEPTH, the node is resolved by quiescence search alone if
+    // the evaluation plus RAZORING_MARGIN per ply of depth does not reach alpha.
+    private static final int FUTILITY_MAX_DEPTH = 3;
+    private static final int FUTILITY_MARGIN = 200;
+    private static final int RAZORING_MAX_DEPTH = 2;
+    private static final int RAZORING_MARGIN = 300;
+    // Quiescence search skips captures that cannot raise alpha even if they win their material value plus this
+    // margin (for positional gains the material values do not capture)
+    private static final int DELTA_MARGIN = 200;
+    // Optional hard cutoff to prevent tactical sequences from going too deep, counted from where the quiescence search
+    // starts (not from the root), so that it still resolves captures at the horizon of deep iterations
+    private static final int MAX_QS_PLY = 12;
+    // Bound of the full window. Its lower end is -Integer.MAX_VALUE rather than Integer.MIN_VALUE, because
+    // -Integer.MIN_VALUE == Integer.MIN_VALUE, due to the smallest int value in Java having no positive complement.
+    private static final int INFINITE_SCORE = Integer.MAX_VALUE;
+    // Nodes between two checks of the clock and the stop signal
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    // Thrown (without stack trace) to abandon an iteration at the hard time limit or when the search is stopped,
+    // caught in runIterativeDeepening()
+    private static final class SearchAbortException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private SearchAbortException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final SearchAbortException SEARCH_ABORT = new SearchAbortException();
+
+    private final RuleProcessor ruleProcessor;
+    private final BoardEvaluator boardEvaluator;
+    private final MovePicker.MoveScorer moveScorer;
+    private final MovePicker.MoveScorer quietMoveScorer;
+    private final SearchHeuristics heuristics;
+    // Null if disabled
+    private final TranspositionTable transpositionTable;
+    private final Board board;
+    private final SearchContext context;
+    private final MoveList rootMoves;
+    private final AtomicBoolean stopSignal;
+
+    // The running iteration is abandoned once this much time has passed since the search started
+    private final long searchStartTime;
+    private long hardTimeLimitNanos;
+    private int nodesUntilTimeCheck;
+
+    // Result of the last completed iteration
+    private int bestMove;
+    private int completedDepth;
+
+    private long alphaBetaCalls;
+    private long boardsEvaluated;
+    private long leafNodesEvaluated;
+    private long transpositionTableProbes;
+    private long transpositionTableHits;
+    private long transpositionTableCutoffs;
+    private long betaCutoffs;
+    private long firstMoveBetaCutoffs;
+    private long nullMoveCutoffs;
+    private long lateMoveReductions;
+    private long lateMoveReductionResearches;
+    private long futilityPrunedMoves;
+    private long razoringCutoffs;
+    private long deltaPrunedMoves;
+
+    // The board must not be used by anyone else during the search
+    SearchWorker(RuleProcessor ruleProcessor, BoardEvaluator boardEvaluator, TranspositionTable transpositionTable,
+                 Board board, AtomicBoolean stopSignal, long searchStartTime) {
+        this.ruleProcessor = ruleProcessor;
+        this.boardEvaluator = boardEvaluator;
+        this.moveScorer = this::scoreMoveForOrdering;
+        this.heuristics = new SearchHeuristics(AlphaBetaSearcher.MAX_SEARCH_DEPTH);
+        this.quietMoveScorer = (node, move) -> this.heuristics.getHistoryScore(node.getColorToMove(), move);
+        this.transpositionTable = transpositionTable;
+        this.board = board;
+        this.context = new SearchContext();
+        this.context.setRootHistoryLength(board.getHistoryLength());
+        this.rootMoves = this.context.getMoveList(0);
+        ruleProcessor.calculateLegalMoves(board, this.rootMoves);
+        this.stopSignal = stopSignal;
+        this.searchStartTime = searchStartTime;
+        this.hardTimeLimitNanos = Long.MAX_VALUE;
+        this.nodesUntilTimeCheck = TIME_CHECK_INTERVAL;
+        this.bestMove = MoveEncoding.NONE;
+    }
+
+    boolean hasRootMoves() {
+        return !this.rootMoves.isEmpty();
+    }
+
+    int getBestMove() {
+        return this.bestMove;
+    }
+
+    int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    long getAlphaBetaCalls() {
+        return this.alphaBetaCalls;
+    }
+
+    long getBoardsEvaluated() {
+        return this.boardsEvaluated;
+    }
+
+    long getLeafNodesEvaluated() {
+        return this.leafNodesEvaluated;
+    }
+
+    long getTranspositionTableProbes() {
+        return this.transpositionTableProbes;
+    }
+
+    long getTranspositionTableHits() {
+        return this.transpositionTableHits;
+    }
+
+    long getTranspositionTableCutoffs() {
+        return this.transpositionTableCutoffs;
+    }
+
+    long getBetaCutoffs() {
+        return this.betaCutoffs;
+    }
+
+    long getFirstMoveBetaCutoffs() {
+        return this.firstMoveBetaCutoffs;
+    }
+
+    long getNullMoveCutoffs() {
+        return this.nullMoveCutoffs;
+    }
+
+    long getLateMoveReductions() {
+        return this.lateMoveReductions;
+    }
+
+    long getLateMoveReductionResearches() {
+        return this.lateMoveReductionResearches;
+    }
+
+    long getFutilityPrunedMoves() {
+        return this.futilityPrunedMoves;
+    }
+
+    long getRazoringCutoffs() {
+        return this.razoringCutoffs;
+    }
+
+    long getDeltaPrunedMoves() {
+        return this.deltaPrunedMoves;
+    }
+
+    // Searches to depth 1 + depthOffset, 2 + depthOffset, ... up to maxDepth, see AlphaBetaSearcher.findBestMove() for
+    // the time limits. The hard time limit only applies from the second iteration on, so the first one always
+    // completes unless the search is stopped from outside.
+    void runIterativeDeepening(int maxDepth, int depthOffset, long softTimeLimitMillis, long hardTimeLimitMillis,
+                               int firstMoveToSearch) throws InterruptedException {
+        int stableIterations = 0;
+        this.bestMove = firstMoveToSearch;
+        int previousScore = 0;
+        for (int depth = 1 + depthOffset; depth <= maxDepth; depth++) {
+            if (depth > 1 + depthOffset && hardTimeLimitMillis != AlphaBetaSearcher.NO_TIME_LIMIT) {
+                this.hardTimeLimitNanos = hardTimeLimitMillis * 1_000_000;
+            }
+            // The best move of the previous iteration (or of an earlier search, from the table) is searched first
+            orderMoves(this.board, this.rootMoves, this.bestMove);
+            boolean useAspirationWindow = depth >= MIN_ASPIRATION_DEPTH && depth > 1 + depthOffset
+                    && Math.abs(previousScore) < BoardEvaluator.MATE_SCORE_THRESHOLD;
+            long rootResult;
+            try {
+                rootResult = searchWithAspirationWindow(depth, useAspirationWindow, previousScore);
+            } catch (SearchAbortException e) {
+                // The abandoned iteration leaves its moves made on the board, which is discarded with the worker
+                break;
+            }
+            int iterationBestMove = (int) rootResult;
+            int iterationBestScore = (int) (rootResult >> 32);
+            previousScore = iterationBestScore;
+            stableIterations = (iterationBestMove == this.bestMove) ? stableIterations + 1 : 0;
+            this.bestMove = iterationBestMove;
+            this.completedDepth = depth;
+
+            if (Math.abs(iterationBestScore) >= BoardEvaluator.MATE_SCORE_THRESHOLD) {
+                break;
+            }
+            if (softTimeLimitMillis != AlphaBetaSearcher.NO_TIME_LIMIT) {
+                long elapsedMillis = (System.nanoTime() - this.searchStartTime) / 1_000_000;
+                long timeLimitMillis = (stableIterations >= STABLE_BEST_MOVE_ITERATIONS)
+                        ? softTimeLimitMillis / 2 : softTimeLimitMillis;
+                if (elapsedMillis >= timeLimitMillis) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Searches the root with a narrow window around the previous iteration's score, which cuts off more nodes than the
+    // full window as long as the score does not change much. If the score falls outside the window, the root is
+    // searched again with the window widened on that side. Returns the result of searchRoot() for the exact score.
+    private long searchWithAspirationWindow(int depth, boolean useAspirationWindow, int previousScore)
+            throws InterruptedException {
+        int alpha = -INFINITE_SCORE;
+        int beta = INFINITE_SCORE;
+        long delta = ASPIRATION_WINDOW;
+        if (useAspirationWindow) {
+            alpha = (int) Math.max(-INFINITE_SCORE, previousScore - delta);
+            beta = (int) Math.min(INFINITE_SCORE, previousScore + delta);
+        }
+        while (true) {
+            long rootResult = searchRoot(this.board, this.context, this.rootMoves, depth, alpha, beta);
+            int score = (int) (rootResult >> 32);
+            delta *= ASPIRATION_WINDOW_GROWTH;
+            if (score <= alpha && alpha > -INFINITE_SCORE) {
+                alpha = (delta >= BoardEvaluator.MATE_SCORE) ? -INFINITE_SCORE
+                        : (int) Math.max(-INFINITE_SCORE, previousScore - delta);
+            } else if (score >= beta && beta < INFINITE_SCORE) {
+                beta = (delta >= BoardEvaluator.MATE_SCORE) ? INFINITE_SCORE
+                        : (int) Math.min(INFINITE_SCORE, previousScore + delta);
+                // The move that failed high is the best one found so far
+                orderMoves(this.board, this.rootMoves, (int) rootResult);
+            } else {
+                return rootResult;
+            }
+        }
+    }
+
+    // Searches all root moves to the given depth with principal variation search (see searchChild()). Returns the best
+    // move (lower 32 bits) and its score (upper 32 bits), the score being alpha if no move beats alpha and beta if a
+    // move reaches beta (then returned as the best move).
+    private long searchRoot(Board board, SearchContext context, MoveList legalMoves, int depth, int alpha, int beta)
+            throws InterruptedException {
+        int originalAlpha = alpha;
+        int bestMove = legalMoves.get(0);
+        for (int moveIndex = 0; moveIndex < legalMoves.size(); moveIndex++) {
+            int move = legalMoves.get(moveIndex);
+            board.makeMove(move);
+            int score = searchChild(board, context, depth, alpha, beta, 0, move, moveIndex == 0, 0, true);
+            board.unmakeMove(move);
+
+            if (score >= beta) {
+                storeInTranspositionTable(board.getZobristHash(), depth, beta, TranspositionTable.LOWER_BOUND, move,
+                        0);
+                return ((long) beta << 32) | (move & 0xFFFFFFFFL);
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+            }
+        }
+        storeInTranspositionTable(board.getZobristHash(), depth, alpha,
+                (alpha > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND, bestMove, 0);
+        return ((long) alpha << 32) | (bestMove & 0xFFFFFFFFL);
+    }
+
+    // Principal variation search of the child reached by the given move (already made): the first move is searched
+    // with the full window, since it is expected to be the best one. The others are only checked with a zero window
+    // (scout) for whether they beat alpha, and only searched again with the full window if they do. The scout is
+    // cheaper, since it cuts off as soon as the child reaches alpha. With a late move reduction, the scout is first
+    // searched that many plies shallower, and only repeated at full depth if it beats alpha. Returns the score from
+    // this node's point of view.
+    private int searchChild(Board board, SearchContext context, int depth, int alpha, int beta, int ply, int move,
+                            boolean isFirstMove, int reduction, boolean useQuiescenceSearch)
+            throws InterruptedException {
+        // Recursive calls with negated window
+        if (isFirstMove) {
+            return -alphaBeta(board, context, depth - 1, -beta, -alpha, ply + 1, move, useQuiescenceSearch);
+        }
+        int score;
+        if (reduction > 0) {
+            score = -alphaBeta(board, context, depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, move,
+                    useQuiescenceSearch);
+            if (score <= alpha) {
+                return score;
+            }
+            this.lateMoveReductionResearches++;
+        }
+        score = -alphaBeta(board, context, depth - 1, -alpha - 1, -alpha, ply + 1, move, useQuiescenceSearch);
+        if (score > alpha && score < beta) {
+            score = -alphaBeta(board, context, depth - 1, -beta, -alpha, ply + 1, move, useQuiescenceSearch);
+        }
+        return score;
+    }
+
+    // previousMove is the opponent's move that led to this node
+    private int alphaBeta(Board board, SearchContext context, int depth, int alpha, int beta, int ply, int previousMove,
+                          boolean useQuiescenceSearch) throws InterruptedException {
+        this.alphaBetaCalls++;
+
+        checkSearchAbort();
+
+        if (depth == 0) {
+            if (useQuiescenceSearch) {
+                // Do NOT swap and negate alpha and beta here, as the quiescence search continues on the current node
+                // first (rather than on a child node). It also checks whether the game is over at this node.
+                return quiescenceSearch(board, context, alpha, beta, ply, 0);
+            }
+            return evaluateLeaf(board, context, ply);
+        }
+        if (ruleProcessor.isDrawByRule(board, context.getRootHistoryLength())) {
+            return evaluateLeaf(board, context, ply);
+        }
+
+        // The draw rules above depend on the moves that led here, so the table is only consulted after them
+        long zobristHash = board.getZobristHash();
+        int hashMove = MoveEncoding.NONE;
+        if (this.transpositionTable != null) {
+            this.transpositionTableProbes++;
+            long entry = this.transpositionTable.probe(zobristHash);
+            if (entry != 0) {
+                this.transpositionTableHits++;
+                hashMove = TranspositionTable.getMove(entry);
+                if (TranspositionTable.getDepth(entry) >= depth) {
+                    int entryScore = TranspositionTable.getScore(entry, ply);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER_BOUND && entryScore >= beta)
+                            || (bound == TranspositionTable.UPPER_BOUND && entryScore <= alpha)) {
+                        this.transpositionTableCutoffs++;
+                        return Math.max(alpha, Math.min(beta, entryScore));
+                    }
+                }
+            }
+        }
+        Color colorToMove = board.getColorToMove();
+        boolean isInCheck = board.isKingInCheck(colorToMove);
+        // The pruning below is only done at zero-window nodes, never in check and never with mate scores in the window
+        boolean isPvNode = beta - alpha > 1;
+        boolean canPrune = !isPvNode && !isInCheck && Math.abs(beta) < BoardEvaluator.MATE_SCORE_THRESHOLD;
+        int staticEvaluation = 0;
+        if (canPrune) {
+            this.boardsEvaluated++;
+            staticEvaluation = boardEvaluator.evaluate(board, ply, ONGOING);
+        }
+
+        // Razoring: far enough below alpha that only a capture could still help, which the quiescence search checks
+        if (canPrune && useQuiescenceSearch && depth <= RAZORING_MAX_DEPTH
+                && staticEvaluation + RAZORING_MARGIN * depth <= alpha) {
+            int score = quiescenceSearch(board, context, alpha, beta, ply, 0);
+            if (score <= alpha) {
+                this.razoringCutoffs++;
+                return alpha;
+            }
+        }
+
+        // Never two null moves in a row (a null move is passed on as previousMove NONE)
+        if (canPrune && depth >= NULL_MOVE_MIN_DEPTH && previousMove != MoveEncoding.NONE
+                && staticEvaluation >= beta
+                && board.getNonPawnMaterialValue(colorToMove) >= NULL_MOVE_MIN_NON_PAWN_MATERIAL) {
+            // If the position still reaches beta after passing the turn, a real move almost certainly does as well,
+            // and a much shallower search is enough to show it
+            int reduction = NULL_MOVE_BASE_REDUCTION + depth / NULL_MOVE_DEPTH_DIVISOR;
+            board.makeNullMove();
+            int score = -alphaBeta(board, context, Math.max(0, depth - 1 - reduction), -beta, -beta + 1, ply + 1,
+                    MoveEncoding.NONE, useQuiescenceSearch);
+            board.unmakeNullMove();
+            if (score >= beta) {
+                this.nullMoveCutoffs++;
+                storeInTranspositionTable(zobristHash, depth, beta, TranspositionTable.LOWER_BOUND, MoveEncoding.NONE,
+                        ply);
+                return beta;
+            }
+        }
+
+        // Futility pruning: too far below alpha for a quiet move to catch up within the remaining depth
+        boolean isFutile = canPrune && depth <= FUTILITY_MAX_DEPTH
+                && staticEvaluation + FUTILITY_MARGIN * depth <= alpha;
+
+        int originalAlpha = alpha;
+        int bestMove = MoveEncoding.NONE;
+
+        // The moves are generated stage by stage, so a cutoff on one of the first moves saves generating the rest. The
+        // quiet moves most likely to cut off (killer and counter moves, then by history score) come first among them.
+        MovePicker movePicker = context.getMovePicker(ply);
+        movePicker.init(board, ruleProcessor, this.moveScorer, this.quietMoveScorer, false, hashMove,
+                this.heuristics.getFirstKillerMove(ply), this.heuristics.getSecondKillerMove(ply),
+                this.heuristics.getCounterMove(colorToMove, previousMove));
+
+        for (int move = movePicker.next(); move != MoveEncoding.NONE; move = movePicker.next()) {
+            int moveCount = movePicker.getPickedMoveCount();
+            board.makeMove(move);
+            // Late quiet moves are unlikely to be best, given the move ordering, unless they are checks or answer one.
+            // Futile quiet moves are skipped altogether, except for the first move, so that the node gets a score.
+            boolean isLateMove = depth >= LMR_MIN_DEPTH && moveCount > LMR_MIN_MOVE_COUNT;
+            int reduction = 0;
+            if ((isLateMove || (isFutile && moveCount > 1)) && !isInCheck && !MoveFilter.isTactical(move)
+                    && !board.isKingInCheck(board.getColorToMove())) {
+                if (isFutile) {
+                    board.unmakeMove(move);
+                    this.futilityPrunedMoves++;
+                    continue;
+                }
+                reduction = LATE_MOVE_REDUCTIONS[Math.min(depth, AlphaBetaSearcher.MAX_SEARCH_DEPTH)]
+                        [Math.min(moveCount, LMR_MAX_MOVE_COUNT)];
+                this.lateMoveReductions++;
+            }
+            int score = searchChild(board, context, depth, alpha, beta, ply, move, moveCount == 1, reduction,
+                    useQuiescenceSearch);
+            board.unmakeMove(move);
+
+            // Alpha-beta pruning logic
+            // TODO: Find out if this ALSO needs to be >= instead of > here, like in quiescence search
+            if (score >= beta) {
+                this.betaCutoffs++;
+                if (movePicker.getPickedMoveCount() == 1) {
+                    this.firstMoveBetaCutoffs++;
+                }
+                if (!MoveFilter.isTactical(move)) {
+                    this.heuristics.recordCutoff(colorToMove, move, previousMove, depth, ply);
+                }
+                storeInTranspositionTable(zobristHash, depth, beta, TranspositionTable.LOWER_BOUND, move, ply);
+                // TODO: Figure out what difference it makes here whether to return beta or standPat (keywords:
+                //  "fail-soft" vs "fail-hard")
+                return beta;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+            }
+        }
+
+        if (movePicker.getPickedMoveCount() == 0) {
+            // Checkmate or stalemate
+            this.boardsEvaluated++;
+            this.leafNodesEvaluated++;
+            int score = boardEvaluator.evaluate(board, ply, ruleProcessor.determineGameOutcome(board, 0));
+            // The end of the game does not depend on the search depth
+            storeInTranspositionTable(zobristHash, TranspositionTable.MAX_DEPTH, score, TranspositionTable.EXACT,
+                    MoveEncoding.NONE, ply);
+            return score;
+        }
+        storeInTranspositionTable(zobristHash, depth, alpha,
+                (alpha > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND, bestMove, ply);
+        return alpha;
+    }
+
+    private void storeInTranspositionTable(long zobristHash, int depth, int score, int bound, int bestMove, int ply) {
+        if (this.transpositionTable != null) {
+            this.transpositionTable.store(zobristHash, depth, score, bound, bestMove, ply);
+        }
+    }
+
+    private void checkSearchAbort() throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("AI search canceled by user action.");
+        }
+        if (--this.nodesUntilTimeCheck == 0) {
+            this.nodesUntilTimeCheck = TIME_CHECK_INTERVAL;
+            if (this.stopSignal.get() || System.nanoTime() - this.searchStartTime > this.hardTimeLimitNanos) {
+                throw SEARCH_ABORT;
+            }
+        }
+    }
+
+    // Evaluates the node as a leaf, based on the game outcome determined from all legal moves. Besides the nodes at the
+    // depth limit, this is used where the fifty-move rule or threefold repetition may end the game, since those only
+    // apply if the side to move has a legal move.
+    private int evaluateLeaf(Board board, SearchContext context, int ply) {
+        MoveList legalMoves = context.getMoveList(ply);
+        ruleProcessor.calculateLegalMoves(board, legalMoves);
+        GameOutcome gameOutcome = ruleProcessor.determineGameOutcome(board, legalMoves.size(),
+                context.getRootHistoryLength());
+
+        this.boardsEvaluated++;
+        this.leafNodesEvaluated++;
+        return boardEvaluator.evaluate(board, ply, gameOutcome);
+    }
+
+    // qsPly is the number of plies since the quiescence search started, ply the number of plies from the root
+    private int quiescenceSearch(Board board, SearchContext context, int alpha, int beta, int ply, int qsPly)
+            throws InterruptedException {
+        checkSearchAbort();
+
+        // All legal moves are only generated when they can end the game: in check (checkmate) or when a draw rule
+        // applies. Otherwise only tactical moves are generated below, so a stalemate goes unnoticed and the position
+        // gets its stand pat score like any other quiet position.
+        GameOutcome gameOutcome = ONGOING;
+        boolean isInCheck = board.isKingInCheck(board.getColorToMove());
+        if (isInCheck || ruleProcessor.isDrawByRule(board, context.getRootHistoryLength())) {
+            MoveList legalMoves = context.getMoveList(ply);
+            ruleProcessor.calculateLegalMoves(board, legalMoves);
+            gameOutcome = ruleProcessor.determineGameOutcome(board, legalMoves.size(),
+                    context.getRootHistoryLength());
+
+            if (gameOutcome.getCategory() != GameOutcomeCategory.ONGOING) {
+                this.boardsEvaluated++;
+                this.leafNodesEvaluated++;
+                return boardEvaluator.evaluate(board, ply, gameOutcome);
+            }
+        }
+
+        this.boardsEvaluated++;
+        int standPat = boardEvaluator.evaluate(board, ply, gameOutcome);
+
+        // TODO: Figure out what difference it makes here whether to return beta or standPat
+        if (standPat >= beta) {
+            return beta;
+        }
+
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        if (qsPly >= MAX_QS_PLY) {
+            this.leafNodesEvaluated++;
+            return alpha;
+        }
+        // Delta pruning: not even capturing the most valuable piece type (with a promotion) could raise alpha. In
+        // check, the position may be worse than the stand pat score, so nothing is pruned there.
+        int maxMaterialValue = boardEvaluator.getMaxMaterialValue();
+        if (!isInCheck && standPat + 2 * maxMaterialValue + DELTA_MARGIN <= alpha) {
+            this.leafNodesEvaluated++;
+            return alpha;
+        }
+
+        MovePicker movePicker = context.getMovePicker(ply);
+        movePicker.init(board, ruleProcessor, this.moveScorer, true, MoveEncoding.NONE, MoveEncoding.NONE,
+                MoveEncoding.NONE);
+
+        int move = movePicker.next();
+        if (move == MoveEncoding.NONE) {
+            this.leafNodesEvaluated++;
+            return alpha;
+        }
+
+        for (; move != MoveEncoding.NONE; move = movePicker.next()) {
+            if (!isInCheck && standPat + getMaterialGain(board, move) + DELTA_MARGIN <= alpha) {
+                this.deltaPrunedMoves++;
+                continue;
+            }
+            board.makeMove(move);
+            // Recursive call (with negated window)
+            int score = -quiescenceSearch(board, context, -beta, -alpha, ply + 1, qsPly + 1);
+            board.unmakeMove(move);
+
+            // Alpha-beta pruning logic
+            // TODO: Find out why this has to be >= instead of >, so that the quiescence search works properly
+            if (score >= beta) {
+                // TODO: Figure out what difference it makes here whether to return beta or score
+                return beta;
+            }
+            alpha = Math.max(alpha, score);
+        }
+
+        return alpha;
+    }
+
+    // Reductions grow with the logarithm of both the remaining depth and the move number, but always leave at least
+    // one ply to search
+    private static int[][] calculateLateMoveReductions() {
+        int[][] reductions = new int[AlphaBetaSearcher.MAX_SEARCH_DEPTH + 1][LMR_MAX_MOVE_COUNT + 1];
+        for (int depth = 1; depth < reductions.length; depth++) {
+            for (int moveCount = 1; moveCount < reductions[depth].length; moveCount++) {
+                int reduction = (int) (LMR_BASE + Math.log(depth) * Math.log(moveCount) / LMR_DIVISOR);
+                reductions[depth][moveCount] = Math.max(0, Math.min(reduction, depth - 2));
+            }
+        }
+        return reductions;
+    }
+
+    // The hash move, if any, is searched first
+    private void orderMoves(Board board, MoveList moves, int hashMove) {
+        for (int moveIndex = 0; moveIndex < moves.size(); moveIndex++) {
+            int move = moves.get(moveIndex);
+            moves.setScore(moveIndex, (move == hashMove) ? Integer.MAX_VALUE : scoreMoveForOrdering(board, move));
+        }
+        moves.sortByScoreDescending();
+    }
+
+    // Material won by a tactical move, by the material values of the loaded piece types
+    private int getMaterialGain(Board board, int move) {
+        int gain = 0;
+        if (MoveEncoding.isCapture(move)) {
+            gain += this.boardEvaluator.getMaterialValue(MoveEncoding.getCapturedPieceTypeId(move));
+        }
+        if (MoveEncoding.isPromo(move)) {
+            gain += this.boardEvaluator.getMaterialValue(MoveEncoding.getPromoPieceTypeId(move))
+                    - this.boardEvaluator.getMaterialValue(board.getPieceAt(MoveEncoding.getFrom(move)).type().id());
+        }
+        return gain;
+    }
+
+    private int scoreMoveForOrdering(Board board, int move) {
+        int score = 0;
+
+        if (MoveEncoding.isCapture(move)) {
+            int movingPieceValue = this.boardEvaluator.getMaterialValue(
+                    board.getPieceAt(MoveEncoding.getFrom(move)).type().id());
+            int capturedPieceValue = this.boardEvaluator.getMaterialValue(MoveEncoding.getCapturedPieceTypeId(move));
+            // TODO: Potentially suboptimal: value could become negative with fairy chess pieces (e.g., amazon capturing
+            //  a pawn)
+            score += 10 * capturedPieceValue - movingPieceValue;
+        }
+
+        if (MoveEncoding.isPromo(move)) {
+            int promoPieceValue = this.boardEvaluator.getMaterialValue(MoveEncoding.getPromoPieceTypeId(move));
+            // TODO: Weighted too lightly compared to captures
+            score += promoPieceValue;
+        }
+
+        return score;
+    }
+}
@@ -0,0 +1,166 @@
+package com.chaoschess.backend.core.ai;
+
+import com.chaoschess.backend.core.engine.MoveEncoding;
+
+import java.util.Arrays;
+
+// Fixed-size table of search results by zobrist hash, so that positions reached again by transposition (or by a later
+// search) do not have to be searched from scratch. Every entry is packed into two longs:
+//   data       bits  0-31  best move (MoveEncoding, NONE if unknown)
+//              bits 32-53  score (signed), mate scores relative to the entry's node instead of the root
+//              bits 54-61  remaining search depth
+//              bits 62-63  bound type (EXACT, LOWER_BOUND or UPPER_BOUND, never 0, so that data 0 marks a free entry)
+//   key check  the zobrist hash with its lowest AGE_BITS bits replaced by the age of the search that stored the entry,
+//              XORed with the data
+// The table is shared by all threads searching with it and is accessed without locks. Two threads writing the same
+// entry at once may leave the key check of one next to the data of the other, but then the key check no longer matches
+// and the entry counts as a miss, so a probe never returns data stored for another position.
+public class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    public static final int MAX_DEPTH = 0xFF;
+
+    private static final int SCORE_SHIFT = 32;
+    private static final int SCORE_BITS = 22;
+    private static final int DEPTH_SHIFT = 54;
+    private static final int BOUND_SHIFT = 62;
+    private static final long MOVE_MASK = 0xFFFFFFFFL;
+    private static final long SCORE_MASK = (1L << SCORE_BITS) - 1;
+    // The infinite bounds of the root window are stored as the largest storable scores, which keeps them valid bounds
+    private static final int MAX_STORED_SCORE = (1 << (SCORE_BITS - 1)) - 1;
+
+    // The lowest bits of the hash also select the entry, so with at least 2^AGE_BITS entries the age does not take
+    // anything away from the key check
+    private static final int AGE_BITS = 8;
+    private static final long AGE_MASK = (1L << AGE_BITS) - 1;
+
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+
+    // Two longs per entry: the key check, then the data
+    private final long[] entries;
+    private final int indexMask;
+    private int age;
+
+    // Uses the largest power of two of entries that fits into the given size
+    public TranspositionTable(int sizeInMegabytes) {
+        if (sizeInMegabytes <= 0) {
+            throw new IllegalArgumentException("Transposition table size must be positive, was " + sizeInMegabytes
+                    + " MB");
+        }
+        long maxEntryCount = Math.min((long) sizeInMegabytes * 1024 * 1024 / BYTES_PER_ENTRY, 1 << 29);
+        int entryCount = Integer.highestOneBit((int) maxEntryCount);
+        this.entries = new long[2 * entryCount];
+        this.indexMask = entryCount - 1;
+    }
+
+    public int getEntryCount() {
+        return this.indexMask + 1;
+    }
+
+    // Called before every search, so that entries of earlier searches are replaced first
+    public void startNewSearch() {
+        this.age = (this.age + 1) & (int) AGE_MASK;
+    }
+
+    public void clear() {
+        Arrays.fill(this.entries, 0);
+    }
+
+    // Returns the data of the entry for the given position (to be read with the static getters), or 0 if there is none
+    public long probe(long zobristHash) {
+        int index = getIndex(zobristHash);
+        long keyCheck = this.entries[index];
+        long data = this.entries[index + 1];
+        if (data == 0 || ((keyCheck ^ data) & ~AGE_MASK) != (zobristHash & ~AGE_MASK)) {
+            return 0;
+        }
+        return data;
+    }
+
+    // Replacement scheme: an entry of the same position is only replaced by a shallower result if that result is
+    // exact, and keeps its best move if the new result has none. An entry of another position is only replaced if it
+    // stems from an earlier search or was not searched deeper than the new result.
+    public void store(long zobristHash, int depth, int score, int bound, int bestMove, int ply) {
+        int index = getIndex(zobristHash);
+        long oldKeyCheck = this.entries[index];
+        long oldData = this.entries[index + 1];
+        int clampedDepth = Math.min(depth, MAX_DEPTH);
+
+        if (oldData != 0) {
+            boolean samePosition = ((oldKeyCheck ^ oldData) & ~AGE_MASK) == (zobristHash & ~AGE_MASK);
+            int oldAge = (int) ((oldKeyCheck ^ oldData) & AGE_MASK);
+            int oldDepth = getDepth(oldData);
+            if (samePosition) {
+                if (bestMove == MoveEncoding.NONE) {
+                    bestMove = getMove(oldData);
+                }
+                if (clampedDepth < oldDepth && bound != EXACT) {
+                    return;
+                }
+            } else if (oldAge == this.age && clampedDepth < oldDepth) {
+                return;
+            }
+        }
+
+        long data = (bestMove & MOVE_MASK)
+                | ((toStoredScore(score, ply) & SCORE_MASK) << SCORE_SHIFT)
+                | ((long) clampedDepth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT);
+        this.entries[index] = ((zobristHash & ~AGE_MASK) | this.age) ^ data;
+        this.entries[index + 1] = data;
+    }
+
+    // Share of the first 1000 entries that was stored by the current search, in permill
+    public int getUsagePermill() {
+        int sampleSize = Math.min(1000, getEntryCount());
+        int used = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            long data = this.entries[2 * i + 1];
+            if (data != 0 && ((this.entries[2 * i] ^ data) & AGE_MASK) == this.age) {
+                used++;
+            }
+        }
+        return used * 1000 / sampleSize;
+    }
+
+    public static int getMove(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    public static int getScore(long data, int ply) {
+        // Shifts the score to the top of the long and back to restore its sign
+        int storedScore = (int) ((data << (Long.SIZE - SCORE_SHIFT - SCORE_BITS)) >> (Long.SIZE - SCORE_BITS));
+        if (storedScore >= BoardEvaluator.MATE_SCORE_THRESHOLD) {
+            return storedScore - ply;
+        } else if (storedScore <= -BoardEvaluator.MATE_SCORE_THRESHOLD) {
+            return storedScore + ply;
+        }
+        return storedScore;
+    }
+
+    public static int getDepth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & MAX_DEPTH);
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT);
+    }
+
+    // Mate scores are stored relative to the node, since the same position can be reached at different plies
+    private static long toStoredScore(int score, int ply) {
+        long storedScore = score;
+        if (score >= BoardEvaluator.MATE_SCORE_THRESHOLD) {
+            storedScore += ply;
+        } else if (score <= -BoardEvaluator.MATE_SCORE_THRESHOLD) {
+            storedScore -= ply;
+        }
+        return Math.max(-MAX_STORED_SCORE, Math.min(MAX_STORED_SCORE, storedScore));
+    }
+
+    private int getIndex(long zobristHash) {
+        return 2 * ((int) zobristHash & this.indexMask);
+    }
+}
@@ -0,0 +1,309 @@
+package com.chaoschess.backend.core.engine;
+
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.MoveTables;
+import com.chaoschess.backend.core.engine.board.PinsAndChecks;
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.MovementModifier;
+import com.chaoschess.backend.core.model.MovementRule;
+import com.chaoschess.backend.core.model.Piece;
+import com.chaoschess.backend.core.model.PieceRole;
+import com.chaoschess.backend.core.model.Square;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Move generators specialized per piece (piece type and color) for one board size, used in MoveGenerationMode.COMPILED.
+// Every movement rule is compiled into a generator that only contains the checks its modifiers actually require:
+// consecutive rules without modifiers are fused into one leaper or slider generator that loops over fixed mailbox
+// offsets, castling rules become castling generators, and only rules with modifiers (or rules of PAWN_LIKE pieces,
+// which can promote) fall back to a generator that checks them like the interpreter does. The generators keep the order
+// of the movement rules, so both modes generate the same moves in the same order.
+//
+// Since the mailbox offsets depend on the board size and the loaded piece types just like the MoveTables do, the
+// generators are compiled once per MoveTables instance and shared by all boards using it.
+final class CompiledMoveGenerators {
+
+    private static final Map<MoveTables, CompiledMoveGenerators> CACHE = new ConcurrentHashMap<>();
+
+    // Indexed by piece index (2 * piece type ID + color ordinal)
+    private final RayGenerator[][] rayGenerators;
+
+    private CompiledMoveGenerators(Board board) {
+        int pieceCount = board.getMoveTables().getPieceCount();
+        this.rayGenerators = new RayGenerator[pieceCount][];
+        for (int pieceIndex = 0; pieceIndex < pieceCount; pieceIndex++) {
+            Piece piece = board.getPiece(pieceIndex / 2, Color.values()[pieceIndex % 2]);
+            this.rayGenerators[pieceIndex] = compile(board, piece);
+        }
+    }
+
+    static CompiledMoveGenerators get(Board board) {
+        return CACHE.computeIfAbsent(board.getMoveTables(), moveTables -> new CompiledMoveGenerators(board));
+    }
+
+    // Counterpart of RuleProcessor.addMovesFromSquare(), see there
+    void addMovesFromSquare(RuleProcessor ruleProcessor, Board board, int fromSquareIndex, MoveList moves,
+                            PinsAndChecks pinsAndChecks, MoveFilter moveFilter) {
+        Square from = board.getSquare(fromSquareIndex);
+        int fromMailboxIndex = board.getMailboxIndex(from);
+        Piece movingPiece = board.getPieceAtMailboxIndex(fromMailboxIndex);
+        if (movingPiece == null) {
+            return;
+        }
+        boolean movingPieceWasUnmoved = board.isUnmovedAtMailboxIndex(fromMailboxIndex);
+
+        boolean legalOnly = pinsAndChecks != null;
+        boolean isKing = legalOnly && from.equals(board.getKingLocs().get(movingPiece.color()));
+        long[] allowedTargets = (legalOnly && !isKing) ? pinsAndChecks.getAllowedTargets(fromSquareIndex) : null;
+
+        int pieceIndex = 2 * movingPiece.type().id() + movingPiece.color().ordinal();
+        for (RayGenerator rayGenerator : this.rayGenerators[pieceIndex]) {
+            rayGenerator.addMoves(ruleProcessor, board, moves, fromSquareIndex, fromMailboxIndex,
+                    movingPieceWasUnmoved, legalOnly, isKing, allowedTargets, moveFilter);
+        }
+    }
+
+    private static RayGenerator[] compile(Board board, Piece piece) {
+        int verticalSign = piece.color().equals(Color.WHITE) ? 1 : -1;
+        boolean canPromote = piece.type().role().equals(PieceRole.PAWN_LIKE);
+
+        List<RayGenerator> rayGenerators = new ArrayList<>();
+        List<MovementRule> plainRules = new ArrayList<>();
+        // Same iteration order as Board.movementRules and therefore as the MoveTables
+        for (MovementRule movementRule : piece.type().movementRules()) {
+            if (!canPromote && movementRule.modifiers().isEmpty() && movementRule.minSteps() <= 1) {
+                plainRules.add(movementRule);
+                continue;
+            }
+            addPlainRayGenerator(board, piece, plainRules, verticalSign, rayGenerators);
+            if (movementRule.hasModifier(MovementModifier.CASTLING)) {
+                rayGenerators.add(new CastlingGenerator(piece.color(),
+                        movementRule.hasModifier(MovementModifier.ONLY_UNMOVED)));
+            } else {
+                rayGenerators.add(new RuleGenerator(board, piece, movementRule, verticalSign));
+            }
+        }
+        addPlainRayGenerator(board, piece, plainRules, verticalSign, rayGenerators);
+        return rayGenerators.toArray(new RayGenerator[0]);
+    }
+
+    // Fuses the collected rules without modifiers into one generator and clears them
+    private static void addPlainRayGenerator(Board board, Piece piece, List<MovementRule> plainRules, int verticalSign,
+                                             List<RayGenerator> rayGenerators) {
+        if (plainRules.isEmpty()) {
+            return;
+        }
+        int[] offsets = new int[plainRules.size()];
+        int[] maxSteps = new int[plainRules.size()];
+        boolean isLeaper = true;
+        for (int i = 0; i < plainRules.size(); i++) {
+            MovementRule movementRule = plainRules.get(i);
+            offsets[i] = board.getMailboxOffset(movementRule.dx(), movementRule.dy() * verticalSign);
+            maxSteps[i] = movementRule.maxSteps();
+            isLeaper &= movementRule.maxSteps() == 1;
+        }
+        rayGenerators.add(isLeaper ? new LeaperGenerator(piece.color(), offsets)
+                : new SliderGenerator(piece.color(), offsets, maxSteps));
+        plainRules.clear();
+    }
+
+    private abstract static class RayGenerator {
+
+        abstract void addMoves(RuleProcessor ruleProcessor, Board board, MoveList moves, int fromSquareIndex,
+                               int fromMailboxIndex, boolean movingPieceWasUnmoved, boolean legalOnly, boolean isKing,
+                               long[] allowedTargets, MoveFilter moveFilter);
+    }
+
+    // Single steps without modifiers, e.g. king and knight moves
+    private static final class LeaperGenerator extends RayGenerator {
+
+        private final Color color;
+        private final int[] offsets;
+
+        private LeaperGenerator(Color color, int[] offsets) {
+            this.color = color;
+            this.offsets = offsets;
+        }
+
+        @Override
+        void addMoves(RuleProcessor ruleProcessor, Board board, MoveList moves, int fromSquareIndex,
+                      int fromMailboxIndex, boolean movingPieceWasUnmoved, boolean legalOnly, boolean isKing,
+                      long[] allowedTargets, MoveFilter moveFilter) {
+            for (int offset : this.offsets) {
+                int toMailboxIndex = fromMailboxIndex + offset;
+                Piece toPiece = board.getPieceAtMailboxIndex(toMailboxIndex);
+                int capturedPieceTypeId = -1;
+                if (toPiece == null) {
+                    if (!moveFilter.includesQuiet()) {
+                        continue;
+                    }
+                } else {
+                    if (toPiece == Board.OFF_BOARD || toPiece.color().equals(this.color)
+                            || !moveFilter.includesTactical()) {
+                        continue;
+                    }
+                    capturedPieceTypeId = toPiece.type().id();
+                }
+                int toSquareIndex = board.getSquareIndexAtMailboxIndex(toMailboxIndex);
+                if (legalOnly && !ruleProcessor.isTargetLegal(board, toSquareIndex, fromSquareIndex, isKing,
+                        allowedTargets, this.color)) {
+                    continue;
+                }
+                moves.add(MoveEncoding.encode(fromSquareIndex, toSquareIndex, -1, capturedPieceTypeId, false, false,
+                        0));
+            }
+        }
+    }
+
+    // Rays without modifiers, e.g. rook, bishop and nightrider moves
+    private static final class SliderGenerator extends RayGenerator {
+
+        private final Color color;
+        private final int[] offsets;
+        private final int[] maxSteps;
+
+        private SliderGenerator(Color color, int[] offsets, int[] maxSteps) {
+            this.color = color;
+            this.offsets = offsets;
+            this.maxSteps = maxSteps;
+        }
+
+        @Override
+        void addMoves(RuleProcessor ruleProcessor, Board board, MoveList moves, int fromSquareIndex,
+                      int fromMailboxIndex, boolean movingPieceWasUnmoved, boolean legalOnly, boolean isKing,
+                      long[] allowedTargets, MoveFilter moveFilter) {
+            for (int direction = 0; direction < this.offsets.length; direction++) {
+                int offset = this.offsets[direction];
+                int toMailboxIndex = fromMailboxIndex;
+                for (int steps = 0; steps < this.maxSteps[direction]; steps++) {
+                    toMailboxIndex += offset;
+                    Piece toPiece = board.getPieceAtMailboxIndex(toMailboxIndex);
+                    if (toPiece == null) {
+                        if (!moveFilter.includesQuiet()) {
+                            continue;
+                        }
+                        int toSquareIndex = board.getSquareIndexAtMailboxIndex(toMailboxIndex);
+                        if (!legalOnly || ruleProcessor.isTargetLegal(board, toSquareIndex, fromSquareIndex, isKing,
+                                allowedTargets, this.color)) {
+                            moves.add(MoveEncoding.encode(fromSquareIndex, toSquareIndex, -1, -1, false, false, 0));
+                        }
+                        continue;
+                    }
+                    if (toPiece != Board.OFF_BOARD && !toPiece.color().equals(this.color)
+                            && moveFilter.includesTactical()) {
+                        int toSquareIndex = board.getSquareIndexAtMailboxIndex(toMailboxIndex);
+                        if (!legalOnly || ruleProcessor.isTargetLegal(board, toSquareIndex, fromSquareIndex, isKing,
+                                allowedTargets, this.color)) {
+                            moves.add(MoveEncoding.encode(fromSquareIndex, toSquareIndex, -1, toPiece.type().id(),
+                                    false, false, 0));
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private static final class CastlingGenerator extends RayGenerator {
+
+        private final Color color;
+        private final boolean onlyUnmoved;
+
+        private CastlingGenerator(Color color, boolean onlyUnmoved) {
+            this.color = color;
+            this.onlyUnmoved = onlyUnmoved;
+        }
+
+        @Override
+        void addMoves(RuleProcessor ruleProcessor, Board board, MoveList moves, int fromSquareIndex,
+                      int fromMailboxIndex, boolean movingPieceWasUnmoved, boolean legalOnly, boolean isKing,
+                      long[] allowedTargets, MoveFilter moveFilter) {
+            if ((this.onlyUnmoved && !movingPieceWasUnmoved) || !moveFilter.includesQuiet()) {
+                return;
+            }
+            ruleProcessor.addCastlingMoves(board, moves, fromSquareIndex, this.color, legalOnly);
+        }
+    }
+
+    // Any other movement rule, with its modifiers checked the same way as in RuleProcessor.addMovesFromSquare()
+    private static final class RuleGenerator extends RayGenerator {
+
+        private final Piece piece;
+        private final int offset;
+        private final int minSteps;
+        private final int maxSteps;
+        private final boolean onlyCaptures;
+        private final boolean onlyNonCaptures;
+        private final boolean onlyUnmoved;
+        private final boolean enablesEnPassant;
+        private final boolean capturesEnPassant;
+
+        private RuleGenerator(Board board, Piece piece, MovementRule movementRule, int verticalSign) {
+            this.piece = piece;
+            this.offset = board.getMailboxOffset(movementRule.dx(), movementRule.dy() * verticalSign);
+            this.minSteps = movementRule.minSteps();
+            this.maxSteps = movementRule.maxSteps();
+            this.onlyCaptures = movementRule.hasModifier(MovementModifier.ONLY_CAPTURES);
+            this.onlyNonCaptures = movementRule.hasModifier(MovementModifier.ONLY_NON_CAPTURES);
+            this.onlyUnmoved = movementRule.hasModifier(MovementModifier.ONLY_UNMOVED);
+            this.enablesEnPassant = movementRule.hasModifier(MovementModifier.ENABLES_EN_PASSANT);
+            this.capturesEnPassant = movementRule.hasModifier(MovementModifier.CAPTURES_EN_PASSANT);
+        }
+
+        @Override
+        void addMoves(RuleProcessor ruleProcessor, Board board, MoveList moves, int fromSquareIndex,
+                      int fromMailboxIndex, boolean movingPieceWasUnmoved, boolean legalOnly, boolean isKing,
+                      long[] allowedTargets, MoveFilter moveFilter) {
+            if (this.onlyUnmoved && !movingPieceWasUnmoved) {
+                return;
+            }
+            Color movingColor = this.piece.color();
+            int toMailboxIndex = fromMailboxIndex;
+            for (int steps = 1; steps <= this.maxSteps; steps++) {
+                toMailboxIndex += this.offset;
+                Piece toPiece = board.getPieceAtMailboxIndex(toMailboxIndex);
+
+                if (toPiece == null) {
+                    if (steps < this.minSteps) {
+                        continue;
+                    }
+                    int toSquareIndex = board.getSquareIndexAtMailboxIndex(toMailboxIndex);
+                    if (!this.onlyCaptures) {
+                        if (!ruleProcessor.acceptsNonCapture(board, moveFilter, this.piece, toSquareIndex)
+                                || (legalOnly && !ruleProcessor.isTargetLegal(board, toSquareIndex, fromSquareIndex,
+                                isKing, allowedTargets, movingColor))) {
+                            continue;
+                        }
+                        ruleProcessor.addMoves(board, moves, this.piece, fromSquareIndex, toSquareIndex, -1, false,
+                                this.enablesEnPassant ? steps : 0, false, moveFilter);
+
+                    } else if (this.capturesEnPassant && isEnPassantMoveTarget(board, toSquareIndex)) {
+                        ruleProcessor.addEnPassantMoves(board, moves, this.piece, fromSquareIndex, toSquareIndex,
+                                legalOnly, moveFilter);
+                    }
+
+                } else if (toPiece == Board.OFF_BOARD || toPiece.color().equals(movingColor)) {
+                    break;
+
+                } else {
+                    int toSquareIndex = board.getSquareIndexAtMailboxIndex(toMailboxIndex);
+                    if ((steps >= this.minSteps) && !this.onlyNonCaptures && moveFilter.includesTactical()
+                            && (!legalOnly || ruleProcessor.isTargetLegal(board, toSquareIndex, fromSquareIndex, isKing,
+                            allowedTargets, movingColor))) {
+                        ruleProcessor.addMoves(board, moves, this.piece, fromSquareIndex, toSquareIndex,
+                                toPiece.type().id(), false, 0, false, moveFilter);
+                    }
+                    break;
+                }
+            }
+        }
+
+        private static boolean isEnPassantMoveTarget(Board board, int squareIndex) {
+            Square enPassantMoveTarget = board.getEnPassantMoveTarget();
+            return enPassantMoveTarget != null && board.getSquareIndex(enPassantMoveTarget) == squareIndex;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.chaoschess.backend.core.engine;
 
-import com.chaoschess.backend.core.model.MovementRule;
 import com.chaoschess.backend.core.model.Piece;
 import com.chaoschess.backend.core.model.PieceType;
 import com.chaoschess.backend.core.model.Square;
@@ -21,7 +20,6 @@ public final class Move {
     private Square newEnPassantMoveTarget;
     private Square newEnPassantCaptureTarget;
     private PieceType promoPieceType;
-    private MovementRule movementRule;
 
     public Move() {
         reset();
@@ -41,13 +39,12 @@ public final class Move {
         this.newEnPassantMoveTarget = null;
         this.newEnPassantCaptureTarget = null;
         this.promoPieceType = null;
-        this.movementRule = null;
     }
 
     public void setMove(Square from, Square to, Piece movingPiece, PieceType movingPieceType,
                         boolean movingPieceWasUnmoved, Piece capturedPiece, Square capturedPieceLoc,
                         boolean capturedPieceWasUnmoved, boolean isCastling, Square newEnPassantMoveTarget,
-                        Square newEnPassantCaptureTarget, PieceType promoPieceType, MovementRule movementRule) {
+                        Square newEnPassantCaptureTarget, PieceType promoPieceType) {
         this.from = from;
         this.to = to;
         this.movingPiece = movingPiece;
@@ -60,7 +57,6 @@ public final class Move {
         this.newEnPassantMoveTarget = newEnPassantMoveTarget;
         this.newEnPassantCaptureTarget = newEnPassantCaptureTarget;
         this.promoPieceType = promoPieceType;
-        this.movementRule = movementRule;
     }
 
     public Square getFrom() { return this.from; }
@@ -75,7 +71,6 @@ public final class Move {
     public Square getNewEnPassantMoveTarget() { return this.newEnPassantMoveTarget; }
     public Square getNewEnPassantCaptureTarget() { return this.newEnPassantCaptureTarget; }
     public PieceType getPromoPieceType() { return this.promoPieceType; }
-    public MovementRule getMovementRule() { return this.movementRule; }
 
     public boolean isCapture() {
         return this.capturedPiece != null;
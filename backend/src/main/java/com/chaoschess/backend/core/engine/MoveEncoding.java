@@ -0,0 +1,167 @@
+package com.chaoschess.backend.core.engine;
+
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.Piece;
+import com.chaoschess.backend.core.model.PieceType;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.model.Square;
+
+// Packs a move into a single int, so that move lists can be plain int arrays and making a move does not need a Move
+// object. The layout, starting at the least significant bit, is:
+//   bits  0-7   square index of the moving piece
+//   bits  8-15  target square index (for castling the square of the castling partner, like Move.getTo())
+//   bits 16-20  promotion piece type ID + 1, or 0 if the move is no promotion
+//   bits 21-25  captured piece type ID + 1, or 0 if the move is no capture
+//   bit  26     castling
+//   bit  27     en passant capture, i.e. the captured piece stands on the board's en passant capture target
+//   bits 28-31  number of steps of a move that enables en passant, or 0 if it does not
+// Everything else (the moving piece, the unmoved flags and the new en passant targets) follows from the board the move
+// is made on. 0 is never a valid move, since the target square of a move always differs from its origin square.
+public final class MoveEncoding {
+
+    public static final int NONE = 0;
+
+    public static final int MAX_PIECE_TYPES = 31;
+    private static final int MAX_SQUARES = 256;
+
+    private static final int SQUARE_MASK = 0xFF;
+    private static final int PIECE_TYPE_MASK = 0x1F;
+    private static final int EN_PASSANT_STEPS_MASK = 0xF;
+
+    private static final int TO_SHIFT = 8;
+    private static final int PROMO_SHIFT = 16;
+    private static final int CAPTURED_SHIFT = 21;
+    private static final int CASTLING_FLAG = 1 << 26;
+    private static final int EN_PASSANT_CAPTURE_FLAG = 1 << 27;
+    private static final int EN_PASSANT_STEPS_SHIFT = 28;
+
+    private MoveEncoding() {}
+
+    // Piece type IDs of -1 mean "none"
+    public static int encode(int from, int to, int promoPieceTypeId, int capturedPieceTypeId, boolean isCastling,
+                             boolean isEnPassantCapture, int enPassantSteps) {
+        return from
+                | (to << TO_SHIFT)
+                | ((promoPieceTypeId + 1) << PROMO_SHIFT)
+                | ((capturedPieceTypeId + 1) << CAPTURED_SHIFT)
+                | (isCastling ? CASTLING_FLAG : 0)
+                | (isEnPassantCapture ? EN_PASSANT_CAPTURE_FLAG : 0)
+                | (enPassantSteps << EN_PASSANT_STEPS_SHIFT);
+    }
+
+    public static int getFrom(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int getTo(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    // Returns -1 if the move is no promotion
+    public static int getPromoPieceTypeId(int move) {
+        return ((move >>> PROMO_SHIFT) & PIECE_TYPE_MASK) - 1;
+    }
+
+    // Returns -1 if the move is no capture
+    public static int getCapturedPieceTypeId(int move) {
+        return ((move >>> CAPTURED_SHIFT) & PIECE_TYPE_MASK) - 1;
+    }
+
+    public static boolean isPromo(int move) {
+        return ((move >>> PROMO_SHIFT) & PIECE_TYPE_MASK) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return ((move >>> CAPTURED_SHIFT) & PIECE_TYPE_MASK) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING_FLAG) != 0;
+    }
+
+    public static boolean isEnPassantCapture(int move) {
+        return (move & EN_PASSANT_CAPTURE_FLAG) != 0;
+    }
+
+    public static int getEnPassantSteps(int move) {
+        return (move >>> EN_PASSANT_STEPS_SHIFT) & EN_PASSANT_STEPS_MASK;
+    }
+
+    // Square index of the en passant move target the move leaves behind (the square after the first step), or -1 if
+    // the move does not enable en passant. Square indices are linear in x and y, so the first step of a straight move
+    // is simply the total distance divided by the number of steps.
+    public static int getNewEnPassantMoveTarget(int move) {
+        int steps = getEnPassantSteps(move);
+        if (steps == 0) {
+            return -1;
+        }
+        int from = getFrom(move);
+        return from + (getTo(move) - from) / steps;
+    }
+
+    // Square index of the en passant capture target the move leaves behind (the target square of a move of at least two
+    // steps), or -1 if there is none
+    public static int getNewEnPassantCaptureTarget(int move) {
+        return (getEnPassantSteps(move) >= 2) ? getTo(move) : -1;
+    }
+
+    public static void checkSupported(int width, int height, PieceTypes pieceTypes) {
+        if (width * height > MAX_SQUARES) {
+            throw new IllegalArgumentException("Boards with more than " + MAX_SQUARES + " squares are not supported");
+        }
+        if (pieceTypes.pieceTypesMap().size() > MAX_PIECE_TYPES) {
+            throw new IllegalArgumentException("More than " + MAX_PIECE_TYPES + " piece types are not supported");
+        }
+    }
+
+    // --- ADAPTER FOR Move OBJECTS ---
+
+    // Encodes a move that was created for the given board (the board's current position does not matter)
+    public static int fromMove(Board board, Move move) {
+        int from = board.getSquareIndex(move.getFrom());
+        int to = board.getSquareIndex(move.getTo());
+        int promoPieceTypeId = move.isPromo() ? move.getPromoPieceType().id() : -1;
+        int capturedPieceTypeId = move.isCapture() ? move.getCapturedPiece().type().id() : -1;
+        boolean isEnPassantCapture = move.isCapture() && !move.getCapturedPieceLoc().equals(move.getTo());
+
+        int enPassantSteps = 0;
+        if (move.getNewEnPassantMoveTarget() != null) {
+            if (move.getNewEnPassantCaptureTarget() == null) {
+                enPassantSteps = 1;
+            } else {
+                enPassantSteps = (to - from) / (board.getSquareIndex(move.getNewEnPassantMoveTarget()) - from);
+            }
+        }
+        return encode(from, to, promoPieceTypeId, capturedPieceTypeId, move.getIsCastling(), isEnPassantCapture,
+                enPassantSteps);
+    }
+
+    // Creates the Move object for an encoded move, which has to be a move of the given board's current position
+    public static Move toMove(Board board, int move, MovePool movePool) {
+        Square from = board.getSquare(getFrom(move));
+        Square to = board.getSquare(getTo(move));
+        Piece movingPiece = board.getPieceAt(from);
+        Color movingColor = movingPiece.color();
+
+        Piece capturedPiece = null;
+        Square capturedPieceLoc = null;
+        boolean capturedPieceWasUnmoved = false;
+        if (isCapture(move)) {
+            capturedPieceLoc = isEnPassantCapture(move) ? board.getEnPassantCaptureTarget() : to;
+            capturedPiece = board.getPieceAt(capturedPieceLoc);
+            capturedPieceWasUnmoved = board.isUnmovedAt(capturedPieceLoc);
+        }
+
+        int newEnPassantMoveTarget = getNewEnPassantMoveTarget(move);
+        int newEnPassantCaptureTarget = getNewEnPassantCaptureTarget(move);
+        PieceType promoPieceType = isPromo(move)
+                ? board.getPiece(getPromoPieceTypeId(move), movingColor).type() : null;
+
+        return movePool.createMove(from, to, movingPiece, movingPiece.type(), board.isUnmovedAt(from), capturedPiece,
+                capturedPieceLoc, capturedPieceWasUnmoved, isCastling(move),
+                (newEnPassantMoveTarget >= 0) ? board.getSquare(newEnPassantMoveTarget) : null,
+                (newEnPassantCaptureTarget >= 0) ? board.getSquare(newEnPassantCaptureTarget) : null,
+                promoPieceType);
+    }
+}
@@ -0,0 +1,33 @@
+package com.chaoschess.backend.core.engine;
+
+// Which legal moves a move generation call produces. Tactical moves are captures (including en passant captures) and
+// promotions, quiet moves are all others (including castling).
+public enum MoveFilter {
+    ALL     (true, true),
+    TACTICAL(true, false),
+    QUIET   (false, true);
+
+    private final boolean includesTactical;
+    private final boolean includesQuiet;
+
+    MoveFilter(boolean includesTactical, boolean includesQuiet) {
+        this.includesTactical = includesTactical;
+        this.includesQuiet = includesQuiet;
+    }
+
+    public boolean includesTactical() {
+        return this.includesTactical;
+    }
+
+    public boolean includesQuiet() {
+        return this.includesQuiet;
+    }
+
+    public boolean accepts(int move) {
+        return isTactical(move) ? this.includesTactical : this.includesQuiet;
+    }
+
+    public static boolean isTactical(int move) {
+        return MoveEncoding.isCapture(move) || MoveEncoding.isPromo(move);
+    }
+}
@@ -0,0 +1,9 @@
+package com.chaoschess.backend.core.engine;
+
+// How RuleProcessor turns the movement rules of a piece into moves
+public enum MoveGenerationMode {
+    // Walks the rays of the board's MoveTables and checks the modifiers of every ray while generating
+    INTERPRETED,
+    // Runs move generators specialized per piece, see CompiledMoveGenerators
+    COMPILED
+}
@@ -0,0 +1,91 @@
+package com.chaoschess.backend.core.engine;
+
+import java.util.Arrays;
+
+// Growable list of encoded moves (see MoveEncoding) with an ordering score per move. Instances are meant to be reused,
+// e.g. one per search ply, so that generating and ordering moves does not allocate once the arrays are large enough.
+public final class MoveList {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int[] moves;
+    private int[] scores;
+    private int size;
+
+    public MoveList() {
+        this.moves = new int[INITIAL_CAPACITY];
+        this.scores = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int get(int index) {
+        return this.moves[index];
+    }
+
+    public int getScore(int index) {
+        return this.scores[index];
+    }
+
+    public void setScore(int index, int score) {
+        this.scores[index] = score;
+    }
+
+    public void add(int move) {
+        if (this.size == this.moves.length) {
+            this.moves = Arrays.copyOf(this.moves, 2 * this.size);
+            this.scores = Arrays.copyOf(this.scores, 2 * this.size);
+        }
+        this.moves[this.size] = move;
+        this.scores[this.size] = 0;
+        this.size++;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    // Moves the first of the highest-scored moves in [index, size) to the given index and shifts the moves before it
+    // back by one. Selecting index after index yields the same order as sortByScoreDescending(), but only does the work
+    // for the moves that are actually selected, which pays off when a search usually stops after the first few.
+    public void selectBest(int index) {
+        int bestIndex = index;
+        for (int i = index + 1; i < this.size; i++) {
+            if (this.scores[i] > this.scores[bestIndex]) {
+                bestIndex = i;
+            }
+        }
+        int move = this.moves[bestIndex];
+        int score = this.scores[bestIndex];
+        System.arraycopy(this.moves, index, this.moves, index + 1, bestIndex - index);
+        System.arraycopy(this.scores, index, this.scores, index + 1, bestIndex - index);
+        this.moves[index] = move;
+        this.scores[index] = score;
+    }
+
+    // Stable insertion sort by descending score. Most moves share the same (zero) score, so only the few scored moves
+    // actually travel, which makes this cheaper than a general-purpose sort on the short lists of a single position.
+    public void sortByScoreDescending() {
+        int[] moves = this.moves;
+        int[] scores = this.scores;
+        for (int i = 1; i < this.size; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+}
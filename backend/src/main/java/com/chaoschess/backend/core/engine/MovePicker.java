@@ -0,0 +1,196 @@
+package com.chaoschess.backend.core.engine;
+
+import com.chaoschess.backend.core.engine.board.Board;
+
+// Hands out the legal moves of a position one at a time and in stages, so that a search node that cuts off early never
+// generates the moves it does not get to:
+//  1. the hash move (e.g. the best move of an earlier search of the position),
+//  2. the tactical moves (captures and promotions) with a non-negative ordering score, best first,
+//  3. the killer moves (quiet moves that caused cutoffs in sibling positions) and the counter move (a quiet move that
+//     refuted the opponent's last move elsewhere in the tree),
+//  4. the remaining quiet moves, best first by an optional quiet move score (e.g. the history heuristic), otherwise in
+//     generation order,
+//  5. the tactical moves with a negative ordering score (e.g. a queen capturing a defended pawn), best first.
+// Tactical and quiet moves are each generated only when their stage is reached, and the tactical moves are selected
+// one by one instead of being sorted as a whole, like scored quiet moves. The hash, killer and counter moves come from
+// elsewhere and are only checked for legality when they are picked. Every move is returned once.
+//
+// A picker is reused from node to node, see SearchContext.getMovePicker(), and must only be used by one thread.
+public final class MovePicker {
+
+    // Ordering score of a tactical (or quiet) move, higher scores are picked first
+    @FunctionalInterface
+    public interface MoveScorer {
+        int scoreMove(Board board, int move);
+    }
+
+    private enum Stage {
+        HASH_MOVE,
+        GENERATE_TACTICAL,
+        GOOD_TACTICAL,
+        KILLER_MOVES,
+        GENERATE_QUIET,
+        QUIET,
+        BAD_TACTICAL,
+        DONE
+    }
+
+    private final MoveList tacticalMoves;
+    private final MoveList quietMoves;
+    private final MoveList scratchMoves;
+    // The two killer moves and the counter move
+    private final int[] killerMoves;
+
+    private Board board;
+    private RuleProcessor ruleProcessor;
+    private MoveScorer moveScorer;
+    private MoveScorer quietMoveScorer;
+    private boolean tacticalOnly;
+    private int hashMove;
+    private Stage stage;
+    private int tacticalIndex;
+    private int quietIndex;
+    private int killerIndex;
+    private int pickedMoveCount;
+
+    public MovePicker() {
+        this.tacticalMoves = new MoveList();
+        this.quietMoves = new MoveList();
+        this.scratchMoves = new MoveList();
+        this.killerMoves = new int[3];
+    }
+
+    // Prepares the picker for the given position, with the quiet moves in generation order and without counter move
+    public void init(Board board, RuleProcessor ruleProcessor, MoveScorer moveScorer, boolean tacticalOnly,
+                     int hashMove, int firstKillerMove, int secondKillerMove) {
+        init(board, ruleProcessor, moveScorer, null, tacticalOnly, hashMove, firstKillerMove, secondKillerMove,
+                MoveEncoding.NONE);
+    }
+
+    // Prepares the picker for the given position. If tacticalOnly is set (e.g. in quiescence search), only the hash
+    // move and the tactical moves are picked, and a quiet hash move is ignored. The quiet move scorer may be null.
+    // MoveEncoding.NONE can be passed for any of the given moves.
+    public void init(Board board, RuleProcessor ruleProcessor, MoveScorer moveScorer, MoveScorer quietMoveScorer,
+                     boolean tacticalOnly, int hashMove, int firstKillerMove, int secondKillerMove, int counterMove) {
+        this.board = board;
+        this.ruleProcessor = ruleProcessor;
+        this.moveScorer = moveScorer;
+        this.quietMoveScorer = quietMoveScorer;
+        this.tacticalOnly = tacticalOnly;
+        this.hashMove = hashMove;
+        this.killerMoves[0] = firstKillerMove;
+        this.killerMoves[1] = (secondKillerMove != firstKillerMove) ? secondKillerMove : MoveEncoding.NONE;
+        this.killerMoves[2] = (counterMove != firstKillerMove && counterMove != secondKillerMove)
+                ? counterMove : MoveEncoding.NONE;
+        this.stage = Stage.HASH_MOVE;
+        this.tacticalMoves.clear();
+        this.quietMoves.clear();
+        this.tacticalIndex = 0;
+        this.quietIndex = 0;
+        this.killerIndex = 0;
+        this.pickedMoveCount = 0;
+    }
+
+    // Number of moves returned by next() since init(). If next() has returned MoveEncoding.NONE and this is zero, the
+    // position has no legal moves (unless the picker is tacticalOnly).
+    public int getPickedMoveCount() {
+        return this.pickedMoveCount;
+    }
+
+    // Returns the next legal move, or MoveEncoding.NONE once all moves have been picked
+    public int next() {
+        while (true) {
+            switch (this.stage) {
+                case HASH_MOVE -> {
+                    this.stage = Stage.GENERATE_TACTICAL;
+                    if (this.hashMove != MoveEncoding.NONE) {
+                        if ((!this.tacticalOnly || MoveFilter.isTactical(this.hashMove))
+                                && this.ruleProcessor.isLegalMove(this.board, this.hashMove, this.scratchMoves)) {
+                            return pick(this.hashMove);
+                        }
+                        // Not picked, so the later stages must not skip it either
+                        this.hashMove = MoveEncoding.NONE;
+                    }
+                }
+                case GENERATE_TACTICAL -> {
+                    this.ruleProcessor.calculateLegalMoves(this.board, this.tacticalMoves, MoveFilter.TACTICAL);
+                    for (int i = 0; i < this.tacticalMoves.size(); i++) {
+                        int score = this.moveScorer.scoreMove(this.board, this.tacticalMoves.get(i));
+                        this.tacticalMoves.setScore(i, score);
+                    }
+                    this.stage = Stage.GOOD_TACTICAL;
+                }
+                case GOOD_TACTICAL -> {
+                    if (this.tacticalIndex < this.tacticalMoves.size()) {
+                        this.tacticalMoves.selectBest(this.tacticalIndex);
+                        if (this.tacticalOnly || this.tacticalMoves.getScore(this.tacticalIndex) >= 0) {
+                            int move = this.tacticalMoves.get(this.tacticalIndex++);
+                            if (move != this.hashMove) {
+                                return pick(move);
+                            }
+                            continue;
+                        }
+                    }
+                    this.stage = this.tacticalOnly ? Stage.DONE : Stage.KILLER_MOVES;
+                }
+                case KILLER_MOVES -> {
+                    if (this.killerIndex < this.killerMoves.length) {
+                        int killerMove = this.killerMoves[this.killerIndex++];
+                        if (killerMove == MoveEncoding.NONE) {
+                            continue;
+                        }
+                        if (killerMove != this.hashMove && !MoveFilter.isTactical(killerMove)
+                                && this.ruleProcessor.isLegalMove(this.board, killerMove, this.scratchMoves)) {
+                            return pick(killerMove);
+                        }
+                        // Not picked (or already picked as the hash move), so the quiet stage must not skip it
+                        this.killerMoves[this.killerIndex - 1] = MoveEncoding.NONE;
+                        continue;
+                    }
+                    this.stage = Stage.GENERATE_QUIET;
+                }
+                case GENERATE_QUIET -> {
+                    this.ruleProcessor.calculateLegalMoves(this.board, this.quietMoves, MoveFilter.QUIET);
+                    if (this.quietMoveScorer != null) {
+                        for (int i = 0; i < this.quietMoves.size(); i++) {
+                            int score = this.quietMoveScorer.scoreMove(this.board, this.quietMoves.get(i));
+                            this.quietMoves.setScore(i, score);
+                        }
+                    }
+                    this.stage = Stage.QUIET;
+                }
+                case QUIET -> {
+                    while (this.quietIndex < this.quietMoves.size()) {
+                        if (this.quietMoveScorer != null) {
+                            this.quietMoves.selectBest(this.quietIndex);
+                        }
+                        int move = this.quietMoves.get(this.quietIndex++);
+                        if (move != this.hashMove && move != this.killerMoves[0] && move != this.killerMoves[1]
+                                && move != this.killerMoves[2]) {
+                            return pick(move);
+                        }
+                    }
+                    this.stage = Stage.BAD_TACTICAL;
+                }
+                case BAD_TACTICAL -> {
+                    while (this.tacticalIndex < this.tacticalMoves.size()) {
+                        this.tacticalMoves.selectBest(this.tacticalIndex);
+                        int move = this.tacticalMoves.get(this.tacticalIndex++);
+                        if (move != this.hashMove) {
+                            return pick(move);
+                        }
+                    }
+                    this.stage = Stage.DONE;
+                }
+                case DONE -> {
+                    return MoveEncoding.NONE;
+                }
+            }
+        }
+    }
+
+    private int pick(int move) {
+        this.pickedMoveCount++;
+        return move;
+    }
+}
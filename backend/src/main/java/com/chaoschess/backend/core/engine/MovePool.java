@@ -1,41 +1,85 @@
 package com.chaoschess.backend.core.engine;
 
-import com.chaoschess.backend.core.model.MovementRule;
 import com.chaoschess.backend.core.model.Piece;
 import com.chaoschess.backend.core.model.PieceType;
 import com.chaoschess.backend.core.model.Square;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+// Pool of reusable Move objects. Every thread borrows from and releases to its own free list, so the pool needs no
+// locking and threads never contend on it. A move released on another thread than the one that borrowed it simply
+// joins the free list of the releasing thread. This happens in the GameManager, whose moves are borrowed on one
+// thread (e.g. the AI search thread) and released on another (e.g. the thread handling the next request), so the
+// per-thread numbers of moves in use are only estimates: a thread that mostly borrows sees its number grow, a thread
+// that mostly releases sees it shrink. Both are clamped, so that the adaptive sizing of the free lists stays bounded.
 @Component
 public class MovePool {
 
+    // Upper bound for the number of moves in use that a thread's free list adapts to
+    public static final int MAX_CAPACITY = 64 * 1024;
+
     private static final int INITIAL_CAPACITY = 1024;
 
-    private final Deque<Move> freeMoves;
+    // Free list of one thread. Its capacity adapts to the highest number of moves the thread ever had in use at the same
+    // time: released moves are kept up to that number, and running dry allocates that many new moves in one batch.
+    private static final class LocalPool {
 
-    public static long currentMovesUsed = 0;
-    public static long maxMovesUsed = 0;
-    public static long movesReturned = 0;
+        private Move[] freeMoves = new Move[INITIAL_CAPACITY];
+        private int freeCount = 0;
+        // Moves borrowed minus moves released on this thread, clamped to [0, MAX_CAPACITY], and the highest value seen
+        // so far
+        private int movesInUse = 0;
+        private int peakMovesInUse = 0;
 
-    public MovePool() {
-        this.freeMoves = new ArrayDeque<>(INITIAL_CAPACITY);
-        for (int i = 0; i < INITIAL_CAPACITY; i++) {
-            this.freeMoves.push(new Move());
+        private int getCapacity() {
+            return Math.max(INITIAL_CAPACITY, this.peakMovesInUse);
         }
     }
 
+    private final ThreadLocal<LocalPool> localPools;
+
+    // Statistics across all threads, kept in striped counters so that updating them does not contend either
+    private final LongAdder movesBorrowed;
+    private final LongAdder movesReleased;
+    private final LongAdder movesAllocated;
+    private final LongAccumulator peakMovesInUsePerThread;
+
+    public MovePool() {
+        this.localPools = ThreadLocal.withInitial(LocalPool::new);
+        this.movesBorrowed = new LongAdder();
+        this.movesReleased = new LongAdder();
+        this.movesAllocated = new LongAdder();
+        this.peakMovesInUsePerThread = new LongAccumulator(Math::max, 0);
+    }
+
+    public long getMovesBorrowed() {
+        return this.movesBorrowed.sum();
+    }
+
+    public long getMovesReleased() {
+        return this.movesReleased.sum();
+    }
+
+    // Number of Move objects created so far, which stops growing once every thread's free list is large enough
+    public long getMovesAllocated() {
+        return this.movesAllocated.sum();
+    }
+
+    public long getPeakMovesInUsePerThread() {
+        return this.peakMovesInUsePerThread.get();
+    }
+
     public Move createMove(Square from, Square to, Piece movingPiece, PieceType movingPieceType,
                            boolean movingPieceWasUnmoved, Piece capturedPiece, Square capturedPieceLoc,
                            boolean capturedPieceWasUnmoved, boolean isCastling, Square newEnPassantMoveTarget,
-                           Square newEnPassantCaptureTarget, PieceType promoPieceType, MovementRule movementRule) {
+                           Square newEnPassantCaptureTarget, PieceType promoPieceType) {
         Move move = borrowMove();
         move.setMove(from, to, movingPiece, movingPieceType, movingPieceWasUnmoved, capturedPiece, capturedPieceLoc,
-                capturedPieceWasUnmoved, isCastling, newEnPassantMoveTarget, newEnPassantCaptureTarget, promoPieceType,
-                movementRule);
+                capturedPieceWasUnmoved, isCastling, newEnPassantMoveTarget, newEnPassantCaptureTarget, promoPieceType);
         return move;
     }
 
@@ -52,34 +96,70 @@ public class MovePool {
                 move.getIsCastling(),
                 move.getNewEnPassantMoveTarget(),
                 move.getNewEnPassantCaptureTarget(),
-                move.getPromoPieceType(),
-                move.getMovementRule()
+                move.getPromoPieceType()
         );
     }
 
     public void releaseAllMoves(List<Move> moves) {
-        moves.forEach(this::releaseMove);
+        LocalPool pool = this.localPools.get();
+        for (Move move : moves) {
+            releaseMove(pool, move);
+        }
     }
 
-    public synchronized void releaseMove(Move move) {
-        currentMovesUsed--;
-        movesReturned++;
+    public void releaseMove(Move move) {
+        releaseMove(this.localPools.get(), move);
+    }
 
+    private void releaseMove(LocalPool pool, Move move) {
         move.reset();
+        // Moves borrowed on other threads would otherwise drive the count below zero, and every move borrowed later
+        // would then go unnoticed by the peak
+        if (pool.movesInUse > 0) {
+            pool.movesInUse--;
+        }
+        this.movesReleased.increment();
+
+        if (pool.freeCount == pool.freeMoves.length) {
+            int capacity = pool.getCapacity();
+            if (pool.freeCount >= capacity) {
+                // The thread holds more free moves than it has ever had in use at once, so this one is left to the GC
+                return;
+            }
+            pool.freeMoves = Arrays.copyOf(pool.freeMoves, Math.min(2 * pool.freeCount, capacity));
+        }
+        pool.freeMoves[pool.freeCount++] = move;
+    }
+
+    private Move borrowMove() {
+        LocalPool pool = this.localPools.get();
+        if (pool.freeCount == 0) {
+            refill(pool);
+        }
+        Move move = pool.freeMoves[--pool.freeCount];
+        pool.freeMoves[pool.freeCount] = null;
 
-        // Push only if initial capacity is not exceeded (optional, maintains the pool at a manageable size)
-        if (this.freeMoves.size() < INITIAL_CAPACITY) {
-            this.freeMoves.push(move);
+        // Moves released on other threads would otherwise raise the count, and with it the batch size, without bound
+        if (pool.movesInUse < MAX_CAPACITY && ++pool.movesInUse > pool.peakMovesInUse) {
+            pool.peakMovesInUse = pool.movesInUse;
+            this.peakMovesInUsePerThread.accumulate(pool.peakMovesInUse);
         }
+        this.movesBorrowed.increment();
+        return move;
     }
 
-    private synchronized Move borrowMove() {
-        currentMovesUsed++;
-        maxMovesUsed = Math.max(maxMovesUsed, currentMovesUsed);
-        if (!this.freeMoves.isEmpty()) {
-            return this.freeMoves.pop();
-        } else {
-            return new Move();
+    // Allocates a whole batch of moves whenever the free list runs dry. Since the batch size is the thread's peak number
+    // of moves in use, a thread that keeps needing more moves (e.g. a deep search) doubles its pool each time instead of
+    // allocating one move per borrow.
+    private void refill(LocalPool pool) {
+        int batchSize = pool.getCapacity();
+        if (pool.freeMoves.length < batchSize) {
+            pool.freeMoves = new Move[batchSize];
+        }
+        for (int i = 0; i < batchSize; i++) {
+            pool.freeMoves[i] = new Move();
         }
+        pool.freeCount = batchSize;
+        this.movesAllocated.add(batchSize);
     }
 }
@@ -1,39 +1,58 @@
 package com.chaoschess.backend.core.engine;
 
+import com.chaoschess.backend.core.engine.board.Bitboards;
 import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.MoveTables;
+import com.chaoschess.backend.core.engine.board.PieceList;
+import com.chaoschess.backend.core.engine.board.PinsAndChecks;
 import com.chaoschess.backend.core.model.Color;
 import com.chaoschess.backend.core.model.GameOutcome;
 import com.chaoschess.backend.core.model.GameOutcomeState;
-import com.chaoschess.backend.core.model.MovementModifier;
-import com.chaoschess.backend.core.model.MovementRule;
 import com.chaoschess.backend.core.model.Piece;
 import com.chaoschess.backend.core.model.PieceRole;
-import com.chaoschess.backend.core.model.PieceType;
 import com.chaoschess.backend.core.model.Square;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 @Service
 public class RuleProcessor {
 
     private final MovePool movePool;
+    private MoveGenerationMode moveGenerationMode;
 
     public RuleProcessor(MovePool movePool) {
         this.movePool = movePool;
+        this.moveGenerationMode = MoveGenerationMode.INTERPRETED;
     }
 
     public MovePool getMovePool() {
         return movePool;
     }
 
+    public MoveGenerationMode getMoveGenerationMode() {
+        return this.moveGenerationMode;
+    }
+
+    // Both modes generate the same moves in the same order, so the mode can be switched at any time
+    public void setMoveGenerationMode(MoveGenerationMode moveGenerationMode) {
+        this.moveGenerationMode = moveGenerationMode;
+    }
+
     public GameOutcome determineGameOutcome(Board board, List<Move> legalMoves) {
+        return determineGameOutcome(board, legalMoves.size());
+    }
+
+    public GameOutcome determineGameOutcome(Board board, int legalMoveCount) {
+        return determineGameOutcome(board, legalMoveCount, board.getHistoryLength());
+    }
+
+    // Variant for searches started at the given history length, see isDrawByRepetition()
+    public GameOutcome determineGameOutcome(Board board, int legalMoveCount, int searchRootHistoryLength) {
         Color colorToMove = board.getColorToMove();
-        if (legalMoves.isEmpty()) {
-            if (isKingInCheck(board, colorToMove)) {
+        if (legalMoveCount == 0) {
+            if (board.isKingInCheck(colorToMove)) {
                 return new GameOutcome(GameOutcomeState.CHECKMATE, colorToMove.getOpponent());
             } else {
                 return new GameOutcome(GameOutcomeState.STALEMATE, null);
@@ -43,34 +62,111 @@ public class RuleProcessor {
         if (board.getHalfmoveClock() >= 50) {
             return new GameOutcome(GameOutcomeState.FIFTY_MOVE_RULE, null);
         }
-        if (isDrawByThreefoldRepetition(board)) {
+        if (isDrawByRepetition(board, searchRootHistoryLength)) {
             return new GameOutcome(GameOutcomeState.THREEFOLD_REPETITION, null);
         }
 
         return new GameOutcome(GameOutcomeState.ONGOING, null);
     }
 
-    private boolean isDrawByThreefoldRepetition(Board board) {
+    // Whether the fifty-move rule or repetition ends the game, provided the side to move has a legal move (otherwise
+    // checkmate or stalemate takes precedence, see determineGameOutcome()). Lets callers that do not need the full list
+    // of legal moves, like a search using the staged MovePicker, only generate it when a draw is actually possible.
+    public boolean isDrawByRule(Board board, int searchRootHistoryLength) {
+        return board.getHalfmoveClock() >= 50 || isDrawByRepetition(board, searchRootHistoryLength);
+    }
+
+    // Checks whether the current position already occurred twice (threefold repetition). For a search started at the
+    // given history length, a position that already occurred after the search root counts as a draw on its first
+    // repetition, since the side that repeated it can keep repeating it (the usual twofold repetition rule of engines);
+    // positions from before the search root still need two earlier occurrences. Passing the board's current history
+    // length therefore gives the plain threefold repetition rule.
+    //
+    // Only positions since the last capture, pawn move or null move can repeat, and only those with the same side to
+    // move, so at most halfmoveClock / 2 hashes are compared, however long the game is.
+    public boolean isDrawByRepetition(Board board, int searchRootHistoryLength) {
         long currentZobristHash = board.getZobristHash();
-        List<Long> zobristHashHistory = board.getZobristHashHistory();
+        int historyLength = board.getHistoryLength();
+        // The history of a board set up from a FEN can be shorter than its halfmove clock. Positions from before a null
+        // move (made by the search) cannot repeat either, since the null move is not a legal move.
+        int pliesSinceReset = Math.min(board.getHalfmoveClock(), board.getPliesSinceNullMove());
+        int firstHistoryIndex = Math.max(0, historyLength - pliesSinceReset);
         int count = 0;
 
-        for (int i = zobristHashHistory.size() - 1; i >= 0; i--) {
-            if (zobristHashHistory.get(i).equals(currentZobristHash)) {
-                count++;
+        for (int i = historyLength - 2; i >= firstHistoryIndex; i -= 2) {
+            if (board.getHistoricZobristHash(i) == currentZobristHash) {
+                // The zobrist hash of the current position is not part of the zobrist hash history, so two earlier
+                // occurrences make three
+                if (i > searchRootHistoryLength || ++count >= 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Generates only legal moves, based on the checkers and pinned pieces calculated once for the whole position (see
+    // PinsAndChecks). Only en passant captures are still validated by making and unmaking them, since removing the
+    // captured piece from a square other than the target square can expose the king along any ray. The given list is
+    // cleared first and receives the moves in their encoded form, see MoveEncoding.
+    public void calculateLegalMoves(Board board, MoveList moves) {
+        calculateLegalMoves(board, moves, MoveFilter.ALL);
+    }
+
+    // Same as calculateLegalMoves(Board, MoveList), but only generates the moves accepted by the given filter. The
+    // moves keep their relative order, so generating the tactical and then the quiet moves yields the same moves as
+    // generating all of them at once, just grouped differently.
+    public void calculateLegalMoves(Board board, MoveList moves, MoveFilter moveFilter) {
+        moves.clear();
+        Color colorToMove = board.getColorToMove();
+        PinsAndChecks pinsAndChecks = board.calculatePinsAndChecks(colorToMove);
+        int kingSquareIndex = board.getSquareIndex(board.getKingLocs().get(colorToMove));
+        CompiledMoveGenerators compiledMoveGenerators = getCompiledMoveGenerators(board);
+
+        PieceList pieceList = board.getPieceList(colorToMove);
+        for (int slot = 0; slot < pieceList.size(); slot++) {
+            int squareIndex = pieceList.get(slot);
+            // In double check only the king can move
+            if (pinsAndChecks.getCheckerCount() > 1 && squareIndex != kingSquareIndex) {
+                continue;
             }
-            // The zobrist hash of the current position is not part of the zobrist hash history yet, so the check needs
-            // to be for count >= 2 and not count >= 3
-            if (count >= 2) {
+            addMovesFromSquare(board, squareIndex, moves, pinsAndChecks, moveFilter, compiledMoveGenerators);
+        }
+    }
+
+    // Checks whether the given move, e.g. a move from the transposition table or a killer move found in a sibling
+    // position, is legal in the current position by generating the legal moves of the piece on its origin square. The
+    // given list is only used as scratch space.
+    public boolean isLegalMove(Board board, int move, MoveList scratchMoves) {
+        scratchMoves.clear();
+        int fromSquareIndex = MoveEncoding.getFrom(move);
+        Piece movingPiece = board.getPieceAt(fromSquareIndex);
+        Color colorToMove = board.getColorToMove();
+        if (movingPiece == null || !movingPiece.color().equals(colorToMove)) {
+            return false;
+        }
+        PinsAndChecks pinsAndChecks = board.calculatePinsAndChecks(colorToMove);
+        int kingSquareIndex = board.getSquareIndex(board.getKingLocs().get(colorToMove));
+        if (pinsAndChecks.getCheckerCount() > 1 && fromSquareIndex != kingSquareIndex) {
+            return false;
+        }
+
+        MoveFilter moveFilter = MoveFilter.isTactical(move) ? MoveFilter.TACTICAL : MoveFilter.QUIET;
+        addMovesFromSquare(board, fromSquareIndex, scratchMoves, pinsAndChecks, moveFilter,
+                getCompiledMoveGenerators(board));
+        for (int i = 0; i < scratchMoves.size(); i++) {
+            if (scratchMoves.get(i) == move) {
                 return true;
             }
         }
         return false;
     }
 
+    // Same as calculateLegalMoves(Board, MoveList), but returns Move objects from the move pool
     public List<Move> calculateLegalMoves(Board board) {
-        List<Move> pseudolegalMoves = calculatePseudolegalMoves(board, board.getColorToMove());
-        return calculateLegalMoves(board, pseudolegalMoves, true);
+        MoveList moves = new MoveList();
+        calculateLegalMoves(board, moves);
+        return toMoves(board, moves);
     }
 
     public List<Move> calculateLegalMoves(Board board, List<Move> pseudolegalMoves, boolean releaseNonLegalMoves) {
@@ -80,15 +176,10 @@ public class RuleProcessor {
             boolean isLegal = false;
             if (board.getColorToMove().equals(move.getMovingPiece().color())) {
                 if (!move.getIsCastling()) {
-                    board.makeMove(move);
-                    if (!isKingInCheck(board, board.getColorToMove().getOpponent())) {
-                        isLegal = true;
-                    }
-                    board.unmakeMove(move);
+                    isLegal = isLegalByMakeAndUnmake(board, MoveEncoding.fromMove(board, move),
+                            move.getMovingPiece().color());
                 } else {
-                    if (isCastlingLegal(board, move)) {
-                        isLegal = true;
-                    }
+                    isLegal = isCastlingLegal(board, move.getFrom(), move.getTo(), move.getMovingPiece().color());
                 }
             }
             if (isLegal) {
@@ -113,117 +204,109 @@ public class RuleProcessor {
     }
 
     public List<Move> calculatePseudolegalMoves(Board board, Color color) {
-        return calculatePseudolegalMoves(board, color, false, false);
+        MoveList moves = new MoveList();
+        CompiledMoveGenerators compiledMoveGenerators = getCompiledMoveGenerators(board);
+        PieceList pieceList = board.getPieceList(color);
+        for (int slot = 0; slot < pieceList.size(); slot++) {
+            addMovesFromSquare(board, pieceList.get(slot), moves, null, MoveFilter.ALL, compiledMoveGenerators);
+        }
+        return toMoves(board, moves);
     }
 
-    private List<Move> calculatePseudolegalMoves(Board board, Color color, boolean stopOnFirstCheck,
-                                                 boolean includeAttacksOnEmptySquares) {
-        List<Move> pseudolegalMoves = new ArrayList<>();
-        for (Square from : board.getPieceLocs().get(color)) {
-            List<Move> pseudolegalMovesFromSquare = calculatePseudolegalMoves(board, from, stopOnFirstCheck,
-                    includeAttacksOnEmptySquares);
-            pseudolegalMoves.addAll(pseudolegalMovesFromSquare);
-
-            // TODO: den stopOnFirstCheck-Kram weniger hässlich lösen
-            if (stopOnFirstCheck && !pseudolegalMovesFromSquare.isEmpty()
-                    && pseudolegalMovesFromSquare.getLast().getTo().equals(
-                            board.getKingLocs().get(color.getOpponent()))) {
-                return pseudolegalMoves;
-            }
+    private List<Move> toMoves(Board board, MoveList moves) {
+        List<Move> result = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            result.add(MoveEncoding.toMove(board, moves.get(i), this.movePool));
         }
-        return pseudolegalMoves;
+        return result;
     }
 
-    private List<Move> calculatePseudolegalMoves(Board board, Square from, boolean stopOnFirstCheck,
-                                                 boolean includeAttacksOnEmptySquares) {
-        List<Move> pseudolegalMovesFromSquare = new ArrayList<>();
+    // Null in MoveGenerationMode.INTERPRETED
+    private CompiledMoveGenerators getCompiledMoveGenerators(Board board) {
+        return (this.moveGenerationMode == MoveGenerationMode.COMPILED) ? CompiledMoveGenerators.get(board) : null;
+    }
 
-        Piece movingPiece = board.getPieceAt(from);
+    private void addMovesFromSquare(Board board, int fromSquareIndex, MoveList moves, PinsAndChecks pinsAndChecks,
+                                    MoveFilter moveFilter, CompiledMoveGenerators compiledMoveGenerators) {
+        if (compiledMoveGenerators != null) {
+            compiledMoveGenerators.addMovesFromSquare(this, board, fromSquareIndex, moves, pinsAndChecks, moveFilter);
+        } else {
+            addMovesFromSquare(board, fromSquareIndex, moves, pinsAndChecks, moveFilter);
+        }
+    }
+
+    // Adds the moves of the piece on the given square to the given list. If pinsAndChecks is null, all pseudolegal
+    // moves are added, otherwise only the legal ones. Moves rejected by the filter are skipped before their legality is
+    // checked. The rays come precompiled from the board's MoveTables, so no movement rule has to be interpreted and no
+    // bounds have to be checked here.
+    private void addMovesFromSquare(Board board, int fromSquareIndex, MoveList moves, PinsAndChecks pinsAndChecks,
+                                    MoveFilter moveFilter) {
+        Square from = board.getSquare(fromSquareIndex);
+        int fromIndex = board.getMailboxIndex(from);
+        Piece movingPiece = board.getPieceAtMailboxIndex(fromIndex);
         if (movingPiece == null) {
-            return pseudolegalMovesFromSquare;
+            return;
         }
         Color movingColor = movingPiece.color();
-        PieceType movingPieceType = movingPiece.type();
-        boolean movingPieceWasUnmoved = board.isUnmovedAt(from);
-
-        Square prevEpCaptureTarget = board.getEnPassantCaptureTarget();
-
-        int verticalSign = movingColor.equals(Color.WHITE) ? 1 : -1;
-        for (MovementRule movementRule : movingPiece.type().movementRules()) {
-            if (movementRule.hasModifier(MovementModifier.ONLY_UNMOVED) && !movingPieceWasUnmoved) {
+        boolean movingPieceWasUnmoved = board.isUnmovedAtMailboxIndex(fromIndex);
+
+        boolean legalOnly = pinsAndChecks != null;
+        boolean isKing = legalOnly && from.equals(board.getKingLocs().get(movingColor));
+        long[] allowedTargets = (legalOnly && !isKing) ? pinsAndChecks.getAllowedTargets(fromSquareIndex) : null;
+
+        Square enPassantMoveTarget = board.getEnPassantMoveTarget();
+        int enPassantMoveTargetIndex = (enPassantMoveTarget != null) ? board.getSquareIndex(enPassantMoveTarget) : -1;
+
+        MoveTables moveTables = board.getMoveTables();
+        int pieceIndex = 2 * movingPiece.type().id() + movingColor.ordinal();
+        int[] squareRayStarts = moveTables.getSquareRayStarts(pieceIndex);
+        int[] rayFlags = moveTables.getRayFlags(pieceIndex);
+        int[] rayMinSteps = moveTables.getRayMinSteps(pieceIndex);
+        int[] rayTargetStarts = moveTables.getRayTargetStarts(pieceIndex);
+        int[] targetSquareIndices = moveTables.getTargetSquareIndices(pieceIndex);
+        int[] targetMailboxIndices = moveTables.getTargetMailboxIndices(pieceIndex);
+
+        for (int ray = squareRayStarts[fromSquareIndex]; ray < squareRayStarts[fromSquareIndex + 1]; ray++) {
+            int flags = rayFlags[ray];
+            if ((flags & MoveTables.ONLY_UNMOVED) != 0 && !movingPieceWasUnmoved) {
                 continue;
             }
 
-            if (movementRule.hasModifier(MovementModifier.CASTLING)) {
-                // TODO: Maybe move this check to isCastlingPseudolegal()?
-                if (board.isKingUnmoved(movingColor)) {
-                    // TODO: Unwanted side effect of adding castling moves directly to pseudo-legal moves: the king now
-                    //  incorrectly appears to defend all still available castling-partner rooks
-                    for (Square castlingLoc : board.getCastlingPartnerLocs().get(movingColor)) {
-                        if (isCastlingPseudolegal(board, movingColor, castlingLoc)) {
-
-                            pseudolegalMovesFromSquare.add(this.movePool.createMove(
-                                    from, castlingLoc, movingPiece, movingPieceType, movingPieceWasUnmoved,
-                                    null, null, false, true, null,
-                                    null, null, movementRule));
-                        }
-                    }
+            if ((flags & MoveTables.CASTLING) != 0) {
+                if (moveFilter.includesQuiet()) {
+                    addCastlingMoves(board, moves, fromSquareIndex, movingColor, legalOnly);
                 }
                 continue;
             }
 
-            Square newEpMoveTarget = null;
-            Square newEpCaptureTarget = null;
-
-            for (int steps = 1; steps <= movementRule.maxSteps(); steps++) {
-                int toX = from.x() + steps * movementRule.dx();
-                int toY = from.y() + steps * movementRule.dy() * verticalSign;
-
-                if (!board.isInBounds(toX, toY)) {
-                    break;
-                }
-
-                Square to = board.getSquare(toX, toY);
-                if (movementRule.hasModifier(MovementModifier.ENABLES_EN_PASSANT)) {
-                    if (steps == 1) {
-                        newEpMoveTarget = to;
-                    } else {
-                        newEpCaptureTarget = to;
-                    }
-                }
-
-                Set<PieceType> promoPieceTypes;
-                if (movingPiece.type().role().equals(PieceRole.PAWN_LIKE)
-                        && board.getBackRankIndex(movingColor.getOpponent()) == toY) {
-                    promoPieceTypes = board.getPromoOptions();
-                } else {
-                    promoPieceTypes = new HashSet<>();
-                    promoPieceTypes.add(null);
-                }
+            boolean enablesEnPassant = (flags & MoveTables.ENABLES_EN_PASSANT) != 0;
+            boolean capturesEnPassant = (flags & MoveTables.CAPTURES_EN_PASSANT) != 0;
+            boolean onlyCaptures = (flags & MoveTables.ONLY_CAPTURES) != 0;
+            boolean onlyNonCaptures = (flags & MoveTables.ONLY_NON_CAPTURES) != 0;
+            int minSteps = rayMinSteps[ray];
+            int firstTarget = rayTargetStarts[ray];
+            int endTarget = rayTargetStarts[ray + 1];
 
-                Piece toPiece = board.getPieceAt(to);
+            for (int target = firstTarget; target < endTarget; target++) {
+                int steps = target - firstTarget + 1;
+                Piece toPiece = board.getPieceAtMailboxIndex(targetMailboxIndices[target]);
+                int toSquareIndex = targetSquareIndices[target];
 
                 if (toPiece == null) {
-                    if (steps >= movementRule.minSteps()) {
+                    if (steps >= minSteps) {
 
-                        if (!movementRule.hasModifier(MovementModifier.ONLY_CAPTURES) || includeAttacksOnEmptySquares) {
-                            for (PieceType promoPieceType : promoPieceTypes) {
-
-                                pseudolegalMovesFromSquare.add(this.movePool.createMove(
-                                        from, to, movingPiece, movingPieceType, movingPieceWasUnmoved,
-                                        null, null, false, false, newEpMoveTarget,
-                                        newEpCaptureTarget, promoPieceType, movementRule));
+                        if (!onlyCaptures) {
+                            if (!acceptsNonCapture(board, moveFilter, movingPiece, toSquareIndex)
+                                    || (legalOnly && !isTargetLegal(board, toSquareIndex, fromSquareIndex, isKing,
+                                    allowedTargets, movingColor))) {
+                                continue;
                             }
+                            addMoves(board, moves, movingPiece, fromSquareIndex, toSquareIndex, -1, false,
+                                    enablesEnPassant ? steps : 0, false, moveFilter);
 
-                        } else if (to.equals(board.getEnPassantMoveTarget()) &&
-                                movementRule.hasModifier(MovementModifier.CAPTURES_EN_PASSANT)) {
-                            for (PieceType promoPieceType : promoPieceTypes) {
-
-                                pseudolegalMovesFromSquare.add(this.movePool.createMove(
-                                        from, to, movingPiece, movingPieceType, movingPieceWasUnmoved,
-                                        board.getPieceAt(prevEpCaptureTarget), prevEpCaptureTarget, false, false, null,
-                                        null, promoPieceType, movementRule));
-                            }
+                        } else if (capturesEnPassant && toSquareIndex == enPassantMoveTargetIndex) {
+                            addEnPassantMoves(board, moves, movingPiece, fromSquareIndex, toSquareIndex, legalOnly,
+                                    moveFilter);
                         }
                     }
 
@@ -231,51 +314,100 @@ public class RuleProcessor {
                     break;
 
                 } else {
-                    if ((steps >= movementRule.minSteps()) &&
-                            !movementRule.hasModifier(MovementModifier.ONLY_NON_CAPTURES)) {
-                        for (PieceType promoPieceType : promoPieceTypes) {
-
-                            pseudolegalMovesFromSquare.add(this.movePool.createMove(
-                                    from, to, movingPiece, movingPieceType, movingPieceWasUnmoved,
-                                    toPiece, to, board.isUnmovedAt(to), false, null,
-                                    null, promoPieceType, movementRule));
-
-                            // TODO: Find a nicer way to solve the stopOnFirstCheck issue
-                            if (stopOnFirstCheck && to.equals(board.getKingLocs().get(movingColor.getOpponent()))) {
-
-                                return pseudolegalMovesFromSquare;
-                            }
-                        }
+                    if ((steps >= minSteps) && !onlyNonCaptures && moveFilter.includesTactical() && (!legalOnly
+                            || isTargetLegal(board, toSquareIndex, fromSquareIndex, isKing, allowedTargets,
+                            movingColor))) {
+                        addMoves(board, moves, movingPiece, fromSquareIndex, toSquareIndex, toPiece.type().id(),
+                                false, 0, false, moveFilter);
                     }
                     break;
                 }
             }
         }
-        return pseudolegalMovesFromSquare;
     }
 
-    private boolean isKingInCheck(Board board, Color kingColor) {
-        List<Move> pseudolegalMoves = calculatePseudolegalMoves(board, kingColor.getOpponent(), true, false);
-        Square kingSquare = board.getKingLocs().get(kingColor);
-        boolean result = pseudolegalMoves.stream()
-                .anyMatch(move -> move.getTo().equals(kingSquare)
-                        && move.getMovingPiece().color().equals(kingColor.getOpponent())
-                        && move.isCapture());
-        this.movePool.releaseAllMoves(pseudolegalMoves);
-        return result;
+    void addCastlingMoves(Board board, MoveList moves, int fromSquareIndex, Color movingColor, boolean legalOnly) {
+        // TODO: Maybe move this check to isCastlingPseudolegal()?
+        if (!board.isKingUnmoved(movingColor)) {
+            return;
+        }
+        // TODO: Unwanted side effect of adding castling moves directly to pseudo-legal moves: the king now incorrectly
+        //  appears to defend all still available castling-partner rooks
+        Square from = board.getSquare(fromSquareIndex);
+        long[] castlingPartnerBitboard = board.getCastlingPartnerBitboard(movingColor);
+        for (int castlingLocIndex = Bitboards.nextSetBit(castlingPartnerBitboard, 0); castlingLocIndex >= 0;
+             castlingLocIndex = Bitboards.nextSetBit(castlingPartnerBitboard, castlingLocIndex + 1)) {
+            Square castlingLoc = board.getSquare(castlingLocIndex);
+            if (isCastlingPseudolegal(board, movingColor, castlingLoc)
+                    && (!legalOnly || isCastlingLegal(board, from, castlingLoc, movingColor))) {
+
+                moves.add(MoveEncoding.encode(fromSquareIndex, castlingLocIndex, -1, -1, true, false, 0));
+            }
+        }
     }
 
-    // TODO: Doesn't work for empty squares because ONLY_CAPTURES moves (specifically pawn attacks) are then not
-    //  captured by calculatePseudolegalMoves => DONE, but still needs testing
-    private boolean isSquareAttacked(Board board, Square square, Color attackingColor) {
-        List<Move> pseudolegalMoves = calculatePseudolegalMoves(board, attackingColor, false, true);
-        // TODO: Find a nicer solution here (a complex check via MovementModifier.ONLY_NON_CAPTURES is required, as
-        //  move.isCapture() would return false for empty squares)
-        boolean result = pseudolegalMoves.stream()
-                .anyMatch(move -> move.getTo().equals(square)
-                        && !move.getMovementRule().hasModifier(MovementModifier.ONLY_NON_CAPTURES));
-        this.movePool.releaseAllMoves(pseudolegalMoves);
-        return result;
+    // Whether a move onto the empty target square passes the filter, i.e. whether it is tactical because it promotes
+    boolean acceptsNonCapture(Board board, MoveFilter moveFilter, Piece movingPiece, int toSquareIndex) {
+        if (moveFilter == MoveFilter.ALL) {
+            return true;
+        }
+        return isPromotion(board, movingPiece, toSquareIndex) ? moveFilter.includesTactical()
+                : moveFilter.includesQuiet();
+    }
+
+    void addEnPassantMoves(Board board, MoveList moves, Piece movingPiece, int from, int to, boolean legalOnly,
+                           MoveFilter moveFilter) {
+        Piece capturedPiece = board.getPieceAt(board.getEnPassantCaptureTarget());
+        if (capturedPiece != null) {
+            addMoves(board, moves, movingPiece, from, to, capturedPiece.type().id(), true, 0, legalOnly, moveFilter);
+        } else {
+            // Without a piece to capture, the move is an ordinary move onto the empty square
+            addMoves(board, moves, movingPiece, from, to, -1, false, 0, legalOnly, moveFilter);
+        }
+    }
+
+    // Adds the move once, or once per promotion option if it promotes the moving piece, as far as the filter accepts
+    // it. If verifyByMakeAndUnmake is set, only the moves that do not leave the own king in check are added.
+    void addMoves(Board board, MoveList moves, Piece movingPiece, int from, int to, int capturedPieceTypeId,
+                  boolean isEnPassantCapture, int enPassantSteps, boolean verifyByMakeAndUnmake,
+                  MoveFilter moveFilter) {
+        if (!isPromotion(board, movingPiece, to)) {
+            addMove(board, moves, MoveEncoding.encode(from, to, -1, capturedPieceTypeId, false, isEnPassantCapture,
+                    enPassantSteps), movingPiece.color(), verifyByMakeAndUnmake, moveFilter);
+            return;
+        }
+        for (int promoPieceTypeId : board.getPromoPieceTypeIds()) {
+            addMove(board, moves, MoveEncoding.encode(from, to, promoPieceTypeId, capturedPieceTypeId, false,
+                    isEnPassantCapture, enPassantSteps), movingPiece.color(), verifyByMakeAndUnmake, moveFilter);
+        }
+    }
+
+    private void addMove(Board board, MoveList moves, int move, Color movingColor, boolean verifyByMakeAndUnmake,
+                         MoveFilter moveFilter) {
+        if (moveFilter.accepts(move) && (!verifyByMakeAndUnmake || isLegalByMakeAndUnmake(board, move, movingColor))) {
+            moves.add(move);
+        }
+    }
+
+    boolean isTargetLegal(Board board, int toSquareIndex, int fromSquareIndex, boolean isKing, long[] allowedTargets,
+                          Color movingColor) {
+        if (isKing) {
+            // The king's origin square must not block rays that attack its target square
+            return !board.isSquareAttackedIgnoring(toSquareIndex, movingColor.getOpponent(), fromSquareIndex);
+        }
+        return allowedTargets == null || Bitboards.isSet(allowedTargets, toSquareIndex);
+    }
+
+    private boolean isLegalByMakeAndUnmake(Board board, int move, Color movingColor) {
+        board.makeMove(move);
+        boolean isLegal = !board.isKingInCheck(movingColor);
+        board.unmakeMove(move);
+        return isLegal;
+    }
+
+    private boolean isPromotion(Board board, Piece movingPiece, int toSquareIndex) {
+        return movingPiece.type().role().equals(PieceRole.PAWN_LIKE)
+                && board.getBackRankIndex(movingPiece.color().getOpponent()) == board.getSquare(toSquareIndex).y();
     }
 
     private boolean isCastlingPseudolegal(Board board, Color colorToMove, Square castlingPartnerFrom) {
@@ -311,17 +443,17 @@ public class RuleProcessor {
         return true;
     }
 
-    private boolean isCastlingLegal(Board board, Move castlingMove) {
-        int kingFromX = castlingMove.getFrom().x();
-        int kingToX = (kingFromX > castlingMove.getTo().x()) ? 2 : (board.getWidth() - 2);
+    private boolean isCastlingLegal(Board board, Square kingFrom, Square castlingPartnerFrom, Color color) {
+        int kingFromX = kingFrom.x();
+        int kingToX = (kingFromX > castlingPartnerFrom.x()) ? 2 : (board.getWidth() - 2);
 
         int kingMinX = Math.min(kingFromX, kingToX);
         int kingMaxX = Math.max(kingFromX, kingToX);
 
-        int y = castlingMove.getFrom().y();
+        int y = kingFrom.y();
 
         for (int x = kingMinX; x <= kingMaxX; x++) {
-            if (isSquareAttacked(board, board.getSquare(x, y), castlingMove.getMovingPiece().color().getOpponent())) {
+            if (board.isSquareAttacked(board.getSquareIndex(x, y), color.getOpponent())) {
                 return false;
             }
         }
@@ -0,0 +1,54 @@
+package com.chaoschess.backend.core.engine;
+
+import java.util.Arrays;
+
+// Per-search scratch state: one preallocated move list and move picker per ply, so that recursive searches (alpha-beta,
+// perft) can generate moves at every node without allocating. A context must only be used by one thread at a time.
+public final class SearchContext {
+
+    private static final int INITIAL_MAX_PLY = 64;
+
+    private MoveList[] moveLists;
+    private MovePicker[] movePickers;
+    // History length of the board at the root of the search, see RuleProcessor.isDrawByRepetition()
+    private int rootHistoryLength;
+
+    public SearchContext() {
+        this.moveLists = new MoveList[INITIAL_MAX_PLY];
+        for (int ply = 0; ply < this.moveLists.length; ply++) {
+            this.moveLists[ply] = new MoveList();
+        }
+        this.movePickers = new MovePicker[INITIAL_MAX_PLY];
+    }
+
+    public int getRootHistoryLength() {
+        return this.rootHistoryLength;
+    }
+
+    public void setRootHistoryLength(int rootHistoryLength) {
+        this.rootHistoryLength = rootHistoryLength;
+    }
+
+    // Returns the move list reserved for the given ply (0 being the root), growing the context if necessary
+    public MoveList getMoveList(int ply) {
+        if (ply >= this.moveLists.length) {
+            int oldLength = this.moveLists.length;
+            this.moveLists = Arrays.copyOf(this.moveLists, Math.max(2 * oldLength, ply + 1));
+            for (int i = oldLength; i < this.moveLists.length; i++) {
+                this.moveLists[i] = new MoveList();
+            }
+        }
+        return this.moveLists[ply];
+    }
+
+    // Returns the move picker reserved for the given ply, creating it on first use (perft never needs one)
+    public MovePicker getMovePicker(int ply) {
+        if (ply >= this.movePickers.length) {
+            this.movePickers = Arrays.copyOf(this.movePickers, Math.max(2 * this.movePickers.length, ply + 1));
+        }
+        if (this.movePickers[ply] == null) {
+            this.movePickers[ply] = new MovePicker();
+        }
+        return this.movePickers[ply];
+    }
+}
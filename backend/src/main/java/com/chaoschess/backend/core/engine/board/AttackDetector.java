@@ -0,0 +1,179 @@
+package com.chaoschess.backend.core.engine.board;
+
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.MovementModifier;
+import com.chaoschess.backend.core.model.MovementRule;
+import com.chaoschess.backend.core.model.Piece;
+import com.chaoschess.backend.core.model.PieceType;
+import com.chaoschess.backend.core.model.Square;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Answers whether a square is attacked without generating any moves. For every attacking color, the attacking movement
+// rules of all piece types are grouped by their geometry (step, step range and whether they require an unmoved piece).
+// A query walks each geometry backwards from the target square up to the first occupied square and checks whether a
+// piece of the attacking color that owns the geometry stands there. The definition of "attacked" matches AttackMaps.
+public final class AttackDetector {
+
+    // Attacking geometry of one color on one board. The mailbox offset is the reverse step, i.e. from the target
+    // towards the attacker, and isOwnedByPieceType is indexed by piece type ID.
+    private record AttackGeometry(int mailboxOffset, int minSteps, int maxSteps, boolean onlyUnmoved,
+                                  boolean[] isOwnedByPieceType) {}
+
+    // Indexed by color ordinal of the attacking color
+    private final AttackGeometry[][] attackGeometries;
+
+    AttackDetector(Board board, int pieceTypeCount) {
+        this.attackGeometries = new AttackGeometry[Color.values().length][];
+        for (Color color : Color.values()) {
+            this.attackGeometries[color.ordinal()] = createAttackGeometries(board, color, pieceTypeCount);
+        }
+    }
+
+    private static AttackGeometry[] createAttackGeometries(Board board, Color color, int pieceTypeCount) {
+        int verticalSign = color.equals(Color.WHITE) ? 1 : -1;
+        Map<List<Integer>, AttackGeometry> geometriesByKey = new LinkedHashMap<>();
+
+        for (Piece piece : board.pieces) {
+            if (!piece.color().equals(color)) {
+                continue;
+            }
+            PieceType pieceType = piece.type();
+            for (MovementRule movementRule : pieceType.movementRules()) {
+                if (movementRule.hasModifier(MovementModifier.CASTLING)
+                        || movementRule.hasModifier(MovementModifier.ONLY_NON_CAPTURES)) {
+                    continue;
+                }
+                int reverseOffset = -board.getMailboxOffset(movementRule.dx(), movementRule.dy() * verticalSign);
+                boolean onlyUnmoved = movementRule.hasModifier(MovementModifier.ONLY_UNMOVED);
+                List<Integer> key = List.of(reverseOffset, movementRule.minSteps(), movementRule.maxSteps(),
+                        onlyUnmoved ? 1 : 0);
+                geometriesByKey.computeIfAbsent(key, k -> new AttackGeometry(reverseOffset, movementRule.minSteps(),
+                                movementRule.maxSteps(), onlyUnmoved, new boolean[pieceTypeCount]))
+                        .isOwnedByPieceType()[pieceType.id()] = true;
+            }
+        }
+
+        // Geometries that only reach adjacent or leaper squares are cheapest and go first
+        List<AttackGeometry> geometries = new ArrayList<>(geometriesByKey.values());
+        geometries.sort((a, b) -> Integer.compare(a.maxSteps(), b.maxSteps()));
+        return geometries.toArray(new AttackGeometry[0]);
+    }
+
+    public boolean isSquareAttacked(Board board, int squareIndex, Color attackingColor) {
+        return isSquareAttacked(board, squareIndex, attackingColor, -1);
+    }
+
+    // Treats the square with the given ignored square index as empty (used for king moves, since the king must not
+    // block the rays that attack its target square), or ignores nothing if it is -1
+    public boolean isSquareAttacked(Board board, int squareIndex, Color attackingColor, int ignoredSquareIndex) {
+        int targetIndex = getMailboxIndex(board, squareIndex);
+        int ignoredIndex = (ignoredSquareIndex >= 0) ? getMailboxIndex(board, ignoredSquareIndex) : -1;
+
+        for (AttackGeometry attackGeometry : this.attackGeometries[attackingColor.ordinal()]) {
+            int fromIndex = targetIndex;
+            for (int steps = 1; steps <= attackGeometry.maxSteps(); steps++) {
+                fromIndex += attackGeometry.mailboxOffset();
+                Piece piece = board.getPieceAtMailboxIndex(fromIndex);
+                if (piece == null || fromIndex == ignoredIndex) {
+                    continue;
+                }
+                if (isAttacker(board, attackGeometry, piece, attackingColor, steps, fromIndex)) {
+                    return true;
+                }
+                // Any piece (and the border) blocks the ray
+                break;
+            }
+        }
+        return false;
+    }
+
+    // Walks every attacking geometry of the opponent outwards from the king. The first occupied square of a ray either
+    // holds a checker, or a piece of the king's color that is pinned if the next occupied square holds an attacker.
+    void calculatePinsAndChecks(Board board, Color kingColor, PinsAndChecks pinsAndChecks) {
+        pinsAndChecks.reset();
+        Color attackingColor = kingColor.getOpponent();
+        int kingIndex = board.getMailboxIndex(board.kingLocs.get(kingColor));
+
+        for (AttackGeometry attackGeometry : this.attackGeometries[attackingColor.ordinal()]) {
+            int fromIndex = kingIndex;
+            int blockerIndex = -1;
+            for (int steps = 1; steps <= attackGeometry.maxSteps(); steps++) {
+                fromIndex += attackGeometry.mailboxOffset();
+                Piece piece = board.getPieceAtMailboxIndex(fromIndex);
+                if (piece == null) {
+                    continue;
+                }
+                if (piece == Board.OFF_BOARD) {
+                    break;
+                }
+                if (piece.color() == kingColor) {
+                    if (blockerIndex >= 0) {
+                        // Two pieces of the king's color shield the king
+                        break;
+                    }
+                    blockerIndex = fromIndex;
+                    continue;
+                }
+                if (isAttacker(board, attackGeometry, piece, attackingColor, steps, fromIndex)) {
+                    if (blockerIndex < 0) {
+                        int checkerSquareIndex = board.getSquareIndexAtMailboxIndex(fromIndex);
+                        // A piece owning several geometries with the same step may be found more than once
+                        if (!Bitboards.isSet(pinsAndChecks.checkers, checkerSquareIndex)) {
+                            Bitboards.set(pinsAndChecks.checkers, checkerSquareIndex);
+                            pinsAndChecks.checkerCount++;
+                        }
+                        addRaySquares(board, kingIndex, attackGeometry.mailboxOffset(), steps,
+                                pinsAndChecks.checkMask);
+                    } else {
+                        addPin(board, pinsAndChecks, board.getSquareIndexAtMailboxIndex(blockerIndex), kingIndex,
+                                attackGeometry.mailboxOffset(), steps);
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    private static void addPin(Board board, PinsAndChecks pinsAndChecks, int pinnedSquareIndex, int kingIndex,
+                               int mailboxOffset, int steps) {
+        long[] pinMask = pinsAndChecks.pinMasks[pinnedSquareIndex];
+        if (!Bitboards.isSet(pinsAndChecks.pinnedPieces, pinnedSquareIndex)) {
+            Bitboards.set(pinsAndChecks.pinnedPieces, pinnedSquareIndex);
+            addRaySquares(board, kingIndex, mailboxOffset, steps, pinMask);
+        } else {
+            // With fairy geometries a piece can be pinned along two rays at once, in which case it may only move to
+            // squares on both of them
+            long[] otherRay = Bitboards.create();
+            addRaySquares(board, kingIndex, mailboxOffset, steps, otherRay);
+            for (int i = 0; i < Bitboards.WORDS; i++) {
+                pinMask[i] &= otherRay[i];
+            }
+        }
+    }
+
+    private static void addRaySquares(Board board, int kingIndex, int mailboxOffset, int steps, long[] bitboard) {
+        int index = kingIndex;
+        for (int step = 1; step <= steps; step++) {
+            index += mailboxOffset;
+            Bitboards.set(bitboard, board.getSquareIndexAtMailboxIndex(index));
+        }
+    }
+
+    private static boolean isAttacker(Board board, AttackGeometry attackGeometry, Piece piece, Color attackingColor,
+                                      int steps, int mailboxIndex) {
+        return piece != Board.OFF_BOARD
+                && piece.color() == attackingColor
+                && steps >= attackGeometry.minSteps()
+                && attackGeometry.isOwnedByPieceType()[piece.type().id()]
+                && (!attackGeometry.onlyUnmoved() || board.isUnmovedAtMailboxIndex(mailboxIndex));
+    }
+
+    private static int getMailboxIndex(Board board, int squareIndex) {
+        Square square = board.getSquare(squareIndex);
+        return board.getMailboxIndex(square.x(), square.y());
+    }
+}
@@ -0,0 +1,221 @@
+package com.chaoschess.backend.core.engine.board;
+
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.MovementModifier;
+import com.chaoschess.backend.core.model.MovementRule;
+import com.chaoschess.backend.core.model.Piece;
+import com.chaoschess.backend.core.model.Square;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-color attack counts for every square, maintained incrementally by a Board while enabled, see
+// Board.enableAttackMaps(). A square counts as attacked by a piece if the piece could capture an enemy piece standing
+// there, so squares occupied by pieces of the same color count as defended. Castling and non-capturing movement rules
+// do not attack. Besides the counts, the attack set of every piece and the squares whose occupancy limits its rays are
+// stored, so that after a move only the pieces on the changed squares and the pieces whose rays pass through them need
+// to be recalculated.
+public final class AttackMaps {
+
+    // Attacking movement rule of a piece type resolved for one color and one board (the mailbox offset depends on both)
+    private record AttackRule(int mailboxOffset, int minSteps, int maxSteps, boolean onlyUnmoved) {}
+
+    // Indexed by 2 * piece type ID + color ordinal
+    private final AttackRule[][] attackRules;
+
+    // Indexed by color ordinal and then by square index
+    private final int[][] attackCounts;
+    private final long[][] attackedBitboards;
+    // Indexed by the square index of the attacking piece
+    private final long[][] attacksBySquare;
+    private final long[][] raysBySquare;
+    private final int[] attackerColorOrdinals;
+    // Indexed by square index, contains the squares of all pieces whose rays pass through the respective square
+    private final long[][] rayOwnersBySquare;
+
+    // Squares changed since the last update(), see markChanged()
+    private final long[] changedSquares;
+    private final long[] squaresToRecalculate;
+
+    AttackMaps(Board board) {
+        this.attackRules = createAttackRules(board);
+
+        int squareCount = board.width * board.height;
+        this.attackCounts = new int[Color.values().length][squareCount];
+        this.attackedBitboards = new long[Color.values().length][Bitboards.WORDS];
+        this.attacksBySquare = new long[squareCount][Bitboards.WORDS];
+        this.raysBySquare = new long[squareCount][Bitboards.WORDS];
+        this.attackerColorOrdinals = new int[squareCount];
+        this.rayOwnersBySquare = new long[squareCount][Bitboards.WORDS];
+        this.changedSquares = Bitboards.create();
+        this.squaresToRecalculate = Bitboards.create();
+
+        for (int squareIndex = 0; squareIndex < squareCount; squareIndex++) {
+            this.attackerColorOrdinals[squareIndex] = -1;
+            addAttacks(board, squareIndex);
+        }
+    }
+
+    private AttackMaps(AttackMaps other) {
+        // The attack rules are immutable and only depend on the board dimensions and the piece types
+        this.attackRules = other.attackRules;
+
+        this.attackCounts = new int[other.attackCounts.length][];
+        for (int i = 0; i < this.attackCounts.length; i++) {
+            this.attackCounts[i] = other.attackCounts[i].clone();
+        }
+        this.attackedBitboards = Board.copyBitboards(other.attackedBitboards);
+        this.attacksBySquare = Board.copyBitboards(other.attacksBySquare);
+        this.raysBySquare = Board.copyBitboards(other.raysBySquare);
+        this.attackerColorOrdinals = other.attackerColorOrdinals.clone();
+        this.rayOwnersBySquare = Board.copyBitboards(other.rayOwnersBySquare);
+        this.changedSquares = other.changedSquares.clone();
+        this.squaresToRecalculate = Bitboards.create();
+    }
+
+    AttackMaps copy() {
+        return new AttackMaps(this);
+    }
+
+    private static AttackRule[][] createAttackRules(Board board) {
+        AttackRule[][] attackRules = new AttackRule[board.pieces.length][];
+        for (Piece piece : board.pieces) {
+            int verticalSign = piece.color().equals(Color.WHITE) ? 1 : -1;
+            List<AttackRule> rules = new ArrayList<>();
+            for (MovementRule movementRule : piece.type().movementRules()) {
+                if (movementRule.hasModifier(MovementModifier.CASTLING)
+                        || movementRule.hasModifier(MovementModifier.ONLY_NON_CAPTURES)) {
+                    continue;
+                }
+                rules.add(new AttackRule(board.getMailboxOffset(movementRule.dx(), movementRule.dy() * verticalSign),
+                        movementRule.minSteps(), movementRule.maxSteps(),
+                        movementRule.hasModifier(MovementModifier.ONLY_UNMOVED)));
+            }
+            attackRules[2 * piece.type().id() + piece.color().ordinal()] = rules.toArray(new AttackRule[0]);
+        }
+        return attackRules;
+    }
+
+    // Returns the number of pieces of the given color that attack the given square
+    public int getAttackCount(Color color, int squareIndex) {
+        return this.attackCounts[color.ordinal()][squareIndex];
+    }
+
+    public boolean isAttacked(int squareIndex, Color attackingColor) {
+        return this.attackCounts[attackingColor.ordinal()][squareIndex] > 0;
+    }
+
+    // The returned bitboards are the live internal ones and must not be modified by the caller
+
+    // Contains all squares attacked by at least one piece of the given color
+    public long[] getAttackedBitboard(Color color) {
+        return this.attackedBitboards[color.ordinal()];
+    }
+
+    // Contains all squares attacked by the piece on the given square (empty if there is no piece), e.g. for mobility
+    public long[] getAttacksFrom(int squareIndex) {
+        return this.attacksBySquare[squareIndex];
+    }
+
+    void markChanged(int squareIndex) {
+        Bitboards.set(this.changedSquares, squareIndex);
+    }
+
+    // Brings the maps up to date with the board after the squares marked via markChanged() have changed. Pieces whose
+    // rays pass through a changed square are recalculated as well, since their rays may now be cut off or extended.
+    void update(Board board) {
+        long[] squaresToRecalculate = this.squaresToRecalculate;
+        System.arraycopy(this.changedSquares, 0, squaresToRecalculate, 0, Bitboards.WORDS);
+        for (int changedSquare = Bitboards.nextSetBit(this.changedSquares, 0); changedSquare >= 0;
+             changedSquare = Bitboards.nextSetBit(this.changedSquares, changedSquare + 1)) {
+            long[] rayOwners = this.rayOwnersBySquare[changedSquare];
+            for (int i = 0; i < Bitboards.WORDS; i++) {
+                squaresToRecalculate[i] |= rayOwners[i];
+            }
+            Bitboards.clear(this.changedSquares, changedSquare);
+        }
+
+        for (int squareIndex = Bitboards.nextSetBit(squaresToRecalculate, 0); squareIndex >= 0;
+             squareIndex = Bitboards.nextSetBit(squaresToRecalculate, squareIndex + 1)) {
+            removeAttacks(squareIndex);
+        }
+        for (int squareIndex = Bitboards.nextSetBit(squaresToRecalculate, 0); squareIndex >= 0;
+             squareIndex = Bitboards.nextSetBit(squaresToRecalculate, squareIndex + 1)) {
+            addAttacks(board, squareIndex);
+        }
+    }
+
+    private void removeAttacks(int squareIndex) {
+        int colorOrdinal = this.attackerColorOrdinals[squareIndex];
+        if (colorOrdinal < 0) {
+            return;
+        }
+        this.attackerColorOrdinals[squareIndex] = -1;
+
+        int[] attackCounts = this.attackCounts[colorOrdinal];
+        long[] attacks = this.attacksBySquare[squareIndex];
+        for (int target = Bitboards.nextSetBit(attacks, 0); target >= 0;
+             target = Bitboards.nextSetBit(attacks, target + 1)) {
+            if (--attackCounts[target] == 0) {
+                Bitboards.clear(this.attackedBitboards[colorOrdinal], target);
+            }
+        }
+
+        long[] rays = this.raysBySquare[squareIndex];
+        for (int raySquare = Bitboards.nextSetBit(rays, 0); raySquare >= 0;
+             raySquare = Bitboards.nextSetBit(rays, raySquare + 1)) {
+            Bitboards.clear(this.rayOwnersBySquare[raySquare], squareIndex);
+        }
+
+        for (int i = 0; i < Bitboards.WORDS; i++) {
+            attacks[i] = 0;
+            rays[i] = 0;
+        }
+    }
+
+    private void addAttacks(Board board, int squareIndex) {
+        Square square = board.getSquare(squareIndex);
+        int fromIndex = board.getMailboxIndex(square.x(), square.y());
+        Piece piece = board.getPieceAtMailboxIndex(fromIndex);
+        if (piece == null) {
+            return;
+        }
+        int colorOrdinal = piece.color().ordinal();
+        this.attackerColorOrdinals[squareIndex] = colorOrdinal;
+
+        int[] attackCounts = this.attackCounts[colorOrdinal];
+        long[] attacks = this.attacksBySquare[squareIndex];
+        long[] rays = this.raysBySquare[squareIndex];
+        boolean isUnmoved = board.isUnmovedAtMailboxIndex(fromIndex);
+
+        for (AttackRule attackRule : this.attackRules[2 * piece.type().id() + colorOrdinal]) {
+            if (attackRule.onlyUnmoved() && !isUnmoved) {
+                continue;
+            }
+            int toIndex = fromIndex;
+            for (int steps = 1; steps <= attackRule.maxSteps(); steps++) {
+                toIndex += attackRule.mailboxOffset();
+                Piece toPiece = board.getPieceAtMailboxIndex(toIndex);
+                if (toPiece == Board.OFF_BOARD) {
+                    break;
+                }
+                int target = board.getSquareIndexAtMailboxIndex(toIndex);
+
+                if (steps >= attackRule.minSteps() && !Bitboards.isSet(attacks, target)) {
+                    Bitboards.set(attacks, target);
+                    if (attackCounts[target]++ == 0) {
+                        Bitboards.set(this.attackedBitboards[colorOrdinal], target);
+                    }
+                }
+                // Only squares from which the ray could continue limit it, this excludes the squares of leapers
+                if (steps < attackRule.maxSteps()) {
+                    Bitboards.set(rays, target);
+                    Bitboards.set(this.rayOwnersBySquare[target], squareIndex);
+                }
+                if (toPiece != null) {
+                    break;
+                }
+            }
+        }
+    }
+}
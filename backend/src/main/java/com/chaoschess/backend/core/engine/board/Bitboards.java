@@ -0,0 +1,80 @@
+package com.chaoschess.backend.core.engine.board;
+
+// Multi-word bitboards covering boards up to MAX_BOARD_SIZE x MAX_BOARD_SIZE squares. Bit i of a bitboard represents
+// the square with index i, see Board.getSquareIndex()
+public final class Bitboards {
+
+    public static final int WORDS = (Board.MAX_BOARD_SIZE * Board.MAX_BOARD_SIZE + 63) / 64;
+
+    private Bitboards() {}
+
+    public static long[] create() {
+        return new long[WORDS];
+    }
+
+    public static boolean isSet(long[] bitboard, int squareIndex) {
+        return (bitboard[squareIndex >>> 6] & (1L << squareIndex)) != 0;
+    }
+
+    public static void set(long[] bitboard, int squareIndex) {
+        bitboard[squareIndex >>> 6] |= (1L << squareIndex);
+    }
+
+    public static void clear(long[] bitboard, int squareIndex) {
+        bitboard[squareIndex >>> 6] &= ~(1L << squareIndex);
+    }
+
+    public static boolean isEmpty(long[] bitboard) {
+        for (long word : bitboard) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int popCount(long[] bitboard) {
+        int count = 0;
+        for (long word : bitboard) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static boolean intersects(long[] a, long[] b) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int popCountIntersection(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0; i < WORDS; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    // Returns the index of the first set bit at or after fromIndex, or -1 if there is none. Allows iterating over all
+    // set squares the same way as with java.util.BitSet:
+    // for (int i = nextSetBit(bitboard, 0); i >= 0; i = nextSetBit(bitboard, i + 1)) { ... }
+    public static int nextSetBit(long[] bitboard, int fromIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= WORDS) {
+            return -1;
+        }
+        long word = bitboard[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == WORDS) {
+                return -1;
+            }
+            word = bitboard[wordIndex];
+        }
+    }
+}
@@ -1,21 +1,19 @@
 package com.chaoschess.backend.core.engine.board;
 
 import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MoveEncoding;
 import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.MovementRule;
 import com.chaoschess.backend.core.model.Piece;
 import com.chaoschess.backend.core.model.PieceRole;
 import com.chaoschess.backend.core.model.PieceType;
+import com.chaoschess.backend.core.model.PieceTypes;
 import com.chaoschess.backend.core.model.Square;
 import com.chaoschess.backend.core.utils.ZobristKeys;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,21 +22,51 @@ public class Board {
     public static final int MIN_BOARD_SIZE = 6;
     public static final int MAX_BOARD_SIZE = 12;
 
+    // Sentinel stored in the border squares of the mailbox, see getPieceAtMailboxIndex()
+    public static final Piece OFF_BOARD = new Piece(null, null);
+
     public static final String STANDARD_INITIAL_BOARD_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
 
     final int width;
     final int height;
     final Square[][] squares;
-    final Piece[][] pieceGrid;
-    final boolean[][] isUnmovedGrid;
-    final Map<Color, Set<Square>> pieceLocs;
-    final Map<Color, Set<Square>> castlingPartnerLocs;
+    final Square[] squaresByIndex;
+    // The pieces are stored in a one-dimensional mailbox surrounded by a border of OFF_BOARD sentinels that is as wide
+    // as the longest single step of any loaded movement rule, so that walking a ray never leaves the array
+    final int mailboxPadding;
+    final int mailboxStride;
+    final Piece[] mailbox;
+    final boolean[] isUnmovedMailbox;
+    final Square[] squaresByMailboxIndex;
+    final int[] squareIndicesByMailboxIndex;
     final Map<Color, Square> kingLocs;
+    // Piece lists and occupancy bitboards, indexed by color ordinal or piece type ID (the piece type bitboards contain
+    // the pieces of both colors). The castling partner bitboards contain all ROOK_LIKE pieces of the respective color.
+    final PieceList[] pieceLists;
+    final long[][] colorBitboards;
+    final long[][] pieceTypeBitboards;
+    final long[][] castlingPartnerBitboards;
     final Set<PieceType> promoOptions;
-    private final Deque<Square> enPassantMoveTargetHistory;
-    private final Deque<Square> enPassantCaptureTargetHistory;
-    private final Deque<Integer> halfmoveClockHistory;
-    private final List<Long> zobristHashHistory;
+    // IDs of the promotion options in the iteration order of promoOptions, see addPromoOption()
+    int[] promoPieceTypeIds;
+    // One shared Piece instance per piece type and color, indexed by 2 * piece type ID + color ordinal, so that
+    // promotions do not need to allocate
+    final Piece[] pieces;
+    // Movement rules of every piece type in the iteration order of PieceType.movementRules(), indexed by piece type ID
+    final MovementRule[][] movementRules;
+    // Shared by all boards of the same size and piece types, see MoveTables.get()
+    final MoveTables moveTables;
+    final AttackDetector attackDetector;
+    final PinsAndChecks pinsAndChecks;
+    private final UndoStack undoStack;
+    // Material and PST sums indexed by color ordinal, only maintained while score tables are set
+    final int[] materialValues;
+    final int[] nonPawnMaterialValues;
+    final int[] midgamePSTValues;
+    final int[] endgamePSTValues;
+    ScoreTables scoreTables;
+    // Only maintained once enabled, see enableAttackMaps()
+    AttackMaps attackMaps;
 
     Color colorToMove;
     Square enPassantMoveTarget;
@@ -46,53 +74,107 @@ public class Board {
     int halfmoveClock;
     int fullmoveNumber;
     long zobristHash;
+    // History length right after the last null move that can still be unmade, 0 if there is none
+    private int nullMoveHistoryLength;
 
     public int getWidth() { return this.width; }
     public int getHeight() { return this.height; }
-    public Map<Color, Set<Square>> getPieceLocs() { return this.pieceLocs; }
-    public Map<Color, Set<Square>> getCastlingPartnerLocs() { return this.castlingPartnerLocs; }
     public Map<Color, Square> getKingLocs() { return this.kingLocs; }
+    // The returned piece lists and bitboards are the live internal ones and must not be modified by the caller
+    public PieceList getPieceList(Color color) { return this.pieceLists[color.ordinal()]; }
+    public long[] getColorBitboard(Color color) { return this.colorBitboards[color.ordinal()]; }
+    public long[] getPieceTypeBitboard(PieceType pieceType) { return this.pieceTypeBitboards[pieceType.id()]; }
+    public long[] getCastlingPartnerBitboard(Color color) { return this.castlingPartnerBitboards[color.ordinal()]; }
     public Set<PieceType> getPromoOptions() { return this.promoOptions; }
+    public int[] getPromoPieceTypeIds() { return this.promoPieceTypeIds; }
     public Color getColorToMove() { return this.colorToMove; }
     public Square getEnPassantMoveTarget() { return this.enPassantMoveTarget; }
     public Square getEnPassantCaptureTarget() { return this.enPassantCaptureTarget; }
     public int getHalfmoveClock() { return this.halfmoveClock; }
     public int getFullmoveNumber() { return this.fullmoveNumber; }
     public long getZobristHash() {return this.zobristHash; }
-    public List<Long> getZobristHashHistory() {return this.zobristHashHistory; }
+    // Number of moves that can currently be unmade, which is also the length of the zobrist hash history
+    public int getHistoryLength() { return this.undoStack.size; }
+    // Number of moves made since the last null move (or the whole history if there is none), see makeNullMove()
+    public int getPliesSinceNullMove() { return this.undoStack.size - this.nullMoveHistoryLength; }
+    public ScoreTables getScoreTables() { return this.scoreTables; }
+    public AttackMaps getAttackMaps() { return this.attackMaps; }
+    public MoveTables getMoveTables() { return this.moveTables; }
+    public int getMaterialValue(Color color) { return this.materialValues[color.ordinal()]; }
+    public int getNonPawnMaterialValue(Color color) { return this.nonPawnMaterialValues[color.ordinal()]; }
+    public int getMidgamePSTValue(Color color) { return this.midgamePSTValues[color.ordinal()]; }
+    public int getEndgamePSTValue(Color color) { return this.endgamePSTValues[color.ordinal()]; }
+
+    Board(int width, int height, PieceTypes pieceTypes) {
+        MoveEncoding.checkSupported(width, height, pieceTypes);
 
-    Board(int width, int height) {
         this.width = width;
         this.height = height;
 
         this.squares = new Square[this.width][this.height];
+        this.squaresByIndex = new Square[this.width * this.height];
         for (int x = 0; x < this.width; x++) {
             for (int y = 0; y < this.height; y++) {
                 this.squares[x][y] = new Square(x, y);
+                this.squaresByIndex[getSquareIndex(x, y)] = this.squares[x][y];
             }
         }
 
-        this.pieceGrid = new Piece[this.width][this.height];
-        this.isUnmovedGrid = new boolean[this.width][this.height];
-
-        this.pieceLocs = new EnumMap<>(Color.class);
-        this.castlingPartnerLocs = new EnumMap<>(Color.class);
-        for (Color color : Color.values()) {
-            this.pieceLocs.put(color, new HashSet<>());
-            this.castlingPartnerLocs.put(color, new HashSet<>());
+        this.mailboxPadding = calculateMailboxPadding(pieceTypes);
+        this.mailboxStride = this.width + 2 * this.mailboxPadding;
+        int mailboxSize = this.mailboxStride * (this.height + 2 * this.mailboxPadding);
+        this.mailbox = new Piece[mailboxSize];
+        this.isUnmovedMailbox = new boolean[mailboxSize];
+        this.squaresByMailboxIndex = new Square[mailboxSize];
+        this.squareIndicesByMailboxIndex = new int[mailboxSize];
+        Arrays.fill(this.mailbox, OFF_BOARD);
+        Arrays.fill(this.squareIndicesByMailboxIndex, -1);
+        for (int x = 0; x < this.width; x++) {
+            for (int y = 0; y < this.height; y++) {
+                int mailboxIndex = getMailboxIndex(x, y);
+                this.mailbox[mailboxIndex] = null;
+                this.squaresByMailboxIndex[mailboxIndex] = this.squares[x][y];
+                this.squareIndicesByMailboxIndex[mailboxIndex] = getSquareIndex(x, y);
+            }
         }
+
         this.kingLocs = new EnumMap<>(Color.class);
 
+        this.pieceLists = new PieceList[Color.values().length];
+        for (int i = 0; i < this.pieceLists.length; i++) {
+            this.pieceLists[i] = new PieceList(this.width * this.height);
+        }
+        this.colorBitboards = new long[Color.values().length][Bitboards.WORDS];
+        this.pieceTypeBitboards = new long[pieceTypes.pieceTypesMap().size()][Bitboards.WORDS];
+        this.castlingPartnerBitboards = new long[Color.values().length][Bitboards.WORDS];
+
         this.promoOptions = new HashSet<>();
+        this.promoPieceTypeIds = new int[0];
+
+        this.pieces = new Piece[2 * pieceTypes.pieceTypesMap().size()];
+        for (PieceType pieceType : pieceTypes.pieceTypesMap().values()) {
+            for (Color color : Color.values()) {
+                this.pieces[2 * pieceType.id() + color.ordinal()] = new Piece(pieceType, color);
+            }
+        }
 
-        // Using LinkedList instead of ArrayDeque as the Deque implementation because the latter does not permit null
-        // elements, which are required here
-        this.enPassantMoveTargetHistory = new LinkedList<>();
-        this.enPassantCaptureTargetHistory = new LinkedList<>();
+        this.movementRules = new MovementRule[pieceTypes.pieceTypesMap().size()][];
+        for (PieceType pieceType : pieceTypes.pieceTypesMap().values()) {
+            this.movementRules[pieceType.id()] = pieceType.movementRules().toArray(new MovementRule[0]);
+        }
 
-        this.halfmoveClockHistory = new ArrayDeque<>();
-        // Using List instead of Deque because get(i) is required to check for threefold repetition
-        this.zobristHashHistory = new ArrayList<>();
+        this.moveTables = MoveTables.get(this, pieceTypes);
+        this.attackDetector = new AttackDetector(this, pieceTypes.pieceTypesMap().size());
+        this.pinsAndChecks = new PinsAndChecks(this.width * this.height);
+
+        this.undoStack = new UndoStack();
+
+        this.materialValues = new int[Color.values().length];
+        this.nonPawnMaterialValues = new int[Color.values().length];
+        this.midgamePSTValues = new int[Color.values().length];
+        this.endgamePSTValues = new int[Color.values().length];
+        this.scoreTables = null;
+        this.attackMaps = null;
 
         this.colorToMove = Color.WHITE;
         this.enPassantMoveTarget = null;
@@ -102,13 +184,21 @@ public class Board {
         this.fullmoveNumber = 1;
 
         this.zobristHash = 0L;
+        this.nullMoveHistoryLength = 0;
     }
 
     public Board deepCopy() {
-        return new Board(this);
+        return new Board(this, this.undoStack.size);
+    }
+
+    // Returns a copy whose history only reaches back to the last capture or pawn move, which is all the threefold
+    // repetition check needs, since no earlier position can be repeated. Unlike deepCopy(), the cost does not grow with
+    // the number of moves played, but moves made before the snapshot was taken cannot be unmade on it.
+    public Board snapshot() {
+        return new Board(this, Math.min(this.halfmoveClock, this.undoStack.size));
     }
 
-    private Board(Board other) {
+    private Board(Board other, int historyLength) {
         // Primitives and immutable finals can be assigned directly
         this.width = other.width;
         this.height = other.height;
@@ -120,33 +210,114 @@ public class Board {
 
         // Immutable containers with immutable contents can also be assigned directly
         this.squares = other.squares;
+        this.squaresByIndex = other.squaresByIndex;
         this.promoOptions = other.promoOptions;
+        this.promoPieceTypeIds = other.promoPieceTypeIds;
+        this.pieces = other.pieces;
+        this.movementRules = other.movementRules;
+        this.moveTables = other.moveTables;
+        this.attackDetector = other.attackDetector;
+        this.pinsAndChecks = new PinsAndChecks(this.width * this.height);
+
+        this.mailboxPadding = other.mailboxPadding;
+        this.mailboxStride = other.mailboxStride;
+        this.squaresByMailboxIndex = other.squaresByMailboxIndex;
+        this.squareIndicesByMailboxIndex = other.squareIndicesByMailboxIndex;
+
+        // Shallow copies of the mailbox arrays are sufficient since their elements are immutable
+        this.mailbox = other.mailbox.clone();
+        this.isUnmovedMailbox = other.isUnmovedMailbox.clone();
+
+        // A shallow copy of the kingLocs map is sufficient since its elements are immutable
+        this.kingLocs = new EnumMap<>(other.kingLocs);
 
-        // Shallow copies of the inner arrays are sufficient since their elements are immutable
-        this.pieceGrid = new Piece[this.width][];
-        this.isUnmovedGrid = new boolean[this.width][];
-        for (int x = 0; x < this.width; x++) {
-            this.pieceGrid[x] = Arrays.copyOf(other.pieceGrid[x], this.height);
-            this.isUnmovedGrid[x] = Arrays.copyOf(other.isUnmovedGrid[x], this.height);
+        this.pieceLists = new PieceList[other.pieceLists.length];
+        for (int i = 0; i < this.pieceLists.length; i++) {
+            this.pieceLists[i] = other.pieceLists[i].copy();
+        }
+        this.colorBitboards = copyBitboards(other.colorBitboards);
+        this.pieceTypeBitboards = copyBitboards(other.pieceTypeBitboards);
+        this.castlingPartnerBitboards = copyBitboards(other.castlingPartnerBitboards);
+
+        this.undoStack = other.undoStack.copyTop(historyLength);
+
+        this.materialValues = other.materialValues.clone();
+        this.nonPawnMaterialValues = other.nonPawnMaterialValues.clone();
+        this.midgamePSTValues = other.midgamePSTValues.clone();
+        this.endgamePSTValues = other.endgamePSTValues.clone();
+        this.scoreTables = other.scoreTables;
+        this.attackMaps = other.attackMaps != null ? other.attackMaps.copy() : null;
+
+        this.zobristHash = other.zobristHash;
+        // The history is cut off at the bottom, so it is shifted by the number of dropped entries
+        this.nullMoveHistoryLength = Math.max(0, other.nullMoveHistoryLength - (other.undoStack.size - historyLength));
+    }
+
+    static long[][] copyBitboards(long[][] bitboards) {
+        long[][] copy = new long[bitboards.length][];
+        for (int i = 0; i < bitboards.length; i++) {
+            copy[i] = bitboards[i].clone();
         }
+        return copy;
+    }
 
-        // Shallow copies of the inner sets of pieceLocs and castlingPartnerLocs and of the kingLocs map are sufficient
-        // since their elements are immutable
-        this.pieceLocs = new EnumMap<>(Color.class);
-        this.castlingPartnerLocs = new EnumMap<>(Color.class);
+    // Sets the tables used for the incrementally maintained material and PST sums and recounts the sums from scratch.
+    // Until score tables are set, the sums are all zero.
+    public void setScoreTables(ScoreTables scoreTables) {
+        if (scoreTables.width() != this.width || scoreTables.height() != this.height) {
+            throw new IllegalArgumentException("Score tables for a " + scoreTables.width() + "x"
+                    + scoreTables.height() + " board cannot be used for a " + this.width + "x" + this.height
+                    + " board.");
+        }
+        this.scoreTables = scoreTables;
+        recountScores(this.materialValues, this.nonPawnMaterialValues, this.midgamePSTValues, this.endgamePSTValues);
+    }
+
+    private void recountScores(int[] materialValues, int[] nonPawnMaterialValues, int[] midgamePSTValues,
+                               int[] endgamePSTValues) {
         for (Color color : Color.values()) {
-            this.pieceLocs.put(color, new HashSet<>(other.pieceLocs.get(color)));
-            this.castlingPartnerLocs.put(color, new HashSet<>(other.castlingPartnerLocs.get(color)));
+            int ordinal = color.ordinal();
+            materialValues[ordinal] = 0;
+            nonPawnMaterialValues[ordinal] = 0;
+            midgamePSTValues[ordinal] = 0;
+            endgamePSTValues[ordinal] = 0;
+
+            PieceList pieceList = this.pieceLists[ordinal];
+            for (int slot = 0; slot < pieceList.size(); slot++) {
+                int squareIndex = pieceList.get(slot);
+                PieceType pieceType = getPieceAt(getSquare(squareIndex)).type();
+                int materialValue = this.scoreTables.getMaterialValue(pieceType.id());
+                materialValues[ordinal] += materialValue;
+                if (pieceType.role() != PieceRole.PAWN_LIKE) {
+                    nonPawnMaterialValues[ordinal] += materialValue;
+                }
+                midgamePSTValues[ordinal] += this.scoreTables.getMidgamePSTValue(pieceType.id(), ordinal, squareIndex);
+                endgamePSTValues[ordinal] += this.scoreTables.getEndgamePSTValue(pieceType.id(), ordinal, squareIndex);
+            }
         }
-        this.kingLocs = new EnumMap<>(other.kingLocs);
+    }
 
-        // Shallow copies of the stacks are sufficient since their elements are immutable
-        this.enPassantMoveTargetHistory = new LinkedList<>(other.enPassantMoveTargetHistory);
-        this.enPassantCaptureTargetHistory = new LinkedList<>(other.enPassantCaptureTargetHistory);
-        this.halfmoveClockHistory = new LinkedList<>(other.halfmoveClockHistory);
-        this.zobristHashHistory = new ArrayList<>(other.zobristHashHistory);
+    // Compares the incrementally maintained sums with a full recount, only used in assertions
+    private boolean areScoresConsistent() {
+        if (this.scoreTables == null) {
+            return true;
+        }
+        int colorCount = Color.values().length;
+        int[] materialValues = new int[colorCount];
+        int[] nonPawnMaterialValues = new int[colorCount];
+        int[] midgamePSTValues = new int[colorCount];
+        int[] endgamePSTValues = new int[colorCount];
+        recountScores(materialValues, nonPawnMaterialValues, midgamePSTValues, endgamePSTValues);
+        return Arrays.equals(materialValues, this.materialValues)
+                && Arrays.equals(nonPawnMaterialValues, this.nonPawnMaterialValues)
+                && Arrays.equals(midgamePSTValues, this.midgamePSTValues)
+                && Arrays.equals(endgamePSTValues, this.endgamePSTValues);
+    }
 
-        this.zobristHash = other.zobristHash;
+    // Calculates the attack maps from scratch and keeps them up to date during makeMove()/unmakeMove() from then on.
+    // This makes attack queries O(1) at the cost of slower moves, so it is opt-in.
+    public void enableAttackMaps() {
+        this.attackMaps = new AttackMaps(this);
     }
 
     long calculateFullZobristHash() {
@@ -154,10 +325,10 @@ public class Board {
 
         for (int x = 0; x < this.width; x++) {
             for (int y = 0; y < this.height; y++) {
-                Piece piece = this.pieceGrid[x][y];
+                Piece piece = getPieceAt(x, y);
                 if (piece != null) {
                     hash ^= ZobristKeys.getPieceSquareKey(piece.type().id(), x, y, piece.color().ordinal());
-                    if (this.isUnmovedGrid[x][y]) {
+                    if (isUnmovedAt(x, y)) {
                         hash ^= ZobristKeys.getIsUnmovedKey(x, y, piece.color().ordinal());
                     }
                 }
@@ -179,6 +350,74 @@ public class Board {
         return squares[x][y];
     }
 
+    public Square getSquare(int squareIndex) {
+        return this.squaresByIndex[squareIndex];
+    }
+
+    // Square indices run row by row starting at the bottom left corner (unlike the frontend square indices, see
+    // BoardUtils.coordsToSquareIndex()) and are used as bit positions in the bitboards
+    public int getSquareIndex(int x, int y) {
+        return y * this.width + x;
+    }
+
+    public int getSquareIndex(Square square) {
+        return getSquareIndex(square.x(), square.y());
+    }
+
+    // --- MAILBOX ACCESS ---
+    // Mailbox indices are only meaningful for the board they were obtained from, since the padding and therefore the
+    // stride depend on the board width and on the loaded piece types
+
+    public int getMailboxIndex(int x, int y) {
+        return (y + this.mailboxPadding) * this.mailboxStride + (x + this.mailboxPadding);
+    }
+
+    public int getMailboxIndex(Square square) {
+        return getMailboxIndex(square.x(), square.y());
+    }
+
+    // Index difference of a single step by (dx, dy), valid for any step no longer than the mailbox padding
+    public int getMailboxOffset(int dx, int dy) {
+        return dy * this.mailboxStride + dx;
+    }
+
+    // Returns the piece at the given mailbox index, null for an empty square, or OFF_BOARD for a border square
+    public Piece getPieceAtMailboxIndex(int mailboxIndex) {
+        return this.mailbox[mailboxIndex];
+    }
+
+    public boolean isUnmovedAtMailboxIndex(int mailboxIndex) {
+        return this.isUnmovedMailbox[mailboxIndex];
+    }
+
+    public Square getSquareAtMailboxIndex(int mailboxIndex) {
+        return this.squaresByMailboxIndex[mailboxIndex];
+    }
+
+    public int getSquareIndexAtMailboxIndex(int mailboxIndex) {
+        return this.squareIndicesByMailboxIndex[mailboxIndex];
+    }
+
+    private static int calculateMailboxPadding(PieceTypes pieceTypes) {
+        int padding = 1;
+        for (PieceType pieceType : pieceTypes.pieceTypesMap().values()) {
+            for (MovementRule movementRule : pieceType.movementRules()) {
+                padding = Math.max(padding, Math.max(Math.abs(movementRule.dx()), Math.abs(movementRule.dy())));
+            }
+        }
+        return padding;
+    }
+
+    public boolean isOccupied(int x, int y) {
+        int squareIndex = getSquareIndex(x, y);
+        return (Bitboards.isSet(this.colorBitboards[0], squareIndex)
+                || Bitboards.isSet(this.colorBitboards[1], squareIndex));
+    }
+
+    public boolean isOccupiedBy(int x, int y, Color color) {
+        return Bitboards.isSet(this.colorBitboards[color.ordinal()], getSquareIndex(x, y));
+    }
+
     public boolean isInBounds(int x, int y) {
         return x >= 0 && x < this.width && y >= 0 && y < this.height;
     }
@@ -189,7 +428,7 @@ public class Board {
 
     // TODO: This method exists here and in ImmutableBoard, remove it here or there
     public Piece getPieceAt(int x, int y) {
-        return this.pieceGrid[x][y];
+        return this.mailbox[getMailboxIndex(x, y)];
     }
 
     // TODO: This method exists here and in ImmutableBoard, remove it here or there
@@ -198,297 +437,415 @@ public class Board {
     }
 
     public boolean isUnmovedAt(int x, int y) {
-        return this.isUnmovedGrid[x][y];
+        return this.isUnmovedMailbox[getMailboxIndex(x, y)];
     }
 
     public boolean isUnmovedAt(Square square) {
         return isUnmovedAt(square.x(), square.y());
     }
 
+    public Piece getPiece(PieceType pieceType, Color color) {
+        return this.pieces[2 * pieceType.id() + color.ordinal()];
+    }
+
+    public Piece getPiece(int pieceTypeId, Color color) {
+        return this.pieces[2 * pieceTypeId + color.ordinal()];
+    }
+
+    public Piece getPieceAt(int squareIndex) {
+        Square square = this.squaresByIndex[squareIndex];
+        return getPieceAt(square.x(), square.y());
+    }
+
+    // Returns the zobrist hash of the position before the given move of the history, where 0 is the first move that
+    // can be unmade and getHistoryLength() - 1 the last one
+    public long getHistoricZobristHash(int historyIndex) {
+        return this.undoStack.zobristHashes[historyIndex];
+    }
+
+    // Uses the attack maps if they are enabled and otherwise walks the attacking movement rules backwards from the
+    // square, see AttackDetector
+    public boolean isSquareAttacked(int squareIndex, Color attackingColor) {
+        if (this.attackMaps != null) {
+            return this.attackMaps.isAttacked(squareIndex, attackingColor);
+        }
+        return this.attackDetector.isSquareAttacked(this, squareIndex, attackingColor);
+    }
+
+    // Like isSquareAttacked(), but treats the square with the given square index as empty
+    public boolean isSquareAttackedIgnoring(int squareIndex, Color attackingColor, int ignoredSquareIndex) {
+        return this.attackDetector.isSquareAttacked(this, squareIndex, attackingColor, ignoredSquareIndex);
+    }
+
+    // Returns the board's PinsAndChecks instance, filled for the king of the given color
+    public PinsAndChecks calculatePinsAndChecks(Color kingColor) {
+        this.attackDetector.calculatePinsAndChecks(this, kingColor, this.pinsAndChecks);
+        return this.pinsAndChecks;
+    }
+
+    public boolean isKingInCheck(Color kingColor) {
+        return isSquareAttacked(getSquareIndex(this.kingLocs.get(kingColor)), kingColor.getOpponent());
+    }
+
     public int getBackRankIndex(Color color) {
         return color.equals(Color.WHITE) ? 0 : (this.height - 1);
     }
 
     public boolean isKingUnmoved(Color kingColor) {
         Square kingLoc = this.kingLocs.get(kingColor);
-        // TODO: Write a method for isUnmoved query with a Square object as input parameter
-        return this.isUnmovedGrid[kingLoc.x()][kingLoc.y()];
+        return isUnmovedAt(kingLoc);
     }
 
-    public void makeMove(Move move) {
-        Square from = move.getFrom();
-        Square to;
-        if (!move.getIsCastling()) {
-            to = move.getTo();
-        } else {
-            if (from.x() > move.getTo().x()) {
-                // Long castling
-                to = getSquare(2, from.y());
-            } else {
-                // Short castling
-                to = getSquare(this.width - 2, from.y());
-            }
-        }
-        Piece movingPiece = move.getMovingPiece();
-        Color movingColor = movingPiece.color();
 
-        // --- ALL MOVES ---
+    // Used by BoardFactory during board setup. The zobrist hash has to be recalculated once the setup is complete.
+    void placePiece(Piece piece, int x, int y, boolean isUnmoved) {
+        putPiece(piece, x, y);
+        this.pieceLists[piece.color().ordinal()].add(getSquareIndex(x, y));
+        setUnmovedFlag(x, y, isUnmoved);
+    }
 
-        this.zobristHashHistory.add(this.zobristHash);
+    // Used by BoardFactory during board setup
+    void addPromoOption(PieceType pieceType) {
+        this.promoOptions.add(pieceType);
+        this.promoPieceTypeIds = this.promoOptions.stream().mapToInt(PieceType::id).toArray();
+    }
 
-        this.colorToMove = this.colorToMove.getOpponent();
-        this.zobristHash ^= ZobristKeys.getColorToMoveKey(this.colorToMove.ordinal());
-        this.zobristHash ^= ZobristKeys.getColorToMoveKey(this.colorToMove.getOpponent().ordinal());
+    // Used by BoardFactory during board setup, see placePiece()
+    void setUnmovedFlag(int x, int y, boolean isUnmoved) {
+        this.isUnmovedMailbox[getMailboxIndex(x, y)] = isUnmoved;
+    }
 
-        this.pieceGrid[from.x()][from.y()] = null;
-        this.pieceGrid[to.x()][to.y()] = movingPiece;
-        this.pieceLocs.get(movingColor).remove(from);
-        this.pieceLocs.get(movingColor).add(to);
-        if (movingPiece.type().role().equals(PieceRole.ROOK_LIKE)) {
-            this.castlingPartnerLocs.get(movingColor).remove(from);
-            this.castlingPartnerLocs.get(movingColor).add(to);
-        }
-        this.zobristHash ^= ZobristKeys.getPieceSquareKey(movingPiece.type().id(), from.x(), from.y(),
-                movingColor.ordinal());
-        this.zobristHash ^= ZobristKeys.getPieceSquareKey(movingPiece.type().id(), to.x(), to.y(),
-                movingColor.ordinal());
+    // Places a piece on an empty square and updates the mailbox, the bitboards and the zobrist hash accordingly. The
+    // piece lists are maintained separately by the callers, since moving pieces keep their slots.
+    private void putPiece(Piece piece, int x, int y) {
+        Color color = piece.color();
+        int squareIndex = getSquareIndex(x, y);
 
-        if (move.getMovingPieceWasUnmoved()) {
-            // TODO: Add a private setter for this with a Square object as input parameter
-            this.isUnmovedGrid[from.x()][from.y()] = false;
-            this.zobristHash ^= ZobristKeys.getIsUnmovedKey(from.x(), from.y(), movingColor.ordinal());
+        this.mailbox[getMailboxIndex(x, y)] = piece;
+        Bitboards.set(this.colorBitboards[color.ordinal()], squareIndex);
+        Bitboards.set(this.pieceTypeBitboards[piece.type().id()], squareIndex);
+        if (piece.type().role().equals(PieceRole.ROOK_LIKE)) {
+            Bitboards.set(this.castlingPartnerBitboards[color.ordinal()], squareIndex);
+        } else if (piece.type().role().equals(PieceRole.KING_LIKE)) {
+            this.kingLocs.put(color, this.squares[x][y]);
         }
-        if (movingPiece.type().role().equals(PieceRole.KING_LIKE)) {
-            this.kingLocs.put(movingColor, to);
+        this.zobristHash ^= ZobristKeys.getPieceSquareKey(piece.type().id(), x, y, color.ordinal());
+        if (this.scoreTables != null) {
+            updateScores(piece, squareIndex, 1);
         }
-
-        if (this.enPassantMoveTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantMoveTarget.x(),
-                    this.enPassantMoveTarget.y());
-        }
-        this.enPassantMoveTargetHistory.push(this.enPassantMoveTarget);
-        this.enPassantMoveTarget = move.getNewEnPassantMoveTarget();
-        if (this.enPassantMoveTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantMoveTarget.x(),
-                    this.enPassantMoveTarget.y());
+        if (this.attackMaps != null) {
+            this.attackMaps.markChanged(squareIndex);
         }
+    }
 
-        if (this.enPassantCaptureTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantCaptureTarget.x(),
-                    this.enPassantCaptureTarget.y());
-        }
-        this.enPassantCaptureTargetHistory.push(this.enPassantCaptureTarget);
-        this.enPassantCaptureTarget = move.getNewEnPassantCaptureTarget();
-        if (this.enPassantCaptureTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantCaptureTarget.x(),
-                    this.enPassantCaptureTarget.y());
+    // Counterpart of putPiece(), returns the removed piece
+    private Piece takePiece(int x, int y) {
+        int mailboxIndex = getMailboxIndex(x, y);
+        Piece piece = this.mailbox[mailboxIndex];
+        Color color = piece.color();
+        int squareIndex = getSquareIndex(x, y);
+
+        this.mailbox[mailboxIndex] = null;
+        Bitboards.clear(this.colorBitboards[color.ordinal()], squareIndex);
+        Bitboards.clear(this.pieceTypeBitboards[piece.type().id()], squareIndex);
+        Bitboards.clear(this.castlingPartnerBitboards[color.ordinal()], squareIndex);
+        this.zobristHash ^= ZobristKeys.getPieceSquareKey(piece.type().id(), x, y, color.ordinal());
+        if (this.scoreTables != null) {
+            updateScores(piece, squareIndex, -1);
+        }
+        if (this.attackMaps != null) {
+            this.attackMaps.markChanged(squareIndex);
+        }
+        return piece;
+    }
+
+    // Adds (sign = 1) or subtracts (sign = -1) the contribution of the given piece on the given square to the sums
+    private void updateScores(Piece piece, int squareIndex, int sign) {
+        int typeId = piece.type().id();
+        int ordinal = piece.color().ordinal();
+        int materialValue = this.scoreTables.getMaterialValue(typeId);
+        this.materialValues[ordinal] += sign * materialValue;
+        if (piece.type().role() != PieceRole.PAWN_LIKE) {
+            this.nonPawnMaterialValues[ordinal] += sign * materialValue;
+        }
+        this.midgamePSTValues[ordinal] += sign * this.scoreTables.getMidgamePSTValue(typeId, ordinal, squareIndex);
+        this.endgamePSTValues[ordinal] += sign * this.scoreTables.getEndgamePSTValue(typeId, ordinal, squareIndex);
+    }
+
+    private void setUnmovedAt(Square square, boolean isUnmoved, Color color) {
+        setUnmovedFlag(square.x(), square.y(), isUnmoved);
+        this.zobristHash ^= ZobristKeys.getIsUnmovedKey(square.x(), square.y(), color.ordinal());
+        // Movement rules restricted to unmoved pieces may attack, so the attacks of the piece can change as well
+        if (this.attackMaps != null) {
+            this.attackMaps.markChanged(getSquareIndex(square));
         }
+    }
 
-        this.halfmoveClockHistory.push(this.halfmoveClock);
-        if (movingPiece.type().role().equals(PieceRole.PAWN_LIKE) || move.isCapture()) {
-            this.halfmoveClock = 0;
+    private Square getCastlingKingTarget(Square kingFrom, Square castlingPartnerFrom) {
+        if (kingFrom.x() > castlingPartnerFrom.x()) {
+            // Long castling
+            return getSquare(2, kingFrom.y());
         } else {
-            this.halfmoveClock++;
+            // Short castling
+            return getSquare(this.width - 2, kingFrom.y());
         }
-        if (this.colorToMove.equals(Color.BLACK)) {
-            this.fullmoveNumber++;
+    }
+
+    private Square getCastlingPartnerTarget(Square kingFrom, Square castlingPartnerFrom) {
+        if (kingFrom.x() > castlingPartnerFrom.x()) {
+            // Long castling
+            return getSquare(3, kingFrom.y());
+        } else {
+            // Short castling
+            return getSquare(this.width - 3, kingFrom.y());
         }
+    }
 
-        // --- CAPTURE MOVES ONLY ---
+    private int toSquareIndexOrNone(Square square) {
+        return square != null ? getSquareIndex(square) : -1;
+    }
 
-        if (move.isCapture()) {
-            if (!to.equals(move.getCapturedPieceLoc())) {
-                this.pieceGrid[move.getCapturedPieceLoc().x()][move.getCapturedPieceLoc().y()] = null;
-            }
-            this.pieceLocs.get(move.getCapturedPiece().color()).remove(move.getCapturedPieceLoc());
+    private Square toSquareOrNull(int squareIndex) {
+        return squareIndex >= 0 ? this.squaresByIndex[squareIndex] : null;
+    }
 
-            if (move.getCapturedPiece().type().role().equals(PieceRole.ROOK_LIKE)) {
-                this.castlingPartnerLocs.get(move.getCapturedPiece().color()).remove(move.getCapturedPieceLoc());
-            }
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(move.getCapturedPiece().type().id(),
-                    move.getCapturedPieceLoc().x(), move.getCapturedPieceLoc().y(),
-                    move.getCapturedPiece().color().ordinal());
-
-            if (move.getCapturedPieceWasUnmoved()) {
-                this.isUnmovedGrid[move.getCapturedPieceLoc().x()][move.getCapturedPieceLoc().y()] = false;
-                this.zobristHash ^= ZobristKeys.getIsUnmovedKey(move.getCapturedPieceLoc().x(),
-                        move.getCapturedPieceLoc().y(), move.getCapturedPiece().color().ordinal());
-            }
+    private void toggleEnPassantTargetKeys() {
+        if (this.enPassantMoveTarget != null) {
+            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantMoveTarget.x(),
+                    this.enPassantMoveTarget.y());
         }
-
-        // --- PROMOTION MOVES ONLY ---
-
-        if (move.isPromo()) {
-            this.pieceGrid[to.x()][to.y()] = new Piece(move.getPromoPieceType(), movingColor);
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(movingPiece.type().id(), to.x(), to.y(),
-                    movingColor.ordinal());
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(move.getPromoPieceType().id(), to.x(), to.y(),
-                    movingColor.ordinal());
+        if (this.enPassantCaptureTarget != null) {
+            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantCaptureTarget.x(),
+                    this.enPassantCaptureTarget.y());
         }
+    }
 
-        // --- CASTLING MOVES ONLY ---
-
-        if (move.getIsCastling()) {
-            Square castlingPartnerFrom = move.getTo();
-            Square castlingPartnerTo;
-            if (from.x() > castlingPartnerFrom.x()) {
-                // Long castling
-                castlingPartnerTo = getSquare(3, from.y());
-            } else {
-                // Short castling
-                castlingPartnerTo = getSquare(this.width - 3, from.y());
-            }
-            Piece castlingPartnerPiece = getPieceAt(castlingPartnerFrom);
-            this.pieceGrid[castlingPartnerFrom.x()][castlingPartnerFrom.y()] = null;
-            this.pieceGrid[castlingPartnerTo.x()][castlingPartnerTo.y()] = castlingPartnerPiece;
-            this.pieceLocs.get(movingColor).remove(castlingPartnerFrom);
-            this.pieceLocs.get(movingColor).add(castlingPartnerTo);
-            this.castlingPartnerLocs.get(movingColor).remove(castlingPartnerFrom);
-            this.castlingPartnerLocs.get(movingColor).add(castlingPartnerTo);
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(castlingPartnerPiece.type().id(), castlingPartnerFrom.x(),
-                    castlingPartnerFrom.y(), movingColor.ordinal());
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(castlingPartnerPiece.type().id(), castlingPartnerTo.x(),
-                    castlingPartnerTo.y(), movingColor.ordinal());
-            this.isUnmovedGrid[castlingPartnerFrom.x()][castlingPartnerFrom.y()] = false;
-            this.zobristHash ^= ZobristKeys.getIsUnmovedKey(castlingPartnerFrom.x(),
-                    castlingPartnerFrom.y(), movingColor.ordinal());
-        }
+    // Makes a move given as a Move object, see makeMove(int)
+    public void makeMove(Move move) {
+        makeMove(MoveEncoding.fromMove(this, move));
     }
 
+    // Unmakes a move given as a Move object, see unmakeMove(int)
     public void unmakeMove(Move move) {
-        Square from = move.getFrom();
-        Square to;
-        if (!move.getIsCastling()) {
-            to = move.getTo();
-        } else {
-            if (from.x() > move.getTo().x()) {
-                // long castling
-                to = getSquare(2, from.y());
-            } else {
-                // short castling
-                to = getSquare(this.width - 2, from.y());
-            }
-        }
-        Piece movingPiece = move.getMovingPiece();
+        unmakeMove(MoveEncoding.fromMove(this, move));
+    }
+
+    // Makes an encoded move (see MoveEncoding), which has to be a move of the current position. Everything the move
+    // does not encode itself, such as the moving piece and the unmoved flags, is read from the board and saved on the
+    // undo stack.
+    public void makeMove(int move) {
+        Square from = this.squaresByIndex[MoveEncoding.getFrom(move)];
+        boolean isCastling = MoveEncoding.isCastling(move);
+        Square to = isCastling
+                ? getCastlingKingTarget(from, this.squaresByIndex[MoveEncoding.getTo(move)])
+                : this.squaresByIndex[MoveEncoding.getTo(move)];
+        Piece movingPiece = getPieceAt(from);
         Color movingColor = movingPiece.color();
+        boolean movingPieceWasUnmoved = isUnmovedAt(from);
+        boolean isCapture = MoveEncoding.isCapture(move);
 
         // --- ALL MOVES ---
 
-        this.zobristHashHistory.removeLast();
+        UndoStack undo = this.undoStack;
+        int ply = undo.push();
+        undo.zobristHashes[ply] = this.zobristHash;
+        undo.halfmoveClocks[ply] = this.halfmoveClock;
+        undo.enPassantMoveTargets[ply] = toSquareIndexOrNone(this.enPassantMoveTarget);
+        undo.enPassantCaptureTargets[ply] = toSquareIndexOrNone(this.enPassantCaptureTarget);
+        undo.movingPieceTypeIds[ply] = movingPiece.type().id();
+        undo.movingPieceWasUnmoved[ply] = movingPieceWasUnmoved;
 
         this.colorToMove = this.colorToMove.getOpponent();
         this.zobristHash ^= ZobristKeys.getColorToMoveKey(this.colorToMove.ordinal());
         this.zobristHash ^= ZobristKeys.getColorToMoveKey(this.colorToMove.getOpponent().ordinal());
 
-        this.pieceGrid[from.x()][from.y()] = movingPiece;
-        if (!move.isCapture()) {
-            this.pieceGrid[to.x()][to.y()] = null;
+        // The captured piece and the castling partner are lifted off the board before the moving piece lands, since
+        // their squares may coincide with its target square
+        PieceList movingPieceList = this.pieceLists[movingColor.ordinal()];
+
+        if (isCapture) {
+            Square capturedPieceLoc = MoveEncoding.isEnPassantCapture(move) ? this.enPassantCaptureTarget : to;
+            Color capturedColor = movingColor.getOpponent();
+            boolean capturedPieceWasUnmoved = isUnmovedAt(capturedPieceLoc);
+            undo.capturedPieceWasUnmoved[ply] = capturedPieceWasUnmoved;
+            takePiece(capturedPieceLoc.x(), capturedPieceLoc.y());
+            undo.capturedPieceSlots[ply] = this.pieceLists[capturedColor.ordinal()]
+                    .remove(getSquareIndex(capturedPieceLoc));
+            if (capturedPieceWasUnmoved) {
+                setUnmovedAt(capturedPieceLoc, false, capturedColor);
+            }
         }
-        this.pieceLocs.get(movingColor).add(from);
-        this.pieceLocs.get(movingColor).remove(to);
-        if (movingPiece.type().role().equals(PieceRole.ROOK_LIKE)) {
-            this.castlingPartnerLocs.get(movingColor).add(from);
-            this.castlingPartnerLocs.get(movingColor).remove(to);
+
+        Square castlingPartnerFrom = null;
+        Square castlingPartnerTo = null;
+        Piece castlingPartnerPiece = null;
+        int castlingPartnerSlot = -1;
+        if (isCastling) {
+            castlingPartnerFrom = this.squaresByIndex[MoveEncoding.getTo(move)];
+            castlingPartnerTo = getCastlingPartnerTarget(from, castlingPartnerFrom);
+            castlingPartnerPiece = takePiece(castlingPartnerFrom.x(), castlingPartnerFrom.y());
+            castlingPartnerSlot = movingPieceList.lift(getSquareIndex(castlingPartnerFrom));
         }
-        this.zobristHash ^= ZobristKeys.getPieceSquareKey(movingPiece.type().id(), from.x(), from.y(),
-                movingColor.ordinal());
-        this.zobristHash ^= ZobristKeys.getPieceSquareKey(movingPiece.type().id(), to.x(), to.y(),
-                movingColor.ordinal());
 
-        if (move.getMovingPieceWasUnmoved()) {
-            this.isUnmovedGrid[from.x()][from.y()] = true;
-            this.zobristHash ^= ZobristKeys.getIsUnmovedKey(from.x(), from.y(), movingColor.ordinal());
+        takePiece(from.x(), from.y());
+        int movingPieceSlot = movingPieceList.lift(getSquareIndex(from));
+        Piece landingPiece = MoveEncoding.isPromo(move)
+                ? this.pieces[2 * MoveEncoding.getPromoPieceTypeId(move) + movingColor.ordinal()] : movingPiece;
+        putPiece(landingPiece, to.x(), to.y());
+        movingPieceList.drop(getSquareIndex(to), movingPieceSlot);
+
+        if (movingPieceWasUnmoved) {
+            setUnmovedAt(from, false, movingColor);
         }
 
-        if (movingPiece.type().role().equals(PieceRole.KING_LIKE)) {
-            this.kingLocs.put(movingColor, from);
+        if (isCastling) {
+            putPiece(castlingPartnerPiece, castlingPartnerTo.x(), castlingPartnerTo.y());
+            movingPieceList.drop(getSquareIndex(castlingPartnerTo), castlingPartnerSlot);
+            setUnmovedAt(castlingPartnerFrom, false, movingColor);
         }
 
-        if (this.enPassantMoveTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantMoveTarget.x(),
-                    this.enPassantMoveTarget.y());
+        // --- STATE VARIABLES ---
+
+        toggleEnPassantTargetKeys();
+        this.enPassantMoveTarget = toSquareOrNull(MoveEncoding.getNewEnPassantMoveTarget(move));
+        this.enPassantCaptureTarget = toSquareOrNull(MoveEncoding.getNewEnPassantCaptureTarget(move));
+        toggleEnPassantTargetKeys();
+
+        if (movingPiece.type().role().equals(PieceRole.PAWN_LIKE) || isCapture) {
+            this.halfmoveClock = 0;
+        } else {
+            this.halfmoveClock++;
         }
-        this.enPassantMoveTarget = this.enPassantMoveTargetHistory.pop();
-        if (this.enPassantMoveTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantMoveTarget.x(),
-                    this.enPassantMoveTarget.y());
+        if (this.colorToMove.equals(Color.BLACK)) {
+            this.fullmoveNumber++;
         }
 
-        if (this.enPassantCaptureTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantCaptureTarget.x(),
-                    this.enPassantCaptureTarget.y());
+        if (this.attackMaps != null) {
+            this.attackMaps.update(this);
         }
-        this.enPassantCaptureTarget = this.enPassantCaptureTargetHistory.pop();
-        if (this.enPassantCaptureTarget != null) {
-            this.zobristHash ^= ZobristKeys.getEnPassantMoveTargetKey(this.enPassantCaptureTarget.x(),
-                    this.enPassantCaptureTarget.y());
+
+        assert areScoresConsistent() : "Incremental scores differ from full recount after makeMove()";
+    }
+
+    // Passes the turn without moving a piece, for null move pruning in the search. Not allowed while the side to move
+    // is in check. The halfmove clock keeps counting for the fifty-move rule, but repetition checks (see
+    // RuleProcessor.isDrawByRepetition()) do not reach back across the null move, see getPliesSinceNullMove().
+    public void makeNullMove() {
+        UndoStack undo = this.undoStack;
+        int ply = undo.push();
+        undo.zobristHashes[ply] = this.zobristHash;
+        undo.halfmoveClocks[ply] = this.halfmoveClock;
+        undo.enPassantMoveTargets[ply] = toSquareIndexOrNone(this.enPassantMoveTarget);
+        undo.enPassantCaptureTargets[ply] = toSquareIndexOrNone(this.enPassantCaptureTarget);
+        undo.nullMoveHistoryLengths[ply] = this.nullMoveHistoryLength;
+        this.nullMoveHistoryLength = undo.size;
+
+        this.colorToMove = this.colorToMove.getOpponent();
+        this.zobristHash ^= ZobristKeys.getColorToMoveKey(this.colorToMove.ordinal());
+        this.zobristHash ^= ZobristKeys.getColorToMoveKey(this.colorToMove.getOpponent().ordinal());
+
+        toggleEnPassantTargetKeys();
+        this.enPassantMoveTarget = null;
+        this.enPassantCaptureTarget = null;
+
+        this.halfmoveClock++;
+        if (this.colorToMove.equals(Color.BLACK)) {
+            this.fullmoveNumber++;
         }
+        // No piece moved, so the attack maps stay valid
+    }
+
+    // Unmakes a null move, which has to be the last move made on this board
+    public void unmakeNullMove() {
+        UndoStack undo = this.undoStack;
+        int ply = undo.pop();
 
-        this.halfmoveClock = this.halfmoveClockHistory.pop();
+        this.colorToMove = this.colorToMove.getOpponent();
+        this.zobristHash = undo.zobristHashes[ply];
+        this.enPassantMoveTarget = toSquareOrNull(undo.enPassantMoveTargets[ply]);
+        this.enPassantCaptureTarget = toSquareOrNull(undo.enPassantCaptureTargets[ply]);
+        this.halfmoveClock = undo.halfmoveClocks[ply];
+        this.nullMoveHistoryLength = undo.nullMoveHistoryLengths[ply];
         if (this.colorToMove.equals(Color.WHITE)) {
             this.fullmoveNumber--;
         }
+    }
 
-        // --- CAPTURE MOVES ONLY ---
+    // Unmakes an encoded move, which has to be the last move made on this board
+    public void unmakeMove(int move) {
+        Square from = this.squaresByIndex[MoveEncoding.getFrom(move)];
+        boolean isCastling = MoveEncoding.isCastling(move);
+        Square to = isCastling
+                ? getCastlingKingTarget(from, this.squaresByIndex[MoveEncoding.getTo(move)])
+                : this.squaresByIndex[MoveEncoding.getTo(move)];
 
-        if (move.isCapture()) {
-            this.pieceGrid[move.getCapturedPieceLoc().x()][move.getCapturedPieceLoc().y()] = move.getCapturedPiece();
-            if (!to.equals(move.getCapturedPieceLoc())) {
-                this.pieceGrid[to.x()][to.y()] = null;
-            }
-            this.pieceLocs.get(move.getCapturedPiece().color()).add(move.getCapturedPieceLoc());
+        // --- ALL MOVES ---
 
-            if (move.getCapturedPiece().type().role().equals(PieceRole.ROOK_LIKE)) {
-                this.castlingPartnerLocs.get(move.getCapturedPiece().color()).add(move.getCapturedPieceLoc());
-            }
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(move.getCapturedPiece().type().id(),
-                    move.getCapturedPieceLoc().x(), move.getCapturedPieceLoc().y(),
-                    move.getCapturedPiece().color().ordinal());
-
-            if (move.getCapturedPieceWasUnmoved()) {
-                this.isUnmovedGrid[move.getCapturedPieceLoc().x()][move.getCapturedPieceLoc().y()] = true;
-                this.zobristHash ^= ZobristKeys.getIsUnmovedKey(move.getCapturedPieceLoc().x(),
-                        move.getCapturedPieceLoc().y(), move.getCapturedPiece().color().ordinal());
+        UndoStack undo = this.undoStack;
+        int ply = undo.pop();
+
+        this.colorToMove = this.colorToMove.getOpponent();
+        Color movingColor = this.colorToMove;
+        Piece movingPiece = this.pieces[2 * undo.movingPieceTypeIds[ply] + movingColor.ordinal()];
+
+        // Mirrors makeMove(): all pieces are lifted off the board first, then put back onto their original squares
+        PieceList movingPieceList = this.pieceLists[movingColor.ordinal()];
+
+        Square castlingPartnerFrom = null;
+        Piece castlingPartnerPiece = null;
+        int castlingPartnerSlot = -1;
+        if (isCastling) {
+            castlingPartnerFrom = this.squaresByIndex[MoveEncoding.getTo(move)];
+            Square castlingPartnerTo = getCastlingPartnerTarget(from, castlingPartnerFrom);
+            castlingPartnerPiece = takePiece(castlingPartnerTo.x(), castlingPartnerTo.y());
+            castlingPartnerSlot = movingPieceList.lift(getSquareIndex(castlingPartnerTo));
+        }
+
+        takePiece(to.x(), to.y());
+        int movingPieceSlot = movingPieceList.lift(getSquareIndex(to));
+        putPiece(movingPiece, from.x(), from.y());
+        movingPieceList.drop(getSquareIndex(from), movingPieceSlot);
+
+        if (undo.movingPieceWasUnmoved[ply]) {
+            setUnmovedAt(from, true, movingColor);
+        }
+
+        if (isCastling) {
+            putPiece(castlingPartnerPiece, castlingPartnerFrom.x(), castlingPartnerFrom.y());
+            movingPieceList.drop(getSquareIndex(castlingPartnerFrom), castlingPartnerSlot);
+            setUnmovedAt(castlingPartnerFrom, true, movingColor);
+        }
+
+        if (MoveEncoding.isCapture(move)) {
+            // The en passant capture target of the position before the move is still on the undo stack
+            Square capturedPieceLoc = MoveEncoding.isEnPassantCapture(move)
+                    ? this.squaresByIndex[undo.enPassantCaptureTargets[ply]] : to;
+            Color capturedColor = movingColor.getOpponent();
+            putPiece(this.pieces[2 * MoveEncoding.getCapturedPieceTypeId(move) + capturedColor.ordinal()],
+                    capturedPieceLoc.x(), capturedPieceLoc.y());
+            this.pieceLists[capturedColor.ordinal()].restore(getSquareIndex(capturedPieceLoc),
+                    undo.capturedPieceSlots[ply]);
+            if (undo.capturedPieceWasUnmoved[ply]) {
+                setUnmovedAt(capturedPieceLoc, true, capturedColor);
             }
         }
 
-        // --- PROMOTION MOVES ONLY ---
+        // --- STATE VARIABLES ---
 
-        if (move.isPromo()) {
-            this.pieceGrid[from.x()][from.y()] = new Piece(move.getMovingPieceType(), movingColor);
-            // TODO: Reflect if this is actually correct
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(movingPiece.type().id(), to.x(), to.y(),
-                    movingColor.ordinal());
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(move.getPromoPieceType().id(), to.x(), to.y(),
-                    movingColor.ordinal());
+        // The piece square and unmoved keys have already been toggled back above, but restoring the saved hash is
+        // simpler than undoing the color to move and en passant keys as well
+        this.zobristHash = undo.zobristHashes[ply];
+        this.enPassantMoveTarget = toSquareOrNull(undo.enPassantMoveTargets[ply]);
+        this.enPassantCaptureTarget = toSquareOrNull(undo.enPassantCaptureTargets[ply]);
+        this.halfmoveClock = undo.halfmoveClocks[ply];
+        if (this.colorToMove.equals(Color.WHITE)) {
+            this.fullmoveNumber--;
         }
 
-        // --- CASTLING MOVES ONLY ---
-
-        if (move.getIsCastling()) {
-            Square castlingPartnerFrom = move.getTo();
-            Square castlingPartnerTo;
-            if (from.x() > castlingPartnerFrom.x()) {
-                // Long castling
-                castlingPartnerTo = getSquare(3, from.y());
-            } else {
-                // Short castling
-                castlingPartnerTo = getSquare(this.width - 3, from.y());
-            }
-            Piece castlingPartnerPiece = getPieceAt(castlingPartnerTo);
-            this.pieceGrid[castlingPartnerFrom.x()][castlingPartnerFrom.y()] = castlingPartnerPiece;
-            this.pieceGrid[castlingPartnerTo.x()][castlingPartnerTo.y()] = null;
-            this.pieceLocs.get(movingColor).add(castlingPartnerFrom);
-            this.pieceLocs.get(movingColor).remove(castlingPartnerTo);
-            this.castlingPartnerLocs.get(movingColor).add(castlingPartnerFrom);
-            this.castlingPartnerLocs.get(movingColor).remove(castlingPartnerTo);
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(castlingPartnerPiece.type().id(), castlingPartnerFrom.x(),
-                    castlingPartnerFrom.y(), movingColor.ordinal());
-            this.zobristHash ^= ZobristKeys.getPieceSquareKey(castlingPartnerPiece.type().id(), castlingPartnerTo.x(),
-                    castlingPartnerTo.y(), movingColor.ordinal());
-            this.isUnmovedGrid[castlingPartnerFrom.x()][castlingPartnerFrom.y()] = true;
-            this.zobristHash ^= ZobristKeys.getIsUnmovedKey(castlingPartnerFrom.x(),
-                    castlingPartnerFrom.y(), movingColor.ordinal());
+        if (this.attackMaps != null) {
+            this.attackMaps.update(this);
         }
+
+        assert areScoresConsistent() : "Incremental scores differ from full recount after unmakeMove()";
     }
 }
@@ -1,8 +1,6 @@
 package com.chaoschess.backend.core.engine.board;
 
 import com.chaoschess.backend.core.model.Color;
-import com.chaoschess.backend.core.model.Piece;
-import com.chaoschess.backend.core.model.PieceRole;
 import com.chaoschess.backend.core.model.PieceType;
 import com.chaoschess.backend.core.model.PieceTypes;
 import com.chaoschess.backend.core.model.Square;
@@ -48,7 +46,7 @@ public class BoardFactory {
         int width = baseSize + rng.nextInt(-maxSizeOffset, maxSizeOffset + 1);
         int height = baseSize + rng.nextInt(-maxSizeOffset, maxSizeOffset + 1);
 
-        Board board = new Board(width, height);
+        Board board = new Board(width, height, pieceTypes);
 
         // --- DETERMINE COUNT AND TYPES OF SETUP ROWS ---
 
@@ -212,27 +210,18 @@ public class BoardFactory {
                 // Place the determined piece for White and its counterpart on the opposite side for Black
                 if (pieceName != null) {
                     for (Color color : Color.values()) {
-                        // TODO: Put the logic for adding a piece to the board in its own method
                         int x = col;
                         int y = color.equals(Color.WHITE) ? row : (board.height - 1) - row;
 
-                        Square square = board.getSquare(x, y);
                         PieceType pieceType = pieceTypes.getPieceTypeByName(pieceName);
-
-                        board.pieceGrid[x][y] = new Piece(pieceType, color);
-                        board.isUnmovedGrid[x][y] = true;
-                        board.pieceLocs.get(color).add(square);
-                        if (pieceType.role().equals(PieceRole.KING_LIKE)) {
-                            board.kingLocs.put(color, square);
-                        }
-                        if (pieceType.role().equals(PieceRole.ROOK_LIKE)) {
-                            board.castlingPartnerLocs.get(color).add(square);
-                        }
+                        board.placePiece(board.getPiece(pieceType, color), x, y, true);
                     }
                 }
             }
         }
 
+        board.zobristHash = board.calculateFullZobristHash();
+
         return board;
     }
 
@@ -241,7 +230,7 @@ public class BoardFactory {
     public static Board createBoardFromFen(String fen, PieceTypes pieceTypes) {
         int width = 8;
         int height = 8;
-        Board board = new Board(width, height);
+        Board board = new Board(width, height, pieceTypes);
 
         // Split FEN string into its six components
         String[] fenParts = fen.split(" ");
@@ -262,7 +251,6 @@ public class BoardFactory {
                 if (Character.isDigit(c)) {
                     x += Character.getNumericValue(c);
                 } else {
-                    Square square = board.getSquare(x, y);
                     PieceType pieceType = pieceTypes.getPieceTypeBySymbol(String.valueOf(c).toUpperCase());
                     if (pieceType == null) {
                         throw new IllegalArgumentException("Invalid FEN. Contains unknown piece symbol '" + c + "'.");
@@ -278,15 +266,7 @@ public class BoardFactory {
                             && ((color.equals(Color.WHITE) && (y == 1))
                             || (color.equals(Color.BLACK) && (y == (board.height - 2)))));
 
-                    board.pieceGrid[x][y] = new Piece(pieceType, color);
-                    board.isUnmovedGrid[x][y] = !hasMoved;
-                    board.pieceLocs.get(color).add(square);
-                    if (pieceType.role().equals(PieceRole.KING_LIKE)) {
-                        board.kingLocs.put(color, square);
-                    }
-                    if (pieceType.role().equals(PieceRole.ROOK_LIKE)) {
-                        board.castlingPartnerLocs.get(color).add(square);
-                    }
+                    board.placePiece(board.getPiece(pieceType, color), x, y, !hasMoved);
                     x++;
                 }
             }
@@ -304,23 +284,23 @@ public class BoardFactory {
         Square whiteKingLoc = board.getKingLocs().get(Color.WHITE);     // TODO: weniger hässlich lösen
         Square blackKingLoc = board.getKingLocs().get(Color.BLACK);
         if (fenParts[2].contains("Q")) {
-            board.isUnmovedGrid[whiteKingLoc.x()][whiteKingLoc.y()] = true;
+            board.setUnmovedFlag(whiteKingLoc.x(), whiteKingLoc.y(), true);
             rookLocs.add(board.getSquare(0, 0));
         }
         if (fenParts[2].contains("K")) {
-            board.isUnmovedGrid[whiteKingLoc.x()][whiteKingLoc.y()] = true;
+            board.setUnmovedFlag(whiteKingLoc.x(), whiteKingLoc.y(), true);
             rookLocs.add(board.getSquare(board.width - 1, 0));
         }
         if (fenParts[2].contains("q")) {
-            board.isUnmovedGrid[blackKingLoc.x()][blackKingLoc.y()] = true;
+            board.setUnmovedFlag(blackKingLoc.x(), blackKingLoc.y(), true);
             rookLocs.add(board.getSquare(0, board.height - 1));
         }
         if (fenParts[2].contains("k")) {
-            board.isUnmovedGrid[blackKingLoc.x()][blackKingLoc.y()] = true;
+            board.setUnmovedFlag(blackKingLoc.x(), blackKingLoc.y(), true);
             rookLocs.add(board.getSquare(board.width - 1, board.height - 1));
         }
         for (Square rookLoc : rookLocs) {
-            board.isUnmovedGrid[rookLoc.x()][rookLoc.y()] = true;
+            board.setUnmovedFlag(rookLoc.x(), rookLoc.y(), true);
         }
 
         // Parse en passant target square fromSquareIndex FEN string
@@ -338,10 +318,10 @@ public class BoardFactory {
         // Setup fullmove number variable and parse fullmove number fromSquareIndex FEN string
         board.fullmoveNumber = Integer.parseInt(fenParts[5]);
 
-        board.promoOptions.add(pieceTypes.getPieceTypeByName("Queen"));
-        board.promoOptions.add(pieceTypes.getPieceTypeByName("Rook"));
-        board.promoOptions.add(pieceTypes.getPieceTypeByName("Bishop"));
-        board.promoOptions.add(pieceTypes.getPieceTypeByName("Knight"));
+        board.addPromoOption(pieceTypes.getPieceTypeByName("Queen"));
+        board.addPromoOption(pieceTypes.getPieceTypeByName("Rook"));
+        board.addPromoOption(pieceTypes.getPieceTypeByName("Bishop"));
+        board.addPromoOption(pieceTypes.getPieceTypeByName("Knight"));
 
         board.zobristHash = board.calculateFullZobristHash();
 
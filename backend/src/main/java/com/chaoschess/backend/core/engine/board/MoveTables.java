@@ -0,0 +1,194 @@
+package com.chaoschess.backend.core.engine.board;
+
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.MovementModifier;
+import com.chaoschess.backend.core.model.MovementRule;
+import com.chaoschess.backend.core.model.Piece;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.model.Square;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Movement rules compiled for one board size: for every piece (piece type and color) and origin square, the rays the
+// piece can move along, each with its modifiers resolved to flags and its target squares listed in step order up to
+// the board edge. Leapers get rays of a single target, sliders and riders one target per step. Castling rules become
+// rays without targets, so that the rays keep the order of the movement rules.
+//
+// All tables are flat int arrays indexed by piece index (2 * piece type ID + color ordinal, like Board.getPiece()).
+// The rays of a piece on square s are [squareRayStarts[s], squareRayStarts[s + 1]), and the targets of ray r are
+// [rayTargetStarts[r], rayTargetStarts[r + 1]). Since the tables only depend on the board size and the piece types,
+// they are compiled once per combination and shared by all boards of that size.
+public final class MoveTables {
+
+    public static final int ONLY_CAPTURES = 1;
+    public static final int ONLY_NON_CAPTURES = 1 << 1;
+    public static final int ONLY_UNMOVED = 1 << 2;
+    public static final int CASTLING = 1 << 3;
+    public static final int ENABLES_EN_PASSANT = 1 << 4;
+    public static final int CAPTURES_EN_PASSANT = 1 << 5;
+
+    private record Key(int width, int height, PieceTypes pieceTypes) {}
+
+    private static final Map<Key, MoveTables> CACHE = new ConcurrentHashMap<>();
+
+    private final int[][] squareRayStarts;
+    private final int[][] rayFlags;
+    private final int[][] rayMinSteps;
+    private final int[][] rayTargetStarts;
+    private final int[][] targetSquareIndices;
+    private final int[][] targetMailboxIndices;
+
+    private MoveTables(Board board) {
+        int pieceCount = board.pieces.length;
+        this.squareRayStarts = new int[pieceCount][];
+        this.rayFlags = new int[pieceCount][];
+        this.rayMinSteps = new int[pieceCount][];
+        this.rayTargetStarts = new int[pieceCount][];
+        this.targetSquareIndices = new int[pieceCount][];
+        this.targetMailboxIndices = new int[pieceCount][];
+
+        for (Piece piece : board.pieces) {
+            compile(board, piece);
+        }
+    }
+
+    // Returns the tables for the given board's size and piece types, compiling them on first use. The board only needs
+    // its mailbox geometry and its pieces to be set up.
+    static MoveTables get(Board board, PieceTypes pieceTypes) {
+        return CACHE.computeIfAbsent(new Key(board.width, board.height, pieceTypes), key -> new MoveTables(board));
+    }
+
+    private void compile(Board board, Piece piece) {
+        int pieceIndex = 2 * piece.type().id() + piece.color().ordinal();
+        MovementRule[] movementRules = board.movementRules[piece.type().id()];
+        int verticalSign = piece.color().equals(Color.WHITE) ? 1 : -1;
+        int squareCount = board.width * board.height;
+
+        // The first pass only counts, so that the arrays can be allocated with their exact sizes
+        int rayCount = 0;
+        int targetCount = 0;
+        for (int squareIndex = 0; squareIndex < squareCount; squareIndex++) {
+            Square from = board.getSquare(squareIndex);
+            for (MovementRule movementRule : movementRules) {
+                int targets = countTargets(board, from, movementRule, verticalSign);
+                if (targets > 0 || movementRule.hasModifier(MovementModifier.CASTLING)) {
+                    rayCount++;
+                    targetCount += targets;
+                }
+            }
+        }
+
+        int[] squareRayStarts = new int[squareCount + 1];
+        int[] rayFlags = new int[rayCount];
+        int[] rayMinSteps = new int[rayCount];
+        int[] rayTargetStarts = new int[rayCount + 1];
+        int[] targetSquareIndices = new int[targetCount];
+        int[] targetMailboxIndices = new int[targetCount];
+
+        int ray = 0;
+        int target = 0;
+        for (int squareIndex = 0; squareIndex < squareCount; squareIndex++) {
+            squareRayStarts[squareIndex] = ray;
+            Square from = board.getSquare(squareIndex);
+            for (MovementRule movementRule : movementRules) {
+                int targets = countTargets(board, from, movementRule, verticalSign);
+                if (targets == 0 && !movementRule.hasModifier(MovementModifier.CASTLING)) {
+                    continue;
+                }
+                rayFlags[ray] = resolveFlags(movementRule);
+                rayMinSteps[ray] = movementRule.minSteps();
+                rayTargetStarts[ray] = target;
+                for (int steps = 1; steps <= targets; steps++) {
+                    int x = from.x() + steps * movementRule.dx();
+                    int y = from.y() + steps * movementRule.dy() * verticalSign;
+                    targetSquareIndices[target] = board.getSquareIndex(x, y);
+                    targetMailboxIndices[target] = board.getMailboxIndex(x, y);
+                    target++;
+                }
+                ray++;
+            }
+        }
+        squareRayStarts[squareCount] = ray;
+        rayTargetStarts[rayCount] = target;
+
+        this.squareRayStarts[pieceIndex] = squareRayStarts;
+        this.rayFlags[pieceIndex] = rayFlags;
+        this.rayMinSteps[pieceIndex] = rayMinSteps;
+        this.rayTargetStarts[pieceIndex] = rayTargetStarts;
+        this.targetSquareIndices[pieceIndex] = targetSquareIndices;
+        this.targetMailboxIndices[pieceIndex] = targetMailboxIndices;
+    }
+
+    // Number of steps along the rule's direction that stay on the board, capped at the rule's maximum
+    private static int countTargets(Board board, Square from, MovementRule movementRule, int verticalSign) {
+        if (movementRule.hasModifier(MovementModifier.CASTLING)) {
+            return 0;
+        }
+        int targets = 0;
+        int x = from.x();
+        int y = from.y();
+        while (targets < movementRule.maxSteps()) {
+            x += movementRule.dx();
+            y += movementRule.dy() * verticalSign;
+            if (!board.isInBounds(x, y)) {
+                break;
+            }
+            targets++;
+        }
+        return targets;
+    }
+
+    private static int resolveFlags(MovementRule movementRule) {
+        int flags = 0;
+        if (movementRule.hasModifier(MovementModifier.ONLY_CAPTURES)) {
+            flags |= ONLY_CAPTURES;
+        }
+        if (movementRule.hasModifier(MovementModifier.ONLY_NON_CAPTURES)) {
+            flags |= ONLY_NON_CAPTURES;
+        }
+        if (movementRule.hasModifier(MovementModifier.ONLY_UNMOVED)) {
+            flags |= ONLY_UNMOVED;
+        }
+        if (movementRule.hasModifier(MovementModifier.CASTLING)) {
+            flags |= CASTLING;
+        }
+        if (movementRule.hasModifier(MovementModifier.ENABLES_EN_PASSANT)) {
+            flags |= ENABLES_EN_PASSANT;
+        }
+        if (movementRule.hasModifier(MovementModifier.CAPTURES_EN_PASSANT)) {
+            flags |= CAPTURES_EN_PASSANT;
+        }
+        return flags;
+    }
+
+    public int getPieceCount() {
+        return this.squareRayStarts.length;
+    }
+
+    // The returned arrays are the shared tables and must not be modified
+
+    public int[] getSquareRayStarts(int pieceIndex) {
+        return this.squareRayStarts[pieceIndex];
+    }
+
+    public int[] getRayFlags(int pieceIndex) {
+        return this.rayFlags[pieceIndex];
+    }
+
+    public int[] getRayMinSteps(int pieceIndex) {
+        return this.rayMinSteps[pieceIndex];
+    }
+
+    public int[] getRayTargetStarts(int pieceIndex) {
+        return this.rayTargetStarts[pieceIndex];
+    }
+
+    public int[] getTargetSquareIndices(int pieceIndex) {
+        return this.targetSquareIndices[pieceIndex];
+    }
+
+    public int[] getTargetMailboxIndices(int pieceIndex) {
+        return this.targetMailboxIndices[pieceIndex];
+    }
+}
@@ -0,0 +1,82 @@
+package com.chaoschess.backend.core.engine.board;
+
+import java.util.Arrays;
+
+// List of square indices (see Board.getSquareIndex()) backed by primitive arrays. A reverse index from square index to
+// slot makes adding, removing and moving an entry O(1). Moving an entry keeps its slot, and restore() exactly undoes
+// remove(), so the iteration order only depends on the sequence of moves played and not on hashing.
+public final class PieceList {
+
+    private final int[] squareIndices;
+    private final int[] slots;
+    private int size;
+
+    PieceList(int capacity) {
+        this.squareIndices = new int[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(this.slots, -1);
+        this.size = 0;
+    }
+
+    private PieceList(PieceList other) {
+        this.squareIndices = other.squareIndices.clone();
+        this.slots = other.slots.clone();
+        this.size = other.size;
+    }
+
+    PieceList copy() {
+        return new PieceList(this);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int get(int slot) {
+        return this.squareIndices[slot];
+    }
+
+    public boolean contains(int squareIndex) {
+        return this.slots[squareIndex] >= 0;
+    }
+
+    void add(int squareIndex) {
+        this.squareIndices[this.size] = squareIndex;
+        this.slots[squareIndex] = this.size;
+        this.size++;
+    }
+
+    // Fills the gap with the last entry and returns the slot the removed entry occupied, which is needed to undo the
+    // removal via restore()
+    int remove(int squareIndex) {
+        int slot = this.slots[squareIndex];
+        int lastSquareIndex = this.squareIndices[this.size - 1];
+        this.squareIndices[slot] = lastSquareIndex;
+        this.slots[lastSquareIndex] = slot;
+        this.slots[squareIndex] = -1;
+        this.size--;
+        return slot;
+    }
+
+    void restore(int squareIndex, int slot) {
+        int displacedSquareIndex = this.squareIndices[slot];
+        this.squareIndices[this.size] = displacedSquareIndex;
+        this.slots[displacedSquareIndex] = this.size;
+        this.squareIndices[slot] = squareIndex;
+        this.slots[squareIndex] = slot;
+        this.size++;
+    }
+
+    // Moving an entry is split into lift() and drop() so that several entries can be moved at once even if their
+    // origin and target squares overlap (as in castling). Between the two calls the slot is reserved but unassigned.
+    int lift(int squareIndex) {
+        int slot = this.slots[squareIndex];
+        this.slots[squareIndex] = -1;
+        return slot;
+    }
+
+    void drop(int squareIndex, int slot) {
+        this.squareIndices[slot] = squareIndex;
+        this.slots[squareIndex] = slot;
+    }
+}
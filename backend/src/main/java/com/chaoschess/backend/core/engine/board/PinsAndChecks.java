@@ -0,0 +1,77 @@
+package com.chaoschess.backend.core.engine.board;
+
+// Checkers and pinned pieces of one king, see Board.calculatePinsAndChecks(). Each Board owns a single instance that is
+// overwritten by every calculation, so the results have to be consumed before the next calculation on the same board.
+public final class PinsAndChecks {
+
+    int checkerCount;
+    final long[] checkers;
+    // Squares a piece other than the king has to move to in order to resolve a single check, i.e. the checker's square
+    // and the squares between the checker and the king
+    final long[] checkMask;
+    final long[] pinnedPieces;
+    // Indexed by the square index of a pinned piece, contains the squares the piece may move to without exposing the
+    // king (the squares between the king and the pinner, including the pinner's square). Only entries of squares in
+    // pinnedPieces are valid.
+    final long[][] pinMasks;
+    private final long[] allowedTargets;
+
+    PinsAndChecks(int squareCount) {
+        this.checkers = Bitboards.create();
+        this.checkMask = Bitboards.create();
+        this.pinnedPieces = Bitboards.create();
+        this.pinMasks = new long[squareCount][Bitboards.WORDS];
+        this.allowedTargets = Bitboards.create();
+    }
+
+    void reset() {
+        for (int squareIndex = Bitboards.nextSetBit(this.pinnedPieces, 0); squareIndex >= 0;
+             squareIndex = Bitboards.nextSetBit(this.pinnedPieces, squareIndex + 1)) {
+            for (int i = 0; i < Bitboards.WORDS; i++) {
+                this.pinMasks[squareIndex][i] = 0;
+            }
+        }
+        for (int i = 0; i < Bitboards.WORDS; i++) {
+            this.checkers[i] = 0;
+            this.checkMask[i] = 0;
+            this.pinnedPieces[i] = 0;
+        }
+        this.checkerCount = 0;
+    }
+
+    public int getCheckerCount() {
+        return this.checkerCount;
+    }
+
+    public boolean isInCheck() {
+        return this.checkerCount > 0;
+    }
+
+    public boolean isPinned(int squareIndex) {
+        return Bitboards.isSet(this.pinnedPieces, squareIndex);
+    }
+
+    // Returns the squares the piece on the given square (which must not be the king) may move to, or null if it is not
+    // restricted at all. In double check no square is allowed. The returned bitboard must not be modified and is only
+    // valid until the next call.
+    public long[] getAllowedTargets(int squareIndex) {
+        boolean isPinned = isPinned(squareIndex);
+        if (this.checkerCount == 0) {
+            return isPinned ? this.pinMasks[squareIndex] : null;
+        }
+        if (this.checkerCount > 1) {
+            for (int i = 0; i < Bitboards.WORDS; i++) {
+                this.allowedTargets[i] = 0;
+            }
+            return this.allowedTargets;
+        }
+        if (!isPinned) {
+            return this.checkMask;
+        }
+        long[] pinMask = this.pinMasks[squareIndex];
+        for (int i = 0; i < Bitboards.WORDS; i++) {
+            this.allowedTargets[i] = this.checkMask[i] & pinMask[i];
+        }
+        return this.allowedTargets;
+    }
+}
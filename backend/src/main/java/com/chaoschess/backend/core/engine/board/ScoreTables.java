@@ -0,0 +1,19 @@
+package com.chaoschess.backend.core.engine.board;
+
+// Evaluation tables that a Board uses to keep its material and PST sums up to date during makeMove()/unmakeMove(), see
+// Board.setScoreTables(). materialValues is indexed by piece type ID, the PSTs by 2 * piece type ID + color ordinal and
+// then by square index (see Board.getSquareIndex()), i.e. they are already mirrored for black.
+public record ScoreTables(int width, int height, int[] materialValues, int[][] midgamePSTs, int[][] endgamePSTs) {
+
+    public int getMaterialValue(int pieceTypeId) {
+        return this.materialValues[pieceTypeId];
+    }
+
+    public int getMidgamePSTValue(int pieceTypeId, int colorOrdinal, int squareIndex) {
+        return this.midgamePSTs[2 * pieceTypeId + colorOrdinal][squareIndex];
+    }
+
+    public int getEndgamePSTValue(int pieceTypeId, int colorOrdinal, int squareIndex) {
+        return this.endgamePSTs[2 * pieceTypeId + colorOrdinal][squareIndex];
+    }
+}
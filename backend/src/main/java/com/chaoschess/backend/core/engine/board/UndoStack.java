@@ -0,0 +1,103 @@
+package com.chaoschess.backend.core.engine.board;
+
+import java.util.Arrays;
+
+// Struct-of-arrays stack holding everything Board.unmakeMove() needs to restore, indexed by ply. The arrays are
+// preallocated and only grow (by doubling) when a game gets longer than the current capacity, so making and unmaking
+// moves does not allocate. Square-valued entries are stored as square indices, with -1 representing null.
+final class UndoStack {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    long[] zobristHashes;
+    int[] halfmoveClocks;
+    int[] enPassantMoveTargets;
+    int[] enPassantCaptureTargets;
+    // Piece list slot of the captured piece, see PieceList.remove()
+    int[] capturedPieceSlots;
+    // The moving piece's type ID is needed to undo promotions, the captured piece's type follows from the move itself
+    int[] movingPieceTypeIds;
+    boolean[] movingPieceWasUnmoved;
+    boolean[] capturedPieceWasUnmoved;
+    // Only written by null moves, see Board.makeNullMove()
+    int[] nullMoveHistoryLengths;
+    int size;
+
+    UndoStack() {
+        this.zobristHashes = new long[INITIAL_CAPACITY];
+        this.halfmoveClocks = new int[INITIAL_CAPACITY];
+        this.enPassantMoveTargets = new int[INITIAL_CAPACITY];
+        this.enPassantCaptureTargets = new int[INITIAL_CAPACITY];
+        this.capturedPieceSlots = new int[INITIAL_CAPACITY];
+        this.movingPieceTypeIds = new int[INITIAL_CAPACITY];
+        this.movingPieceWasUnmoved = new boolean[INITIAL_CAPACITY];
+        this.capturedPieceWasUnmoved = new boolean[INITIAL_CAPACITY];
+        this.nullMoveHistoryLengths = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    // Copies the topmost entryCount entries of the other stack
+    private UndoStack(UndoStack other, int entryCount) {
+        int from = other.size - entryCount;
+        int capacity = Math.max(INITIAL_CAPACITY, entryCount);
+        this.zobristHashes = copyRange(other.zobristHashes, from, entryCount, capacity);
+        this.halfmoveClocks = copyRange(other.halfmoveClocks, from, entryCount, capacity);
+        this.enPassantMoveTargets = copyRange(other.enPassantMoveTargets, from, entryCount, capacity);
+        this.enPassantCaptureTargets = copyRange(other.enPassantCaptureTargets, from, entryCount, capacity);
+        this.capturedPieceSlots = copyRange(other.capturedPieceSlots, from, entryCount, capacity);
+        this.movingPieceTypeIds = copyRange(other.movingPieceTypeIds, from, entryCount, capacity);
+        this.movingPieceWasUnmoved = copyRange(other.movingPieceWasUnmoved, from, entryCount, capacity);
+        this.capturedPieceWasUnmoved = copyRange(other.capturedPieceWasUnmoved, from, entryCount, capacity);
+        this.nullMoveHistoryLengths = copyRange(other.nullMoveHistoryLengths, from, entryCount, capacity);
+        this.size = entryCount;
+    }
+
+    UndoStack copy() {
+        return new UndoStack(this, this.size);
+    }
+
+    // Returns a stack that only contains the topmost entryCount entries, so that only these moves can be unmade on it
+    UndoStack copyTop(int entryCount) {
+        return new UndoStack(this, entryCount);
+    }
+
+    private static long[] copyRange(long[] source, int from, int length, int capacity) {
+        long[] copy = new long[capacity];
+        System.arraycopy(source, from, copy, 0, length);
+        return copy;
+    }
+
+    private static int[] copyRange(int[] source, int from, int length, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(source, from, copy, 0, length);
+        return copy;
+    }
+
+    private static boolean[] copyRange(boolean[] source, int from, int length, int capacity) {
+        boolean[] copy = new boolean[capacity];
+        System.arraycopy(source, from, copy, 0, length);
+        return copy;
+    }
+
+    // Reserves the next entry and returns its index, the caller is responsible for filling in all fields
+    int push() {
+        if (this.size == this.zobristHashes.length) {
+            int newCapacity = 2 * this.size;
+            this.zobristHashes = Arrays.copyOf(this.zobristHashes, newCapacity);
+            this.halfmoveClocks = Arrays.copyOf(this.halfmoveClocks, newCapacity);
+            this.enPassantMoveTargets = Arrays.copyOf(this.enPassantMoveTargets, newCapacity);
+            this.enPassantCaptureTargets = Arrays.copyOf(this.enPassantCaptureTargets, newCapacity);
+            this.capturedPieceSlots = Arrays.copyOf(this.capturedPieceSlots, newCapacity);
+            this.movingPieceTypeIds = Arrays.copyOf(this.movingPieceTypeIds, newCapacity);
+            this.movingPieceWasUnmoved = Arrays.copyOf(this.movingPieceWasUnmoved, newCapacity);
+            this.capturedPieceWasUnmoved = Arrays.copyOf(this.capturedPieceWasUnmoved, newCapacity);
+            this.nullMoveHistoryLengths = Arrays.copyOf(this.nullMoveHistoryLengths, newCapacity);
+        }
+        return this.size++;
+    }
+
+    // Releases the topmost entry and returns its index, its fields stay readable until the next push()
+    int pop() {
+        return --this.size;
+    }
+}
@@ -8,6 +8,8 @@ import com.chaoschess.backend.api.GameStateMessagingController;
 import com.chaoschess.backend.api.MoveRequestDTO;
 import com.chaoschess.backend.core.ai.AlphaBetaSearcher;
 import com.chaoschess.backend.core.ai.BoardEvaluator;
+import com.chaoschess.backend.core.ai.TranspositionTable;
+import com.chaoschess.backend.core.engine.board.Bitboards;
 import com.chaoschess.backend.core.engine.board.Board;
 import com.chaoschess.backend.core.engine.Move;
 import com.chaoschess.backend.core.engine.RuleProcessor;
@@ -47,8 +49,8 @@ import java.util.stream.Collectors;
 @Service
 public class GameManager implements ApplicationContextAware {
 
-    private static final int AI_SEARCH_DEPTH = 3;
-//    private static final int AI_SEARCH_DEPTH = 4;
+    // The AI search deepens iteratively until its time limits are reached, see AlphaBetaSearcher.findBestMove()
+    private static final int AI_MAX_SEARCH_DEPTH = AlphaBetaSearcher.MAX_SEARCH_DEPTH;
 
     private final PieceTypes pieceTypes;
     private final RuleProcessor ruleProcessor;
@@ -57,6 +59,11 @@ public class GameManager implements ApplicationContextAware {
     private final Deque<ImmutableBoard> immutableBoardHistory;
     private final Deque<Move> moveHistory;
     private final String initialFenPosition;
+    private final long aiSoftTimeLimitMillis;
+    private final long aiHardTimeLimitMillis;
+    private final int defaultAiSearchThreadCount;
+    // Set per game, see startNewGame()
+    private int aiSearchThreadCount;
 
     private Board board;
     private ImmutableBoard immutableBoard;
@@ -81,7 +88,10 @@ public class GameManager implements ApplicationContextAware {
                        BoardEvaluator boardEvaluator,
                        @Value("${game.initial-fen:"
                                + "#{T(com.chaoschess.backend.core.engine.board.Board).STANDARD_INITIAL_BOARD_FEN}}")
-                       String initialFenPosition) {
+                       String initialFenPosition,
+                       @Value("${ai.soft-time-limit-ms:1000}") long aiSoftTimeLimitMillis,
+                       @Value("${ai.hard-time-limit-ms:3000}") long aiHardTimeLimitMillis,
+                       @Value("${ai.search-threads:1}") int defaultAiSearchThreadCount) {
         this.pieceTypes = pieceTypes;
         this.ruleProcessor = ruleProcessor;
         this.gameStateMapper = gameStateMapper;
@@ -89,6 +99,10 @@ public class GameManager implements ApplicationContextAware {
         this.immutableBoardHistory = new ArrayDeque<>();
         this.moveHistory = new ArrayDeque<>();
         this.initialFenPosition = initialFenPosition;
+        this.aiSoftTimeLimitMillis = aiSoftTimeLimitMillis;
+        this.aiHardTimeLimitMillis = aiHardTimeLimitMillis;
+        this.defaultAiSearchThreadCount = defaultAiSearchThreadCount;
+        this.aiSearchThreadCount = defaultAiSearchThreadCount;
 
         this.alphaBetaSearcher = alphaBetaSearcher;
         this.boardEvaluator = boardEvaluator;
@@ -114,6 +128,7 @@ public class GameManager implements ApplicationContextAware {
         this.board = BoardFactory.createRandomInitialBoard(ChaosLevel.DULL, seed, this.pieceTypes);
 
         this.boardEvaluator.initializePSTs(this.board.getWidth(), this.board.getHeight(), this.pieceTypes);
+        this.alphaBetaSearcher.startNewGame();
 
         this.pseudolegalMoves = new ArrayList<>();
         this.legalMoves = new ArrayList<>();
@@ -136,6 +151,14 @@ public class GameManager implements ApplicationContextAware {
     }
 
     public void startNewGame(GameSettingsDTO gameSettingsDTO) {
+        int aiSearchThreadCount = (gameSettingsDTO.aiSearchThreads() != null)
+                ? gameSettingsDTO.aiSearchThreads() : this.defaultAiSearchThreadCount;
+        if (aiSearchThreadCount < 1 || aiSearchThreadCount > AlphaBetaSearcher.MAX_SEARCH_THREADS) {
+            throw new IllegalArgumentException("AI search threads must be between 1 and "
+                    + AlphaBetaSearcher.MAX_SEARCH_THREADS + ", was " + aiSearchThreadCount);
+        }
+        this.aiSearchThreadCount = aiSearchThreadCount;
+
         this.immutableBoardHistory.clear();
         this.moveHistory.clear();
 
@@ -144,6 +167,7 @@ public class GameManager implements ApplicationContextAware {
         this.board = BoardFactory.createRandomInitialBoard(chaosLevel, seed, this.pieceTypes);
 
         this.boardEvaluator.initializePSTs(this.board.getWidth(), this.board.getHeight(), this.pieceTypes);
+        this.alphaBetaSearcher.startNewGame();
 
         executeStateChange();
     }
@@ -171,8 +195,10 @@ public class GameManager implements ApplicationContextAware {
 
         this.gameOutcome = this.ruleProcessor.determineGameOutcome(this.board, this.legalMoves);
 
-//        System.out.printf("MovePool currentMovesUsed - maxMovesUsed - movesReturned: %,d - %,d - %,d%n",
-//                MovePool.currentMovesUsed, MovePool.maxMovesUsed, MovePool.movesReturned);
+//        MovePool movePool = this.ruleProcessor.getMovePool();
+//        System.out.printf("MovePool borrowed - released - allocated - peak in use: %,d - %,d - %,d - %,d%n",
+//                movePool.getMovesBorrowed(), movePool.getMovesReleased(), movePool.getMovesAllocated(),
+//                movePool.getPeakMovesInUsePerThread());
     }
 
     public void propagateNewState() {
@@ -239,7 +265,8 @@ public class GameManager implements ApplicationContextAware {
     // TODO: this method should be private, but it is needed for perf-testing the GameManager via Main at the moment
     public void executeMove(Move legalMove) {
         this.immutableBoardHistory.push(this.immutableBoard);
-        this.moveHistory.push(legalMove);
+        // The legal moves are released back to the pool by the next updateState(), so the history keeps its own copy
+        this.moveHistory.push(this.ruleProcessor.getMovePool().cloneMove(legalMove));
 
         this.board.makeMove(legalMove);
         executeStateChange();
@@ -250,7 +277,9 @@ public class GameManager implements ApplicationContextAware {
             throw new IllegalStateException("Cannot undo move. History is empty.");
         }
         this.immutableBoardHistory.pop();
-        this.board.unmakeMove(this.moveHistory.pop());
+        Move move = this.moveHistory.pop();
+        this.board.unmakeMove(move);
+        this.ruleProcessor.getMovePool().releaseMove(move);
         executeStateChange();
     }
 
@@ -282,9 +311,13 @@ public class GameManager implements ApplicationContextAware {
 
         Map<Color, Set<Square>> castlingPartnerLocs = new EnumMap<>(Color.class);
         for (Color color : Color.values()) {
-            Set<Square> copiedSet = new HashSet<>(board.getCastlingPartnerLocs().get(color));
-            Set<Square> unmodifiableSet = Collections.unmodifiableSet(copiedSet);
-            castlingPartnerLocs.put(color, unmodifiableSet);
+            Set<Square> castlingPartnerSquares = new HashSet<>();
+            long[] castlingPartnerBitboard = board.getCastlingPartnerBitboard(color);
+            for (int squareIndex = Bitboards.nextSetBit(castlingPartnerBitboard, 0); squareIndex >= 0;
+                 squareIndex = Bitboards.nextSetBit(castlingPartnerBitboard, squareIndex + 1)) {
+                castlingPartnerSquares.add(board.getSquare(squareIndex));
+            }
+            castlingPartnerLocs.put(color, Collections.unmodifiableSet(castlingPartnerSquares));
         }
 
         return new ImmutableBoard(width, height, pieceGrid, castlingPartnerLocs, board.getPromoOptions(),
@@ -299,14 +332,15 @@ public class GameManager implements ApplicationContextAware {
         }
         this.isAiSearching = true;
 
-        Board boardCopy = this.board.deepCopy();
+        Board boardCopy = this.board.snapshot();
 
         long aiSearchStartTime = System.nanoTime();
 
         aiSearchExecutor.submit(() -> {
             Move bestMove = null;
             try {
-                bestMove = alphaBetaSearcher.findBestMove(boardCopy, AI_SEARCH_DEPTH);
+                bestMove = alphaBetaSearcher.findBestMove(boardCopy, AI_MAX_SEARCH_DEPTH, this.aiSoftTimeLimitMillis,
+                        this.aiHardTimeLimitMillis, this.aiSearchThreadCount);
             } catch (InterruptedException e) {
                 System.out.println("AI search canceled. Reason: " + e.getMessage());
             } catch (Exception e) {
@@ -319,19 +353,51 @@ public class GameManager implements ApplicationContextAware {
                 long aiSearchLeafNodesEvaluated = this.alphaBetaSearcher.getLeafNodesEvaluatedPerMove();
                 double aiSearchLeafNodesEvaluatedPerSec = aiSearchLeafNodesEvaluated / aiSearchDurationSecs;
                 System.out.println("=======================");
-                System.out.printf("AI STATS - Search duration: %.2fs | Boards evaluated: %d | Boards per second: %.2f" +
-                                " | Leaf nodes evaluated: %d | Leaf nodes per second: %.2f%n",
-                        aiSearchDurationSecs, aiSearchBoardsEvaluated, aiSearchBoardsEvaluatedPerSec,
-                        aiSearchLeafNodesEvaluated, aiSearchLeafNodesEvaluatedPerSec);
+                System.out.printf("AI STATS - Search duration: %.2fs | Depth: %d | Boards evaluated: %d" +
+                                " | Boards per second: %.2f | Leaf nodes evaluated: %d | Leaf nodes per second: %.2f%n",
+                        aiSearchDurationSecs, this.alphaBetaSearcher.getCompletedDepthPerMove(),
+                        aiSearchBoardsEvaluated, aiSearchBoardsEvaluatedPerSec, aiSearchLeafNodesEvaluated,
+                        aiSearchLeafNodesEvaluatedPerSec);
+                System.out.printf("AI STATS - Beta cutoffs: %d | First move cutoff rate: %.1f%%%n",
+                        this.alphaBetaSearcher.getBetaCutoffsPerMove(),
+                        100.0 * this.alphaBetaSearcher.getFirstMoveBetaCutoffsPerMove()
+                                / Math.max(this.alphaBetaSearcher.getBetaCutoffsPerMove(), 1));
+                printPruningStats();
+                printTranspositionTableStats();
 
                 this.isAiSearching = false;
                 if (bestMove != null) {
                     System.out.println("AI move played: " + BoardUtils.moveToNotation(bestMove));
                     executeMove(bestMove);
+                    this.ruleProcessor.getMovePool().releaseMove(bestMove);
                 } else {
                     System.err.println("No AI move found. Checkmate or stalemate?");
                 }
             }
         });
     }
+
+    private void printPruningStats() {
+        System.out.printf("PRUNING STATS - Null move cutoffs: %d | Late move reductions: %d | LMR re-searches: %d"
+                        + " | Futility pruned moves: %d | Razoring cutoffs: %d | Delta pruned captures: %d%n",
+                this.alphaBetaSearcher.getNullMoveCutoffsPerMove(),
+                this.alphaBetaSearcher.getLateMoveReductionsPerMove(),
+                this.alphaBetaSearcher.getLateMoveReductionResearchesPerMove(),
+                this.alphaBetaSearcher.getFutilityPrunedMovesPerMove(),
+                this.alphaBetaSearcher.getRazoringCutoffsPerMove(),
+                this.alphaBetaSearcher.getDeltaPrunedMovesPerMove());
+    }
+
+    private void printTranspositionTableStats() {
+        TranspositionTable transpositionTable = this.alphaBetaSearcher.getTranspositionTable();
+        if (transpositionTable == null) {
+            return;
+        }
+        long probes = this.alphaBetaSearcher.getTranspositionTableProbesPerMove();
+        long hits = this.alphaBetaSearcher.getTranspositionTableHitsPerMove();
+        long cutoffs = this.alphaBetaSearcher.getTranspositionTableCutoffsPerMove();
+        System.out.printf("TT STATS - Probes: %d | Hit rate: %.1f%% | Cutoff rate: %.1f%% | Usage: %.1f%%%n", probes,
+                100.0 * hits / Math.max(probes, 1), 100.0 * cutoffs / Math.max(probes, 1),
+                transpositionTable.getUsagePermill() / 10.0);
+    }
 }
@@ -0,0 +1,62 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.AttackMaps;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.PieceTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AttackMapsTest {
+
+    private static final int DEPTH = 2;
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+
+    @BeforeEach
+    public void setUp() {
+        this.pieceTypes = TestPositions.loadPieceTypes();
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+    }
+
+    @Test
+    @DisplayName("Incrementally updated attack maps should match attack maps calculated from scratch")
+    public void testIncrementalAttackMaps() {
+        for (Board board : TestPositions.createBoards(this.pieceTypes)) {
+            board.enableAttackMaps();
+            TestPositions.forEachPosition(board, this.ruleProcessor, DEPTH,
+                    (position, legalMoves) -> assertAttackMapsMatchRecalculation(position));
+        }
+    }
+
+    private void assertAttackMapsMatchRecalculation(Board board) {
+        AttackMaps attackMaps = board.getAttackMaps();
+        Board recalculatedBoard = board.deepCopy();
+        recalculatedBoard.enableAttackMaps();
+        AttackMaps recalculatedAttackMaps = recalculatedBoard.getAttackMaps();
+
+        for (Color color : Color.values()) {
+            assertTrue(Arrays.equals(recalculatedAttackMaps.getAttackedBitboard(color),
+                    attackMaps.getAttackedBitboard(color)), "Attacked squares differ for " + color);
+        }
+        for (int squareIndex = 0; squareIndex < board.getWidth() * board.getHeight(); squareIndex++) {
+            for (Color color : Color.values()) {
+                assertEquals(recalculatedAttackMaps.getAttackCount(color, squareIndex),
+                        attackMaps.getAttackCount(color, squareIndex), "Attack count differs on square "
+                                + board.getSquare(squareIndex) + " for " + color);
+            }
+            assertTrue(Arrays.equals(recalculatedAttackMaps.getAttacksFrom(squareIndex),
+                    attackMaps.getAttacksFrom(squareIndex)), "Attacks differ from square "
+                    + board.getSquare(squareIndex));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Reference perft counts of seeded random boards (chaos_perft_results.csv), which cover every board size the ODD and
+// WEIRD chaos levels can generate. PerfTest checks the counts, the main method measures the perft speed per board size.
+// Not a test, since timings depend on the machine. Run with "run [rounds]" (default 3) to print the nodes per second
+// for every board size, or with "generate [depth] [max seed]" (defaults 3 and 10000) to print a new corpus that uses
+// the first seed of every chaos level producing each board size.
+public class ChaosPerftCorpus {
+
+    public static final String RESOURCE_NAME = "/chaos_perft_results.csv";
+
+    private static final ChaosLevel[] CHAOS_LEVELS = {ChaosLevel.ODD, ChaosLevel.WEIRD};
+    private static final int WARMUP_ROUNDS = 1;
+
+    public record Entry(ChaosLevel chaosLevel, long seed, int width, int height, int depth, long expectedNodes) {
+
+        public Board createBoard(PieceTypes pieceTypes) {
+            Board board = BoardFactory.createRandomInitialBoard(this.chaosLevel, this.seed, pieceTypes);
+            if (board.getWidth() != this.width || board.getHeight() != this.height) {
+                throw new IllegalStateException("Seed " + this.seed + " of chaos level " + this.chaosLevel
+                        + " no longer creates a " + this.width + "x" + this.height + " board");
+            }
+            return board;
+        }
+    }
+
+    // Same format as the CsvFileSource of PerfTest: comment lines start with '#', values are separated by commas
+    public static List<Entry> loadEntries() {
+        List<Entry> entries = new ArrayList<>();
+        try (InputStream in = ChaosPerftCorpus.class.getResourceAsStream(RESOURCE_NAME)) {
+            if (in == null) {
+                throw new IllegalStateException("Resource " + RESOURCE_NAME + " not found");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split("\\s*,\\s*");
+                entries.add(new Entry(ChaosLevel.valueOf(values[0]), Long.parseLong(values[1]),
+                        Integer.parseInt(values[2]), Integer.parseInt(values[3]), Integer.parseInt(values[4]),
+                        Long.parseLong(values[5])));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries;
+    }
+
+    public static void main(String[] args) {
+        String command = (args.length > 0) ? args[0] : "run";
+
+        ConfigLoader configLoader = new ConfigLoader();
+        PieceTypes pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, pieceTypes.pieceTypesMap().size());
+        PerfTestTool perfTestTool = new PerfTestTool(new RuleProcessor(new MovePool()));
+
+        switch (command) {
+            case "run" -> run(perfTestTool, pieceTypes, (args.length > 1) ? Integer.parseInt(args[1]) : 3);
+            case "generate" -> generate(perfTestTool, pieceTypes, (args.length > 1) ? Integer.parseInt(args[1]) : 3,
+                    (args.length > 2) ? Long.parseLong(args[2]) : 10_000);
+            default -> throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    private static void run(PerfTestTool perfTestTool, PieceTypes pieceTypes, int rounds) {
+        List<Entry> entries = loadEntries();
+        List<Board> boards = new ArrayList<>();
+        for (Entry entry : entries) {
+            boards.add(entry.createBoard(pieceTypes));
+        }
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < entries.size(); i++) {
+                perfTestTool.calculatePerft(boards.get(i), entries.get(i).depth());
+            }
+        }
+
+        // Board area first, so that performance cliffs on bigger boards stand out
+        Map<String, long[]> nodesAndNanosBySize = new TreeMap<>((a, b) -> {
+            int[] sizeA = parseSize(a);
+            int[] sizeB = parseSize(b);
+            int compare = Integer.compare(sizeA[0] * sizeA[1], sizeB[0] * sizeB[1]);
+            return (compare != 0) ? compare : a.compareTo(b);
+        });
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            long startTime = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                long nodes = perfTestTool.calculatePerft(boards.get(i), entry.depth());
+                if (nodes != entry.expectedNodes()) {
+                    throw new IllegalStateException("Wrong perft count for seed " + entry.seed() + " of chaos level "
+                            + entry.chaosLevel() + ": expected " + entry.expectedNodes() + ", found " + nodes);
+                }
+            }
+            long[] nodesAndNanos = nodesAndNanosBySize.computeIfAbsent(entry.width() + "x" + entry.height(),
+                    size -> new long[2]);
+            nodesAndNanos[0] += rounds * entry.expectedNodes();
+            nodesAndNanos[1] += System.nanoTime() - startTime;
+        }
+
+        System.out.printf("%-6s %14s %10s %14s%n", "Size", "Nodes", "Time (ms)", "Nodes/s");
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (Map.Entry<String, long[]> sizeEntry : nodesAndNanosBySize.entrySet()) {
+            long nodes = sizeEntry.getValue()[0];
+            long nanos = sizeEntry.getValue()[1];
+            System.out.printf("%-6s %,14d %,10d %,14d%n", sizeEntry.getKey(), nodes, nanos / 1_000_000,
+                    (long) (nodes / (nanos / 1e9)));
+            totalNodes += nodes;
+            totalNanos += nanos;
+        }
+        System.out.printf("%-6s %,14d %,10d %,14d%n", "Total", totalNodes, totalNanos / 1_000_000,
+                (long) (totalNodes / (totalNanos / 1e9)));
+    }
+
+    private static int[] parseSize(String size) {
+        String[] parts = size.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    private static void generate(PerfTestTool perfTestTool, PieceTypes pieceTypes, int depth, long maxSeed) {
+        System.out.println("# FORMAT: Chaos level, Seed, Width, Height, Depth (Ply), Expected Nodes (Count)");
+        for (ChaosLevel chaosLevel : CHAOS_LEVELS) {
+            System.out.println();
+            System.out.println("# " + chaosLevel);
+            Set<String> coveredSizes = new HashSet<>();
+            for (long seed = 1; seed <= maxSeed; seed++) {
+                Board board = BoardFactory.createRandomInitialBoard(chaosLevel, seed, pieceTypes);
+                if (coveredSizes.add(board.getWidth() + "x" + board.getHeight())) {
+                    System.out.printf("%s,%d,%d,%d,%d,%d%n", chaosLevel, seed, board.getWidth(), board.getHeight(),
+                            depth, perfTestTool.calculatePerft(board, depth));
+                }
+            }
+        }
+    }
+}
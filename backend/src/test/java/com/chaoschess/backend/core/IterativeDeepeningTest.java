@@ -0,0 +1,150 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.ai.AlphaBetaSearcher;
+import com.chaoschess.backend.core.ai.BoardEvaluator;
+import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IterativeDeepeningTest {
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+
+    @BeforeEach
+    public void setUp() {
+        this.pieceTypes = TestPositions.loadPieceTypes();
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+    }
+
+    @Test
+    @DisplayName("The hard time limit should end the search with the move of the last completed iteration")
+    public void testHardTimeLimit() throws InterruptedException {
+        // The largest WEIRD board size, full of fairy pieces
+        Board board = BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, 63, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+        long zobristHash = board.getZobristHash();
+        int historyLength = board.getHistoryLength();
+
+        long startTime = System.nanoTime();
+        Move move = searcher.findBestMove(board, AlphaBetaSearcher.MAX_SEARCH_DEPTH, 100, 200);
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        assertNotNull(move);
+        assertTrue(searcher.getCompletedDepthPerMove() >= 1);
+        assertTrue(searcher.getCompletedDepthPerMove() < AlphaBetaSearcher.MAX_SEARCH_DEPTH);
+        // Generous margin for slow machines, the point is that the search does not run to the maximum depth
+        assertTrue(elapsedMillis < 5_000, "Search took " + elapsedMillis + " ms");
+        // The search works on a copy, even when an iteration is abandoned
+        assertEquals(zobristHash, board.getZobristHash());
+        assertEquals(historyLength, board.getHistoryLength());
+    }
+
+    @Test
+    @DisplayName("Without time limits, the search should complete every iteration up to the given depth")
+    public void testFixedDepth() throws InterruptedException {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+
+        assertNotNull(searcher.findBestMove(board, 3));
+        assertEquals(3, searcher.getCompletedDepthPerMove());
+        // Move ordering statistics
+        assertTrue(searcher.getBetaCutoffsPerMove() > 0);
+        assertTrue(searcher.getFirstMoveBetaCutoffsPerMove() > 0);
+        assertTrue(searcher.getFirstMoveBetaCutoffsPerMove() <= searcher.getBetaCutoffsPerMove());
+        // The statistics are per search, not accumulated over the searches of a game
+        long leafNodesEvaluated = searcher.getLeafNodesEvaluatedPerMove();
+        assertNotNull(searcher.findBestMove(board, 3));
+        assertTrue(searcher.getLeafNodesEvaluatedPerMove() <= leafNodesEvaluated);
+    }
+
+    @Test
+    @DisplayName("A new game should start with an empty transposition table")
+    public void testNewGameClearsTranspositionTable() throws InterruptedException {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+        assertNotNull(searcher.findBestMove(board, 3));
+        assertNotEquals(0, searcher.getTranspositionTable().probe(board.getZobristHash()));
+
+        // A position of the previous game must not be found by the first search of the new one
+        searcher.startNewGame();
+        Board newBoard = BoardFactory.createBoardFromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", this.pieceTypes);
+        assertNotNull(searcher.findBestMove(newBoard, 1));
+        assertEquals(0, searcher.getTranspositionTable().probe(board.getZobristHash()));
+    }
+
+    @Test
+    @DisplayName("The search should stop deepening once it has found a mate")
+    public void testStopsAtMate() throws InterruptedException {
+        // Back rank mate in one: Ra8#
+        Board board = BoardFactory.createBoardFromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+
+        Move move = searcher.findBestMove(board, 10);
+        assertEquals(1, searcher.getCompletedDepthPerMove());
+        assertEquals(board.getSquare(0, 7), move.getTo());
+    }
+
+    @Test
+    @DisplayName("Zero-window scouts and aspiration windows should still find a tactic that only pays off deeper")
+    public void testFindsKnightFork() throws InterruptedException {
+        // Nc7+ forks king and rook, winning the rook on the third ply
+        Board board = BoardFactory.createBoardFromFen("r3k3/8/8/1N6/8/8/8/7K w - - 0 1", this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+
+        Move move = searcher.findBestMove(board, 4);
+        assertEquals(4, searcher.getCompletedDepthPerMove());
+        assertEquals(board.getSquare(1, 4), move.getFrom());
+        assertEquals(board.getSquare(2, 6), move.getTo());
+    }
+
+    @Test
+    @DisplayName("Null move pruning and late move reductions should prune the search without missing a tactic")
+    public void testSelectivePruning() throws InterruptedException {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+
+        assertNotNull(searcher.findBestMove(board, 5));
+        assertTrue(searcher.getNullMoveCutoffsPerMove() > 0);
+        assertTrue(searcher.getLateMoveReductionsPerMove() > 0);
+        assertTrue(searcher.getLateMoveReductionResearchesPerMove() <= searcher.getLateMoveReductionsPerMove());
+
+        // The fork only pays off after the reductions have kicked in
+        board = BoardFactory.createBoardFromFen("r3k3/8/8/1N6/8/8/8/7K w - - 0 1", this.pieceTypes);
+        Move move = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor).findBestMove(board, 6);
+        assertEquals(board.getSquare(2, 6), move.getTo());
+    }
+
+    @Test
+    @DisplayName("Futility pruning, razoring and delta pruning should prune the frontier and quiescence nodes")
+    public void testFrontierAndQuiescencePruning() throws InterruptedException {
+        // Full of fairy pieces, so that there is much to capture
+        Board board = BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, 63, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+        BoardEvaluator boardEvaluator = new BoardEvaluator(this.pieceTypes);
+        // The amazon is the most valuable piece type of the loaded set
+        assertEquals((int) BoardEvaluator.MATERIAL_VALUES.get("Amazon"), boardEvaluator.getMaxMaterialValue());
+
+        assertNotNull(searcher.findBestMove(board, 6));
+        assertTrue(searcher.getFutilityPrunedMovesPerMove() > 0);
+        assertTrue(searcher.getRazoringCutoffsPerMove() > 0);
+        assertTrue(searcher.getDeltaPrunedMovesPerMove() > 0);
+
+        // Winning the rook still has to be found behind the pruned frontier
+        board = BoardFactory.createBoardFromFen("r3k3/8/8/1N6/8/8/8/7K w - - 0 1", this.pieceTypes);
+        Move move = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor).findBestMove(board, 6);
+        assertEquals(board.getSquare(2, 6), move.getTo());
+    }
+}
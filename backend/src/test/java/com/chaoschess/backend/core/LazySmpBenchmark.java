@@ -0,0 +1,80 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.ai.AlphaBetaSearcher;
+import com.chaoschess.backend.core.ai.BoardEvaluator;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Measures the time-to-depth speedup of the Lazy SMP search (see AlphaBetaSearcher) for 1, 2, 4, 8 and 16 threads on
+// standard positions and on randomly generated boards. Every search starts with an empty transposition table. Not a
+// test, since timings depend on the machine (and on its number of cores); run the main method with an optional search
+// depth (default 5).
+public class LazySmpBenchmark {
+
+    private static final String[] STANDARD_FENS = {
+            Board.STANDARD_INITIAL_BOARD_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"
+    };
+    private static final long[] WEIRD_BOARD_SEEDS = {1, 3, 20};
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) throws InterruptedException {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+
+        ConfigLoader configLoader = new ConfigLoader();
+        PieceTypes pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, pieceTypes.pieceTypesMap().size());
+
+        List<Board> boards = new ArrayList<>();
+        for (String fen : STANDARD_FENS) {
+            boards.add(BoardFactory.createBoardFromFen(fen, pieceTypes));
+        }
+        for (long seed : WEIRD_BOARD_SEEDS) {
+            boards.add(BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, seed, pieceTypes));
+        }
+        RuleProcessor ruleProcessor = new RuleProcessor(new MovePool());
+
+        // Warm-up, so that the single-threaded run is not measured with cold code
+        runSearches(ruleProcessor, pieceTypes, boards, depth - 1, 1);
+
+        System.out.printf("%-8s %10s %14s %9s%n", "Threads", "Time (ms)", "Boards", "Speedup");
+        long singleThreadNanos = 0;
+        for (int threadCount : THREAD_COUNTS) {
+            long[] nanosAndBoards = runSearches(ruleProcessor, pieceTypes, boards, depth, threadCount);
+            if (threadCount == 1) {
+                singleThreadNanos = nanosAndBoards[0];
+            }
+            System.out.printf("%-8d %,10d %,14d %8.2fx%n", threadCount, nanosAndBoards[0] / 1_000_000,
+                    nanosAndBoards[1], (double) singleThreadNanos / nanosAndBoards[0]);
+        }
+    }
+
+    // Returns the total search time in ns and the number of boards evaluated by all threads
+    private static long[] runSearches(RuleProcessor ruleProcessor, PieceTypes pieceTypes, List<Board> boards, int depth,
+                                      int threadCount) throws InterruptedException {
+        long nanos = 0;
+        long boardsEvaluated = 0;
+        for (Board board : boards) {
+            BoardEvaluator boardEvaluator = new BoardEvaluator(pieceTypes);
+            boardEvaluator.initializePSTs(board.getWidth(), board.getHeight(), pieceTypes);
+            AlphaBetaSearcher searcher = new AlphaBetaSearcher(ruleProcessor, boardEvaluator);
+
+            long startTime = System.nanoTime();
+            searcher.findBestMove(board, depth, AlphaBetaSearcher.NO_TIME_LIMIT, AlphaBetaSearcher.NO_TIME_LIMIT,
+                    threadCount);
+            nanos += System.nanoTime() - startTime;
+            boardsEvaluated += searcher.getBoardsEvaluatedPerMove();
+        }
+        return new long[]{nanos, boardsEvaluated};
+    }
+}
@@ -0,0 +1,98 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.ai.AlphaBetaSearcher;
+import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazySmpTest {
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+
+    @BeforeEach
+    public void setUp() {
+        this.pieceTypes = TestPositions.loadPieceTypes();
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+    }
+
+    @Test
+    @DisplayName("A multi-threaded search should return a legal move and leave the board untouched")
+    public void testMultiThreadedSearch() throws InterruptedException {
+        for (long seed = 1; seed <= 3; seed++) {
+            Board board = BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, seed, this.pieceTypes);
+            long zobristHash = board.getZobristHash();
+            List<Move> legalMoves = this.ruleProcessor.calculateLegalMoves(board);
+            AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+
+            Move move = searcher.findBestMove(board, 3, AlphaBetaSearcher.NO_TIME_LIMIT,
+                    AlphaBetaSearcher.NO_TIME_LIMIT, 4);
+
+            assertNotNull(move);
+            assertTrue(legalMoves.stream().anyMatch(legalMove -> legalMove.getFrom().equals(move.getFrom())
+                    && legalMove.getTo().equals(move.getTo())), "Illegal move for seed " + seed);
+            assertTrue(searcher.getCompletedDepthPerMove() >= 3);
+            assertTrue(searcher.getAlphaBetaCallsPerMove() >= searcher.getBetaCutoffsPerMove());
+            assertEquals(zobristHash, board.getZobristHash());
+        }
+    }
+
+    @Test
+    @DisplayName("Helper threads should stop with the main thread at the hard time limit")
+    public void testMultiThreadedSearchWithTimeLimit() throws InterruptedException {
+        Board board = BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, 63, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+
+        long startTime = System.nanoTime();
+        Move move = searcher.findBestMove(board, AlphaBetaSearcher.MAX_SEARCH_DEPTH, 100, 200, 3);
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        assertNotNull(move);
+        assertTrue(elapsedMillis < 5_000, "Search took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("A canceled search should only return once all helper threads have stopped")
+    public void testCanceledSearchWaitsForHelpers() {
+        Board board = BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, 63, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+
+        // The main thread gives up on its first node, while the helpers have no time limit
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> searcher.findBestMove(board, AlphaBetaSearcher.MAX_SEARCH_DEPTH,
+                AlphaBetaSearcher.NO_TIME_LIMIT, AlphaBetaSearcher.NO_TIME_LIMIT, 4));
+        assertTrue(Thread.interrupted(), "The interrupt should be passed on");
+
+        for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+            for (StackTraceElement frame : thread.getValue()) {
+                assertFalse(frame.getClassName().endsWith(".SearchWorker"),
+                        "Still searching after cancellation: " + thread.getKey().getName());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Thread counts outside of the supported range should be rejected")
+    public void testInvalidThreadCount() {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        AlphaBetaSearcher searcher = TestPositions.createSearcher(board, this.pieceTypes, this.ruleProcessor);
+        assertThrows(IllegalArgumentException.class, () -> searcher.findBestMove(board, 2,
+                AlphaBetaSearcher.NO_TIME_LIMIT, AlphaBetaSearcher.NO_TIME_LIMIT, 0));
+    }
+}
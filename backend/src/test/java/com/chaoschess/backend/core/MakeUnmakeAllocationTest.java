@@ -0,0 +1,116 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.model.PieceTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MakeUnmakeAllocationTest {
+
+    private static final int MAKE_UNMAKE_PAIRS = 1_000_000;
+    // Leaves some headroom for allocations outside of makeMove() and unmakeMove() that are attributed to the test
+    // thread, such as the measurement itself. A single boxed value per move would already exceed this by far.
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    private RuleProcessor ruleProcessor;
+    private Board[] boards;
+    private Move[][] legalMoves;
+
+    @BeforeEach
+    public void setUp() {
+        PieceTypes pieceTypes = TestPositions.loadPieceTypes();
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+        this.boards = new Board[TestPositions.FENS.length];
+        this.legalMoves = new Move[TestPositions.FENS.length][];
+        for (int i = 0; i < TestPositions.FENS.length; i++) {
+            this.boards[i] = BoardFactory.createBoardFromFen(TestPositions.FENS[i], pieceTypes);
+            List<Move> moves = this.ruleProcessor.calculateLegalMoves(this.boards[i]);
+            this.legalMoves[i] = moves.toArray(new Move[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Making and unmaking moves should not allocate")
+    public void testMakeUnmakeAllocation() {
+        long[] initialZobristHashes = new long[this.boards.length];
+        for (int i = 0; i < this.boards.length; i++) {
+            initialZobristHashes[i] = this.boards[i].getZobristHash();
+        }
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Warm-up run, so that the measured run executes compiled code
+        makeAndUnmakeMoves(MAKE_UNMAKE_PAIRS);
+
+        long allocatedBytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        makeAndUnmakeMoves(MAKE_UNMAKE_PAIRS);
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        for (int i = 0; i < this.boards.length; i++) {
+            assertEquals(initialZobristHashes[i], this.boards[i].getZobristHash(),
+                    "Zobrist hash after make/unmake differs for FEN " + TestPositions.FENS[i]);
+        }
+        assertTrue(allocatedBytes <= MAX_ALLOCATED_BYTES,
+                () -> String.format("%,d make/unmake pairs allocated %,d bytes. Expected at most %,d bytes.",
+                        MAKE_UNMAKE_PAIRS, allocatedBytes, MAX_ALLOCATED_BYTES));
+    }
+
+    @Test
+    @DisplayName("Generating legal moves into a reused move list should not allocate")
+    public void testMoveGenerationAllocation() {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MoveList moves = new MoveList();
+
+        // Warm-up run, which also lets the move list grow to its final capacity
+        generateMoves(moves, MAKE_UNMAKE_PAIRS / 10);
+
+        long allocatedBytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        generateMoves(moves, MAKE_UNMAKE_PAIRS / 10);
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        assertTrue(allocatedBytes <= MAX_ALLOCATED_BYTES,
+                () -> String.format("%,d move generations allocated %,d bytes. Expected at most %,d bytes.",
+                        MAKE_UNMAKE_PAIRS / 10, allocatedBytes, MAX_ALLOCATED_BYTES));
+    }
+
+    private void generateMoves(MoveList moves, int generations) {
+        for (int i = 0; i < generations; i++) {
+            Board board = this.boards[i % this.boards.length];
+            this.ruleProcessor.calculateLegalMoves(board, moves);
+            // Also makes and unmakes the first move, so that the generation runs on varying positions
+            int move = moves.get(0);
+            board.makeMove(move);
+            this.ruleProcessor.calculateLegalMoves(board, moves);
+            board.unmakeMove(move);
+        }
+    }
+
+    private void makeAndUnmakeMoves(int pairs) {
+        int boardIndex = 0;
+        int moveIndex = 0;
+        for (int i = 0; i < pairs; i++) {
+            Board board = this.boards[boardIndex];
+            Move move = this.legalMoves[boardIndex][moveIndex];
+            board.makeMove(move);
+            board.unmakeMove(move);
+
+            if (++moveIndex == this.legalMoves[boardIndex].length) {
+                moveIndex = 0;
+                boardIndex = (boardIndex + 1) % this.boards.length;
+            }
+        }
+    }
+}
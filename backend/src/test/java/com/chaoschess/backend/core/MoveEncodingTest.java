@@ -0,0 +1,56 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MoveEncoding;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.model.PieceTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MoveEncodingTest {
+
+    private static final int DEPTH = 1;
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+
+    @BeforeEach
+    public void setUp() {
+        this.pieceTypes = TestPositions.loadPieceTypes();
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+    }
+
+    @Test
+    @DisplayName("Encoded moves should survive the round trip through Move objects and make the same moves")
+    public void testMoveEncodingRoundTrip() {
+        for (Board board : TestPositions.createBoards(this.pieceTypes)) {
+            TestPositions.forEachPosition(board, this.ruleProcessor, DEPTH, this::checkRoundTrips);
+        }
+    }
+
+    private void checkRoundTrips(Board board, MoveList moves) {
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            Move moveObject = MoveEncoding.toMove(board, move, this.ruleProcessor.getMovePool());
+            assertEquals(move, MoveEncoding.fromMove(board, moveObject), "Round trip changed the move "
+                    + moveObject.getFrom() + " -> " + moveObject.getTo());
+
+            long zobristHash = board.getZobristHash();
+            board.makeMove(moveObject);
+            long zobristHashAfterMoveObject = board.getZobristHash();
+            board.unmakeMove(moveObject);
+            board.makeMove(move);
+            assertEquals(zobristHashAfterMoveObject, board.getZobristHash());
+            board.unmakeMove(move);
+            assertEquals(zobristHash, board.getZobristHash());
+
+            this.ruleProcessor.getMovePool().releaseMove(moveObject);
+        }
+    }
+}
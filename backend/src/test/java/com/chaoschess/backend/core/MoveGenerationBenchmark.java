@@ -0,0 +1,82 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MoveGenerationMode;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares the perft speed of the interpreted and the compiled move generation (see MoveGenerationMode) on standard
+// positions and on randomly generated boards full of fairy pieces. Not a test, since timings depend on the machine; run
+// the main method with an optional perft depth (default 4).
+public class MoveGenerationBenchmark {
+
+    private static final String[] STANDARD_FENS = {
+            Board.STANDARD_INITIAL_BOARD_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+    private static final int FAIRY_BOARD_COUNT = 10;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+
+        ConfigLoader configLoader = new ConfigLoader();
+        PieceTypes pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, pieceTypes.pieceTypesMap().size());
+
+        List<Board> standardBoards = new ArrayList<>();
+        for (String fen : STANDARD_FENS) {
+            standardBoards.add(BoardFactory.createBoardFromFen(fen, pieceTypes));
+        }
+        List<Board> fairyBoards = new ArrayList<>();
+        for (long seed = 1; seed <= FAIRY_BOARD_COUNT; seed++) {
+            fairyBoards.add(BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, seed, pieceTypes));
+        }
+
+        RuleProcessor ruleProcessor = new RuleProcessor(new MovePool());
+        PerfTestTool perfTestTool = new PerfTestTool(ruleProcessor);
+        for (MoveGenerationMode mode : MoveGenerationMode.values()) {
+            ruleProcessor.setMoveGenerationMode(mode);
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                runPerft(perfTestTool, standardBoards, depth - 1);
+                runPerft(perfTestTool, fairyBoards, depth - 1);
+            }
+        }
+
+        System.out.printf("%-12s %-9s %14s %10s %14s%n", "Mode", "Boards", "Nodes", "Time (ms)", "Nodes/s");
+        for (String boardSet : new String[]{"standard", "fairy"}) {
+            List<Board> boards = boardSet.equals("standard") ? standardBoards : fairyBoards;
+            for (MoveGenerationMode mode : MoveGenerationMode.values()) {
+                ruleProcessor.setMoveGenerationMode(mode);
+                long nodes = 0;
+                long startTime = System.nanoTime();
+                for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                    nodes += runPerft(perfTestTool, boards, depth);
+                }
+                long elapsedNanos = System.nanoTime() - startTime;
+                System.out.printf("%-12s %-9s %,14d %,10d %,14d%n", mode, boardSet, nodes, elapsedNanos / 1_000_000,
+                        (long) (nodes / (elapsedNanos / 1e9)));
+            }
+        }
+    }
+
+    private static long runPerft(PerfTestTool perfTestTool, List<Board> boards, int depth) {
+        long nodes = 0;
+        for (Board board : boards) {
+            nodes += perfTestTool.calculatePerft(board, depth);
+        }
+        return nodes;
+    }
+}
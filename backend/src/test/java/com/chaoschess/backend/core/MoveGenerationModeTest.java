@@ -0,0 +1,57 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MoveFilter;
+import com.chaoschess.backend.core.engine.MoveGenerationMode;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MoveGenerationModeTest {
+
+    private static final int DEPTH = 2;
+    private static final int SEED_COUNT = 6;
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor interpreted;
+    private RuleProcessor compiled;
+
+    @BeforeEach
+    public void setUp() {
+        this.pieceTypes = TestPositions.loadPieceTypes();
+
+        MovePool movePool = new MovePool();
+        this.interpreted = new RuleProcessor(movePool);
+        this.compiled = new RuleProcessor(movePool);
+        this.compiled.setMoveGenerationMode(MoveGenerationMode.COMPILED);
+    }
+
+    @Test
+    @DisplayName("Compiled generators should generate the same moves in the same order as the interpreter")
+    public void testCompiledModeMatchesInterpretedMode() {
+        for (Board board : TestPositions.createBoards(this.pieceTypes, SEED_COUNT, ChaosLevel.values())) {
+            TestPositions.forEachPosition(board, this.interpreted, DEPTH, (position, legalMoves) -> compare(position));
+        }
+    }
+
+    private void compare(Board board) {
+        MoveList interpretedMoves = new MoveList();
+        MoveList compiledMoves = new MoveList();
+        for (MoveFilter moveFilter : MoveFilter.values()) {
+            this.interpreted.calculateLegalMoves(board, interpretedMoves, moveFilter);
+            this.compiled.calculateLegalMoves(board, compiledMoves, moveFilter);
+
+            assertEquals(interpretedMoves.size(), compiledMoves.size(), "Different number of moves for " + moveFilter);
+            for (int i = 0; i < interpretedMoves.size(); i++) {
+                assertEquals(interpretedMoves.get(i), compiledMoves.get(i), "Different move at index " + i);
+            }
+        }
+    }
+}
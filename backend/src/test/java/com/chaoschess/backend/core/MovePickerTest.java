@@ -0,0 +1,172 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MoveEncoding;
+import com.chaoschess.backend.core.engine.MoveFilter;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePicker;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.model.PieceTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovePickerTest {
+
+    private static final int DEPTH = 1;
+
+    // Captures of more valuable pieces first, captures by pawns scoring below zero
+    private static final MovePicker.MoveScorer MOVE_SCORER = (board, move) -> MoveEncoding.isCapture(move)
+            ? MoveEncoding.getCapturedPieceTypeId(move) - board.getPieceAt(MoveEncoding.getFrom(move)).type().id()
+            : 0;
+    // Stands in for the history heuristic: quiet moves to squares further up the board first
+    private static final MovePicker.MoveScorer QUIET_MOVE_SCORER = (board, move) -> MoveEncoding.getTo(move);
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+
+    @BeforeEach
+    public void setUp() {
+        this.pieceTypes = TestPositions.loadPieceTypes();
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+    }
+
+    @Test
+    @DisplayName("The move picker should return every legal move exactly once, whatever hash, killer and counter moves "
+            + "it gets")
+    public void testMovePickerReturnsEachLegalMoveOnce() {
+        for (Board board : TestPositions.createBoards(this.pieceTypes)) {
+            List<Integer> movesOfOtherPositions = new ArrayList<>();
+            TestPositions.forEachPosition(board, this.ruleProcessor, DEPTH, (position, legalMoves) -> {
+                checkPosition(position, legalMoves, movesOfOtherPositions);
+                for (int i = 0; i < legalMoves.size(); i++) {
+                    movesOfOtherPositions.add(legalMoves.get(i));
+                }
+            });
+        }
+    }
+
+    private void checkPosition(Board board, MoveList legalMoves, List<Integer> movesOfOtherPositions) {
+        Set<Integer> expectedMoves = toSet(legalMoves, MoveFilter.ALL);
+        Set<Integer> expectedTacticalMoves = toSet(legalMoves, MoveFilter.TACTICAL);
+
+        // Legal moves and moves from other positions (mostly illegal here) as hash, killer and counter moves
+        int legalMove = legalMoves.isEmpty() ? MoveEncoding.NONE : legalMoves.get(legalMoves.size() - 1);
+        int otherMove = movesOfOtherPositions.isEmpty() ? MoveEncoding.NONE
+                : movesOfOtherPositions.get(movesOfOtherPositions.size() / 2);
+        int firstLegalMove = legalMoves.isEmpty() ? MoveEncoding.NONE : legalMoves.get(0);
+        int[][] hashKillerAndCounterMoves = {
+                {MoveEncoding.NONE, MoveEncoding.NONE, MoveEncoding.NONE, MoveEncoding.NONE},
+                {legalMove, legalMove, MoveEncoding.NONE, legalMove},
+                {otherMove, legalMove, otherMove, firstLegalMove},
+                {legalMove, otherMove, firstLegalMove, otherMove},
+                {MoveEncoding.NONE, otherMove, legalMove, firstLegalMove}
+        };
+        MovePicker movePicker = new MovePicker();
+        for (int[] moves : hashKillerAndCounterMoves) {
+            movePicker.init(board, this.ruleProcessor, MOVE_SCORER, false, moves[0], moves[1], moves[2]);
+            assertEquals(expectedMoves, pickAll(movePicker));
+            assertEquals(expectedMoves.size(), movePicker.getPickedMoveCount());
+
+            movePicker.init(board, this.ruleProcessor, MOVE_SCORER, QUIET_MOVE_SCORER, false, moves[0], moves[1],
+                    moves[2], moves[3]);
+            assertEquals(expectedMoves, pickAll(movePicker));
+            assertEquals(expectedMoves.size(), movePicker.getPickedMoveCount());
+
+            movePicker.init(board, this.ruleProcessor, MOVE_SCORER, QUIET_MOVE_SCORER, true, moves[0], moves[1],
+                    moves[2], moves[3]);
+            assertEquals(expectedTacticalMoves, pickAll(movePicker));
+        }
+    }
+
+    @Test
+    @DisplayName("Captures should be picked by descending score, with negative scores after the quiet moves")
+    public void testMovePickerOrder() {
+        for (Board board : TestPositions.createBoards(this.pieceTypes)) {
+            MovePicker movePicker = new MovePicker();
+            movePicker.init(board, this.ruleProcessor, MOVE_SCORER, false, MoveEncoding.NONE, MoveEncoding.NONE,
+                    MoveEncoding.NONE);
+
+            // 0: good tactical moves, 1: quiet moves, 2: bad tactical moves
+            int group = 0;
+            int previousScore = Integer.MAX_VALUE;
+            for (int move = movePicker.next(); move != MoveEncoding.NONE; move = movePicker.next()) {
+                int score = MOVE_SCORER.scoreMove(board, move);
+                if (!MoveFilter.isTactical(move)) {
+                    assertTrue(group <= 1, "Quiet move after a bad tactical move");
+                    group = 1;
+                    continue;
+                }
+                int moveGroup = (score >= 0) ? 0 : 2;
+                assertTrue(moveGroup >= group, "Good tactical move after a quiet move");
+                if (moveGroup != group) {
+                    previousScore = Integer.MAX_VALUE;
+                }
+                group = moveGroup;
+                assertTrue(score <= previousScore, "Tactical moves not ordered by score");
+                previousScore = score;
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Killer and counter moves should be picked before the other quiet moves, which follow by descending "
+            + "score")
+    public void testMovePickerQuietOrder() {
+        for (Board board : TestPositions.createBoards(this.pieceTypes)) {
+            MoveList quietMoves = new MoveList();
+            this.ruleProcessor.calculateLegalMoves(board, quietMoves, MoveFilter.QUIET);
+            if (quietMoves.size() < 3) {
+                continue;
+            }
+            int killerMove = quietMoves.get(0);
+            int counterMove = quietMoves.get(1);
+
+            MovePicker movePicker = new MovePicker();
+            movePicker.init(board, this.ruleProcessor, MOVE_SCORER, QUIET_MOVE_SCORER, false, MoveEncoding.NONE,
+                    killerMove, MoveEncoding.NONE, counterMove);
+            List<Integer> pickedQuietMoves = new ArrayList<>();
+            for (int move = movePicker.next(); move != MoveEncoding.NONE; move = movePicker.next()) {
+                if (!MoveFilter.isTactical(move)) {
+                    pickedQuietMoves.add(move);
+                }
+            }
+
+            assertEquals(quietMoves.size(), pickedQuietMoves.size());
+            assertEquals(killerMove, (int) pickedQuietMoves.get(0));
+            assertEquals(counterMove, (int) pickedQuietMoves.get(1));
+            for (int i = 3; i < pickedQuietMoves.size(); i++) {
+                assertTrue(QUIET_MOVE_SCORER.scoreMove(board, pickedQuietMoves.get(i))
+                        <= QUIET_MOVE_SCORER.scoreMove(board, pickedQuietMoves.get(i - 1)),
+                        "Quiet moves not ordered by score");
+            }
+        }
+    }
+
+    private static Set<Integer> toSet(MoveList moves, MoveFilter moveFilter) {
+        Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < moves.size(); i++) {
+            if (moveFilter.accepts(moves.get(i))) {
+                result.add(moves.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static Set<Integer> pickAll(MovePicker movePicker) {
+        Set<Integer> pickedMoves = new HashSet<>();
+        for (int move = movePicker.next(); move != MoveEncoding.NONE; move = movePicker.next()) {
+            assertTrue(pickedMoves.add(move), "Move picked twice");
+        }
+        return pickedMoves;
+    }
+}
@@ -0,0 +1,111 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MovePool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovePoolTest {
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 200;
+    // Exceeds the initial capacity of a thread's free list, so the pool has to adapt
+    private static final int MOVES_PER_ROUND = 5000;
+
+    @Test
+    @DisplayName("Threads borrowing and releasing concurrently should each only allocate until they reach their peak")
+    public void testConcurrentBorrowAndRelease() throws InterruptedException {
+        MovePool movePool = new MovePool();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            threads.add(new Thread(() -> borrowAndRelease(movePool, ROUNDS)));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long expectedMoves = (long) THREADS * ROUNDS * MOVES_PER_ROUND;
+        assertEquals(expectedMoves, movePool.getMovesBorrowed());
+        assertEquals(expectedMoves, movePool.getMovesReleased());
+        assertEquals(MOVES_PER_ROUND, movePool.getPeakMovesInUsePerThread());
+        // Growing in batches overshoots the peak by less than a factor of two
+        assertTrue(movePool.getMovesAllocated() < 2L * THREADS * MOVES_PER_ROUND,
+                "Allocated " + movePool.getMovesAllocated() + " moves");
+    }
+
+    @Test
+    @DisplayName("A thread that keeps its peak usage should not allocate after the first round")
+    public void testNoAllocationAfterAdaptation() {
+        MovePool movePool = new MovePool();
+
+        borrowAndRelease(movePool, 1);
+        long movesAllocatedAfterFirstRound = movePool.getMovesAllocated();
+        borrowAndRelease(movePool, ROUNDS);
+
+        assertEquals(movesAllocatedAfterFirstRound, movePool.getMovesAllocated());
+        assertEquals(movePool.getMovesBorrowed(), movePool.getMovesReleased());
+    }
+
+    @Test
+    @DisplayName("Moves released on another thread than the one that borrowed them should keep the pool bounded")
+    public void testCrossThreadRelease() throws InterruptedException {
+        // The borrowing thread never gets its moves back, like the threads of the GameManager
+        MovePool movePool = new MovePool();
+        movePool.releaseAllMoves(borrowOnOtherThread(movePool, 4 * MovePool.MAX_CAPACITY));
+        assertEquals(MovePool.MAX_CAPACITY, movePool.getPeakMovesInUsePerThread());
+
+        // Releasing moves of another thread must not hide the moves this thread has in use itself later on
+        movePool = new MovePool();
+        movePool.releaseAllMoves(borrowOnOtherThread(movePool, MOVES_PER_ROUND / 2));
+        borrowAndRelease(movePool, 1);
+        assertEquals(MOVES_PER_ROUND, movePool.getPeakMovesInUsePerThread());
+        assertEquals(movePool.getMovesBorrowed(), movePool.getMovesReleased());
+    }
+
+    @Test
+    @DisplayName("A borrowed move should never be handed out again before it is released")
+    public void testBorrowedMovesAreDistinct() {
+        MovePool movePool = new MovePool();
+        Move first = movePool.createMove(null, null, null, null, false, null, null, false, false, null, null, null);
+        Move second = movePool.createMove(null, null, null, null, false, null, null, false, false, null, null, null);
+        assertNotSame(first, second);
+        movePool.releaseMove(first);
+        movePool.releaseMove(second);
+    }
+
+    private static List<Move> borrowOnOtherThread(MovePool movePool, int count) throws InterruptedException {
+        List<Move> moves = new ArrayList<>(count);
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                moves.add(movePool.createMove(null, null, null, null, false, null, null, false, false, null, null,
+                        null));
+            }
+        });
+        thread.start();
+        thread.join();
+        return moves;
+    }
+
+    private static void borrowAndRelease(MovePool movePool, int rounds) {
+        List<Move> moves = new ArrayList<>(MOVES_PER_ROUND);
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < MOVES_PER_ROUND; i++) {
+                moves.add(movePool.createMove(null, null, null, null, false, null, null, false, false, null, null,
+                        null));
+            }
+            movePool.releaseAllMoves(moves);
+            moves.clear();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.engine.board.MoveTables;
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.PieceType;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MoveTablesTest {
+
+    private PieceTypes pieceTypes;
+
+    @BeforeEach
+    public void setUp() {
+        ConfigLoader configLoader = new ConfigLoader();
+        this.pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, this.pieceTypes.pieceTypesMap().size());
+    }
+
+    @Test
+    @DisplayName("Boards of the same size should share their compiled move tables")
+    public void testMoveTablesAreCachedPerBoardSize() {
+        Board first = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        Board second = BoardFactory.createBoardFromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", this.pieceTypes);
+        assertSame(first.getMoveTables(), second.getMoveTables());
+        assertSame(first.getMoveTables(), first.deepCopy().getMoveTables());
+
+        for (long seed = 1; seed <= 8; seed++) {
+            Board random = BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, seed, this.pieceTypes);
+            boolean sameSize = random.getWidth() == first.getWidth() && random.getHeight() == first.getHeight();
+            assertEquals(sameSize, random.getMoveTables() == first.getMoveTables());
+            assertSame(random.getMoveTables(),
+                    BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, seed, this.pieceTypes).getMoveTables());
+        }
+    }
+
+    @Test
+    @DisplayName("Compiled rays should end at the board edge")
+    public void testRaysAreTruncatedAtBoardEdge() {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        MoveTables moveTables = board.getMoveTables();
+
+        // A knight in the corner only has two targets, a rook in the corner 7 along each of its two rays
+        assertEquals(2, countTargets(moveTables, board, "Knight", 0));
+        assertEquals(14, countTargets(moveTables, board, "Rook", 0));
+        // A queen in the center of an 8x8 board reaches 27 squares
+        assertEquals(27, countTargets(moveTables, board, "Queen", board.getSquareIndex(3, 3)));
+    }
+
+    private int countTargets(MoveTables moveTables, Board board, String pieceTypeName, int squareIndex) {
+        PieceType pieceType = this.pieceTypes.getPieceTypeByName(pieceTypeName);
+        int pieceIndex = 2 * pieceType.id() + Color.WHITE.ordinal();
+        int[] squareRayStarts = moveTables.getSquareRayStarts(pieceIndex);
+        int[] rayTargetStarts = moveTables.getRayTargetStarts(pieceIndex);
+        return rayTargetStarts[squareRayStarts[squareIndex + 1]] - rayTargetStarts[squareRayStarts[squareIndex]];
+    }
+}
@@ -0,0 +1,171 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MoveEncoding;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Perft that splits the tree at the root (and with a split depth of 2 also one ply deeper) into fork/join tasks. Every
+// task makes its move on its own copy of the board, and the subtrees below the split are counted by one PerfTestTool
+// (and therefore one set of move lists) per worker thread, so the tasks share nothing but the RuleProcessor, whose move
+// pool is thread-confined. The counts are the same as those of PerfTestTool.
+//
+// Can also be run directly: [depth] [FEN | chaos seed] [split depth] [hash table entries], e.g. "5" or
+// "4 17 2 1048576", prints the divide output.
+public class ParallelPerfTestTool {
+
+    public record DivideEntry(String move, long nodes) {}
+
+    public record PerftResult(long nodes, List<DivideEntry> divide, long elapsedNanos) {
+
+        public long getNodesPerSecond() {
+            return (long) (this.nodes / Math.max(this.elapsedNanos / 1e9, 1e-9));
+        }
+    }
+
+    private final RuleProcessor ruleProcessor;
+    private final ForkJoinPool forkJoinPool;
+    private final int splitDepth;
+    private final ThreadLocal<PerfTestTool> perfTestTools;
+
+    public ParallelPerfTestTool(RuleProcessor ruleProcessor, ForkJoinPool forkJoinPool, int splitDepth) {
+        this(ruleProcessor, forkJoinPool, splitDepth, null);
+    }
+
+    // With a hash table, all worker threads count their subtrees with a hashed perft sharing that table, see
+    // PerfTestTool
+    public ParallelPerfTestTool(RuleProcessor ruleProcessor, ForkJoinPool forkJoinPool, int splitDepth,
+                                PerftHashTable hashTable) {
+        if (splitDepth < 1 || splitDepth > 2) {
+            throw new IllegalArgumentException("Split depth must be 1 or 2, was " + splitDepth);
+        }
+        this.ruleProcessor = ruleProcessor;
+        this.forkJoinPool = forkJoinPool;
+        this.splitDepth = splitDepth;
+        this.perfTestTools = ThreadLocal.withInitial(() -> new PerfTestTool(ruleProcessor, hashTable));
+    }
+
+    // Counts the leaf nodes at the given depth and the share of every root move (in generation order). The given board
+    // is not modified.
+    public PerftResult calculatePerft(Board board, int depth) {
+        long startTime = System.nanoTime();
+        List<DivideEntry> divide = new ArrayList<>();
+        long nodes = 0;
+        if (depth > 0) {
+            MoveList rootMoves = new MoveList();
+            this.ruleProcessor.calculateLegalMoves(board, rootMoves);
+
+            List<PerftTask> tasks = new ArrayList<>(rootMoves.size());
+            for (int i = 0; i < rootMoves.size(); i++) {
+                tasks.add(new PerftTask(board, rootMoves.get(i), depth - 1, this.splitDepth - 1));
+            }
+            for (PerftTask task : tasks) {
+                this.forkJoinPool.execute(task);
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                long moveNodes = tasks.get(i).join();
+                divide.add(new DivideEntry(toMoveName(board, rootMoves.get(i)), moveNodes));
+                nodes += moveNodes;
+            }
+        } else {
+            nodes = 1;
+        }
+        return new PerftResult(nodes, divide, System.nanoTime() - startTime);
+    }
+
+    public static void printDivide(PerftResult result, PrintStream out) {
+        for (DivideEntry entry : result.divide()) {
+            out.println(entry.move() + ": " + entry.nodes());
+        }
+        out.println();
+        out.printf("Nodes: %d%n", result.nodes());
+        out.printf("Time: %d ms%n", result.elapsedNanos() / 1_000_000);
+        out.printf("Nodes/s: %d%n", result.getNodesPerSecond());
+    }
+
+    // Origin and target square in coordinate notation (files a, b, c, ... and ranks from 1), followed by the symbol of
+    // the promotion piece type, if any. Castling moves are written as the king moving onto its castling partner.
+    public static String toMoveName(Board board, int move) {
+        StringBuilder moveName = new StringBuilder();
+        appendSquareName(board, MoveEncoding.getFrom(move), moveName);
+        appendSquareName(board, MoveEncoding.getTo(move), moveName);
+        if (MoveEncoding.isPromo(move)) {
+            int promoPieceTypeId = MoveEncoding.getPromoPieceTypeId(move);
+            moveName.append(board.getPiece(promoPieceTypeId, board.getColorToMove()).type().symbol().toLowerCase());
+        }
+        return moveName.toString();
+    }
+
+    private static void appendSquareName(Board board, int squareIndex, StringBuilder moveName) {
+        moveName.append((char) ('a' + squareIndex % board.getWidth())).append(squareIndex / board.getWidth() + 1);
+    }
+
+    // Counts the subtree below one move, either by itself or by forking one task per reply
+    private class PerftTask extends RecursiveTask<Long> {
+
+        private final Board parentBoard;
+        private final int move;
+        private final int depth;
+        private final int remainingSplitDepth;
+
+        private PerftTask(Board parentBoard, int move, int depth, int remainingSplitDepth) {
+            this.parentBoard = parentBoard;
+            this.move = move;
+            this.depth = depth;
+            this.remainingSplitDepth = remainingSplitDepth;
+        }
+
+        @Override
+        protected Long compute() {
+            Board board = this.parentBoard.deepCopy();
+            board.makeMove(this.move);
+            if (this.remainingSplitDepth == 0 || this.depth <= 1) {
+                return perfTestTools.get().calculatePerft(board, this.depth);
+            }
+
+            MoveList moves = new MoveList();
+            ruleProcessor.calculateLegalMoves(board, moves);
+            List<PerftTask> tasks = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                tasks.add(new PerftTask(board, moves.get(i), this.depth - 1, this.remainingSplitDepth - 1));
+            }
+            invokeAll(tasks);
+            long nodes = 0;
+            for (PerftTask task : tasks) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        String position = (args.length > 1) ? args[1] : Board.STANDARD_INITIAL_BOARD_FEN;
+        int splitDepth = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+        PerftHashTable hashTable = (args.length > 3) ? new PerftHashTable(Integer.parseInt(args[3])) : null;
+
+        ConfigLoader configLoader = new ConfigLoader();
+        PieceTypes pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, pieceTypes.pieceTypesMap().size());
+
+        Board board = position.matches("\\d+")
+                ? BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, Long.parseLong(position), pieceTypes)
+                : BoardFactory.createBoardFromFen(position, pieceTypes);
+
+        ParallelPerfTestTool perfTestTool = new ParallelPerfTestTool(new RuleProcessor(new MovePool()),
+                ForkJoinPool.commonPool(), splitDepth, hashTable);
+        printDivide(perfTestTool.calculatePerft(board, depth), System.out);
+    }
+}
@@ -0,0 +1,109 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ParallelPerftTest {
+
+    private static final int THREADS = 4;
+    private static final int DEPTH = 3;
+
+    // Positions 2, 3, 4 and 5 from perft_results.csv
+    private static final String[] FENS = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+    private PerfTestTool perfTestTool;
+    private ForkJoinPool forkJoinPool;
+
+    @BeforeEach
+    public void setUp() {
+        ConfigLoader configLoader = new ConfigLoader();
+        this.pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, this.pieceTypes.pieceTypesMap().size());
+
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+        this.perfTestTool = new PerfTestTool(this.ruleProcessor);
+        this.forkJoinPool = new ForkJoinPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.forkJoinPool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Parallel perft should count the same nodes per root move as the serial perft")
+    public void testParallelPerftMatchesSerialPerft() {
+        List<Board> boards = new ArrayList<>();
+        for (String fen : FENS) {
+            boards.add(BoardFactory.createBoardFromFen(fen, this.pieceTypes));
+        }
+        for (long seed = 1; seed <= 6; seed++) {
+            boards.add(BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, seed, this.pieceTypes));
+        }
+
+        for (int splitDepth = 1; splitDepth <= 2; splitDepth++) {
+            ParallelPerfTestTool parallelPerfTestTool = new ParallelPerfTestTool(this.ruleProcessor,
+                    this.forkJoinPool, splitDepth);
+            for (Board board : boards) {
+                long zobristHash = board.getZobristHash();
+                ParallelPerfTestTool.PerftResult result = parallelPerfTestTool.calculatePerft(board, DEPTH);
+
+                assertEquals(this.perfTestTool.calculatePerft(board, DEPTH), result.nodes());
+                assertEquals(zobristHash, board.getZobristHash());
+
+                MoveList rootMoves = new MoveList();
+                this.ruleProcessor.calculateLegalMoves(board, rootMoves);
+                assertEquals(rootMoves.size(), result.divide().size());
+                for (int i = 0; i < rootMoves.size(); i++) {
+                    ParallelPerfTestTool.DivideEntry entry = result.divide().get(i);
+                    assertEquals(ParallelPerfTestTool.toMoveName(board, rootMoves.get(i)), entry.move());
+
+                    board.makeMove(rootMoves.get(i));
+                    assertEquals(this.perfTestTool.calculatePerft(board, DEPTH - 1), entry.nodes(),
+                            "Wrong count for " + entry.move());
+                    board.unmakeMove(rootMoves.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Divide output should name moves in coordinate notation")
+    public void testDivideMoveNames() {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        ParallelPerfTestTool.PerftResult result = new ParallelPerfTestTool(this.ruleProcessor, this.forkJoinPool, 1)
+                .calculatePerft(board, 2);
+
+        assertEquals(400, result.nodes());
+        assertEquals(20, result.divide().size());
+        for (ParallelPerfTestTool.DivideEntry entry : result.divide()) {
+            assertEquals(20, entry.nodes());
+        }
+        assertEquals(1, result.divide().stream().filter(entry -> entry.move().equals("e2e4")).count());
+        assertEquals(1, result.divide().stream().filter(entry -> entry.move().equals("g1f3")).count());
+    }
+}
@@ -4,6 +4,7 @@ import com.chaoschess.backend.core.engine.board.Board;
 import com.chaoschess.backend.core.engine.MovePool;
 import com.chaoschess.backend.core.engine.RuleProcessor;
 import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
 import com.chaoschess.backend.core.model.PieceTypes;
 import com.chaoschess.backend.core.service.ConfigLoader;
 import com.chaoschess.backend.core.utils.ZobristKeys;
@@ -18,6 +19,7 @@ public class PerfTest {
 
     private PieceTypes pieceTypes;
     private PerfTestTool perfTestTool;
+    private PerfTestTool hashedPerfTestTool;
 
     @BeforeEach
     public void setUp() {
@@ -28,6 +30,7 @@ public class PerfTest {
         MovePool movePool = new MovePool();
         RuleProcessor ruleProcessor = new RuleProcessor(movePool);
         this.perfTestTool = new PerfTestTool(ruleProcessor);
+        this.hashedPerfTestTool = new PerfTestTool(ruleProcessor, new PerftHashTable(1 << 16));
     }
 
     @ParameterizedTest(name = "Position {0} at depth {1} should have {2} nodes")
@@ -42,4 +45,34 @@ public class PerfTest {
                 () -> String.format("Perft result for FEN %s at depth %d is incorrect. Expected: %,d. Found: %,d.",
                         fen, depth, expectedResult, actualResult));
     }
+
+    @ParameterizedTest(name = "Position {0} at depth {1} should have {2} nodes with hashing")
+    @DisplayName("Hashed perft should count the same nodes as the plain perft")
+    @CsvFileSource(resources = "/perft_results.csv")
+    public void testHashedPerftResults(String fen, int depth, long expectedResult) {
+        Board board = BoardFactory.createBoardFromFen(fen, this.pieceTypes);
+
+        long actualResult = this.hashedPerfTestTool.calculatePerft(board, depth);
+
+        assertEquals(expectedResult, actualResult,
+                () -> String.format("Hashed perft for FEN %s at depth %d is incorrect. Expected: %,d. Found: %,d.",
+                        fen, depth, expectedResult, actualResult));
+        assertEquals(this.perfTestTool.calculatePerft(board, depth), actualResult);
+    }
+
+    @ParameterizedTest(name = "{0} board of seed {1} ({2}x{3}) at depth {4} should have {5} nodes")
+    @DisplayName("Move generation validation using seeded random boards of every size")
+    @CsvFileSource(resources = ChaosPerftCorpus.RESOURCE_NAME)
+    public void testChaosPerftResults(ChaosLevel chaosLevel, long seed, int width, int height, int depth,
+                                      long expectedResult) {
+        Board board = BoardFactory.createRandomInitialBoard(chaosLevel, seed, this.pieceTypes);
+        assertEquals(width, board.getWidth());
+        assertEquals(height, board.getHeight());
+
+        long actualResult = this.perfTestTool.calculatePerft(board, depth);
+
+        assertEquals(expectedResult, actualResult,
+                () -> String.format("Perft result for %s seed %d at depth %d is incorrect. Expected: %,d. Found: %,d.",
+                        chaosLevel, seed, depth, expectedResult, actualResult));
+    }
 }
@@ -1,33 +1,76 @@
 package com.chaoschess.backend.core;
 
 import com.chaoschess.backend.core.engine.board.Board;
-import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MoveList;
 import com.chaoschess.backend.core.engine.RuleProcessor;
-
-import java.util.List;
+import com.chaoschess.backend.core.engine.SearchContext;
 
 public class PerfTestTool {
 
     private final RuleProcessor ruleProcessor;
+    private final SearchContext searchContext;
+    // Null for the plain perft, which makes and unmakes every move down to the leaves
+    private final PerftHashTable hashTable;
 
     public PerfTestTool(RuleProcessor ruleProcessor) {
+        this(ruleProcessor, null);
+    }
+
+    // With a hash table, the perft looks up the node counts of subtrees reached by transposition instead of counting
+    // them again (the table can be shared with other tools, also on other threads), and counts the leaves in bulk at
+    // depth 1 instead of making and unmaking every leaf move
+    public PerfTestTool(RuleProcessor ruleProcessor, PerftHashTable hashTable) {
         this.ruleProcessor = ruleProcessor;
+        this.searchContext = new SearchContext();
+        this.hashTable = hashTable;
     }
 
     public long calculatePerft(Board board, int depth) {
+        if (this.hashTable != null && depth > 0) {
+            return calculateHashedPerft(board, depth, 0);
+        }
+        return calculatePerft(board, depth, 0);
+    }
+
+    private long calculatePerft(Board board, int depth, int ply) {
         if (depth == 0) {
             return 1;
         }
-        List<Move> legalMoves = this.ruleProcessor.calculateLegalMoves(board);
+        MoveList legalMoves = this.searchContext.getMoveList(ply);
+        this.ruleProcessor.calculateLegalMoves(board, legalMoves);
         long possibleMoveSequencesCount = 0;
 
-        for (Move legalMove : legalMoves) {
+        for (int moveIndex = 0; moveIndex < legalMoves.size(); moveIndex++) {
+            int legalMove = legalMoves.get(moveIndex);
             board.makeMove(legalMove);
-            possibleMoveSequencesCount += calculatePerft(board, depth - 1);
+            possibleMoveSequencesCount += calculatePerft(board, depth - 1, ply + 1);
             board.unmakeMove(legalMove);
+        }
+        return possibleMoveSequencesCount;
+    }
 
-            this.ruleProcessor.getMovePool().releaseMove(legalMove);
+    private long calculateHashedPerft(Board board, int depth, int ply) {
+        long zobristHash = board.getZobristHash();
+        if (depth > 1) {
+            long cachedCount = this.hashTable.get(zobristHash, depth);
+            if (cachedCount >= 0) {
+                return cachedCount;
+            }
+        }
+        MoveList legalMoves = this.searchContext.getMoveList(ply);
+        this.ruleProcessor.calculateLegalMoves(board, legalMoves);
+        if (depth == 1) {
+            return legalMoves.size();
+        }
+        long possibleMoveSequencesCount = 0;
+
+        for (int moveIndex = 0; moveIndex < legalMoves.size(); moveIndex++) {
+            int legalMove = legalMoves.get(moveIndex);
+            board.makeMove(legalMove);
+            possibleMoveSequencesCount += calculateHashedPerft(board, depth - 1, ply + 1);
+            board.unmakeMove(legalMove);
         }
+        this.hashTable.put(zobristHash, depth, possibleMoveSequencesCount);
         return possibleMoveSequencesCount;
     }
 }
@@ -0,0 +1,51 @@
+package com.chaoschess.backend.core;
+
+// Fixed-size table of perft subtree node counts by zobrist hash and depth, see PerfTestTool. It can be shared by
+// several threads without locking: every entry consists of two longs, the data (node count and depth) and the key
+// stored XORed with the data. An entry torn by concurrent writes then fails the check on reading and counts as a miss
+// instead of returning a count that belongs to another position. Entries are always replaced.
+public class PerftHashTable {
+
+    private static final int DEPTH_BITS = 8;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    // Two longs per entry: the key XOR the data, then the data
+    private final long[] entries;
+    private final int indexMask;
+
+    // The number of entries must be a power of two
+    public PerftHashTable(int entryCount) {
+        if (entryCount <= 0 || Integer.bitCount(entryCount) != 1) {
+            throw new IllegalArgumentException("Entry count must be a power of two, was " + entryCount);
+        }
+        this.entries = new long[2 * entryCount];
+        this.indexMask = entryCount - 1;
+    }
+
+    // Returns the stored node count, or -1 if the table holds no count for the position at this depth
+    public long get(long zobristHash, int depth) {
+        int index = getIndex(zobristHash, depth);
+        long keyXorData = this.entries[index];
+        long data = this.entries[index + 1];
+        if ((keyXorData ^ data) != zobristHash || (data & DEPTH_MASK) != depth || data == 0) {
+            return -1;
+        }
+        return data >>> DEPTH_BITS;
+    }
+
+    public void put(long zobristHash, int depth, long nodes) {
+        if (depth > DEPTH_MASK) {
+            return;
+        }
+        int index = getIndex(zobristHash, depth);
+        long data = (nodes << DEPTH_BITS) | depth;
+        this.entries[index] = zobristHash ^ data;
+        this.entries[index + 1] = data;
+    }
+
+    // The same position at different depths goes to different entries, so that they do not keep replacing each other
+    private int getIndex(long zobristHash, int depth) {
+        long mixed = zobristHash + depth * 0x9E3779B97F4A7C15L;
+        return 2 * ((int) (mixed ^ (mixed >>> 32)) & this.indexMask);
+    }
+}
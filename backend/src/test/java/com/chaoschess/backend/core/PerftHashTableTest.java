@@ -0,0 +1,83 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PerftHashTableTest {
+
+    private static final int DEPTH = 4;
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+    private PerfTestTool perfTestTool;
+
+    @BeforeEach
+    public void setUp() {
+        ConfigLoader configLoader = new ConfigLoader();
+        this.pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, this.pieceTypes.pieceTypesMap().size());
+
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+        this.perfTestTool = new PerfTestTool(this.ruleProcessor);
+    }
+
+    @Test
+    @DisplayName("The hash table should return stored counts only for the same position and depth")
+    public void testGetAndPut() {
+        PerftHashTable hashTable = new PerftHashTable(1 << 4);
+        assertEquals(-1, hashTable.get(42L, 3));
+
+        hashTable.put(42L, 3, 1234L);
+        assertEquals(1234L, hashTable.get(42L, 3));
+        assertEquals(-1, hashTable.get(42L, 2));
+        assertEquals(-1, hashTable.get(43L, 3));
+
+        // Replaces the count of whatever position shared the entry
+        hashTable.put(42L, 3, 99L);
+        assertEquals(99L, hashTable.get(42L, 3));
+    }
+
+    @Test
+    @DisplayName("Hashed perft should count the same nodes as the plain perft on chaos boards, even with a tiny table")
+    public void testHashedPerftMatchesPlainPerft() {
+        for (int entryCount : new int[]{1 << 4, 1 << 16}) {
+            PerfTestTool hashedPerfTestTool = new PerfTestTool(this.ruleProcessor, new PerftHashTable(entryCount));
+            for (long seed = 1; seed <= 6; seed++) {
+                Board board = BoardFactory.createRandomInitialBoard(ChaosLevel.WEIRD, seed, this.pieceTypes);
+                assertEquals(this.perfTestTool.calculatePerft(board, DEPTH),
+                        hashedPerfTestTool.calculatePerft(board, DEPTH), "Wrong count for seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel perft threads sharing one hash table should count the same nodes as the plain perft")
+    public void testSharedHashTable() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            PerftHashTable hashTable = new PerftHashTable(1 << 12);
+            ParallelPerfTestTool parallelPerfTestTool = new ParallelPerfTestTool(this.ruleProcessor, forkJoinPool, 2,
+                    hashTable);
+            for (long seed = 1; seed <= 4; seed++) {
+                Board board = BoardFactory.createRandomInitialBoard(ChaosLevel.ODD, seed, this.pieceTypes);
+                assertEquals(this.perfTestTool.calculatePerft(board, DEPTH),
+                        parallelPerfTestTool.calculatePerft(board, DEPTH).nodes(), "Wrong count for seed " + seed);
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.engine.MoveEncoding;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.model.Color;
+import com.chaoschess.backend.core.model.GameOutcomeState;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class RepetitionTest {
+
+    // Both sides move a knight out and back, which repeats the initial position every four plies
+    private static final int[][] KNIGHT_SHUFFLE = {{6, 0, 5, 2}, {6, 7, 5, 5}, {5, 2, 6, 0}, {5, 5, 6, 7}};
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+
+    @BeforeEach
+    public void setUp() {
+        ConfigLoader configLoader = new ConfigLoader();
+        this.pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, this.pieceTypes.pieceTypesMap().size());
+
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+    }
+
+    @Test
+    @DisplayName("A position occurring for the third time should be a draw by threefold repetition")
+    public void testThreefoldRepetition() {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+
+        playKnightShuffle(board);
+        assertEquals(GameOutcomeState.ONGOING, this.ruleProcessor.determineGameOutcome(board, 20).state());
+
+        playKnightShuffle(board);
+        assertEquals(GameOutcomeState.THREEFOLD_REPETITION,
+                this.ruleProcessor.determineGameOutcome(board, 20).state());
+    }
+
+    @Test
+    @DisplayName("In a search, a position repeated after the search root should already be a draw")
+    public void testTwofoldRepetitionWithinSearch() {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        int searchRootHistoryLength = board.getHistoryLength();
+
+        // The root position itself repeating is not enough, since the search may be about avoiding exactly that
+        playKnightShuffle(board);
+        assertFalse(this.ruleProcessor.isDrawByRepetition(board, searchRootHistoryLength));
+
+        // The position after the first knight move already occurred within the search
+        playMove(board, KNIGHT_SHUFFLE[0]);
+        assertTrue(this.ruleProcessor.isDrawByRepetition(board, searchRootHistoryLength));
+        assertFalse(this.ruleProcessor.isDrawByRepetition(board, board.getHistoryLength()));
+    }
+
+    @Test
+    @DisplayName("Repetitions should only be counted since the last capture or pawn move")
+    public void testRepetitionCountRestartsAfterIrreversibleMove() {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        playKnightShuffle(board);
+        playKnightShuffle(board);
+        assertTrue(this.ruleProcessor.isDrawByRepetition(board, board.getHistoryLength()));
+
+        playMove(board, new int[]{0, 1, 0, 2});
+        playMove(board, new int[]{0, 6, 0, 5});
+        assertEquals(0, board.getHalfmoveClock());
+        playKnightShuffle(board);
+        assertFalse(this.ruleProcessor.isDrawByRepetition(board, board.getHistoryLength()));
+        playKnightShuffle(board);
+        assertTrue(this.ruleProcessor.isDrawByRepetition(board, board.getHistoryLength()));
+    }
+
+    @Test
+    @DisplayName("A halfmove clock larger than the history of a board set up from a FEN should be handled")
+    public void testHalfmoveClockLargerThanHistory() {
+        Board board = BoardFactory.createBoardFromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 40 60", this.pieceTypes);
+        assertFalse(this.ruleProcessor.isDrawByRepetition(board, board.getHistoryLength()));
+        playMove(board, new int[]{1, 3, 2, 3});
+        assertFalse(this.ruleProcessor.isDrawByRepetition(board, 0));
+    }
+
+    @Test
+    @DisplayName("A null move should only pass the turn, hide the history from repetition checks and be undone exactly")
+    public void testNullMove() {
+        Board board = BoardFactory.createBoardFromFen(Board.STANDARD_INITIAL_BOARD_FEN, this.pieceTypes);
+        playKnightShuffle(board);
+        playKnightShuffle(board);
+        long zobristHash = board.getZobristHash();
+        int historyLength = board.getHistoryLength();
+        int halfmoveClock = board.getHalfmoveClock();
+        assertTrue(this.ruleProcessor.isDrawByRepetition(board, historyLength));
+
+        board.makeNullMove();
+        assertEquals(Color.BLACK, board.getColorToMove());
+        // The fifty-move rule keeps counting, only the repetition check is cut off at the null move
+        assertEquals(halfmoveClock + 1, board.getHalfmoveClock());
+        assertEquals(0, board.getPliesSinceNullMove());
+        board.makeNullMove();
+        // Same position as before, but the repetitions happened before the null moves
+        assertEquals(zobristHash, board.getZobristHash());
+        assertEquals(halfmoveClock + 2, board.getHalfmoveClock());
+        assertFalse(this.ruleProcessor.isDrawByRepetition(board, board.getHistoryLength()));
+        // A snapshot keeps the cutoff
+        assertFalse(this.ruleProcessor.isDrawByRepetition(board.snapshot(), board.getHistoryLength()));
+        board.unmakeNullMove();
+        board.unmakeNullMove();
+
+        assertEquals(Color.WHITE, board.getColorToMove());
+        assertEquals(zobristHash, board.getZobristHash());
+        assertEquals(historyLength, board.getHistoryLength());
+        assertEquals(halfmoveClock, board.getHalfmoveClock());
+        assertEquals(historyLength, board.getPliesSinceNullMove());
+        assertTrue(this.ruleProcessor.isDrawByRepetition(board, historyLength));
+
+        // The en passant capture is no longer possible after a null move
+        board = BoardFactory.createBoardFromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                this.pieceTypes);
+        zobristHash = board.getZobristHash();
+        board.makeNullMove();
+        assertNull(board.getEnPassantMoveTarget());
+        board.unmakeNullMove();
+        assertEquals(board.getSquare(5, 5), board.getEnPassantMoveTarget());
+        assertEquals(zobristHash, board.getZobristHash());
+    }
+
+    private void playKnightShuffle(Board board) {
+        for (int[] coords : KNIGHT_SHUFFLE) {
+            playMove(board, coords);
+        }
+    }
+
+    // Plays the legal move from (coords[0], coords[1]) to (coords[2], coords[3])
+    private void playMove(Board board, int[] coords) {
+        int from = board.getSquareIndex(coords[0], coords[1]);
+        int to = board.getSquareIndex(coords[2], coords[3]);
+        MoveList legalMoves = new MoveList();
+        this.ruleProcessor.calculateLegalMoves(board, legalMoves);
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (MoveEncoding.getFrom(move) == from && MoveEncoding.getTo(move) == to) {
+                board.makeMove(move);
+                return;
+            }
+        }
+        fail("No legal move from " + from + " to " + to);
+    }
+}
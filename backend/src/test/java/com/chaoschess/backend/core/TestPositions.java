@@ -0,0 +1,90 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.ai.AlphaBetaSearcher;
+import com.chaoschess.backend.core.ai.BoardEvaluator;
+import com.chaoschess.backend.core.engine.MoveList;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.engine.board.ChaosLevel;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Positions, a position walker and a searcher factory shared by the tests of the board, the move generation and the
+// search
+final class TestPositions {
+
+    // Positions 2, 3, 4 and 5 from perft_results.csv plus a position with an en passant capture, covering captures,
+    // castling, promotions and en passant
+    static final String[] FENS = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3"
+    };
+
+    private TestPositions() {}
+
+    // Loads the configured piece types and initializes the zobrist keys for them
+    static PieceTypes loadPieceTypes() {
+        ConfigLoader configLoader = new ConfigLoader();
+        PieceTypes pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, pieceTypes.pieceTypesMap().size());
+        return pieceTypes;
+    }
+
+    // A searcher with a small transposition table and piece-square tables for the size of the given board
+    static AlphaBetaSearcher createSearcher(Board board, PieceTypes pieceTypes, RuleProcessor ruleProcessor) {
+        BoardEvaluator boardEvaluator = new BoardEvaluator(pieceTypes);
+        boardEvaluator.initializePSTs(board.getWidth(), board.getHeight(), pieceTypes);
+        return new AlphaBetaSearcher(ruleProcessor, boardEvaluator, 1);
+    }
+
+    // The FEN positions plus random WEIRD boards, which cover the fairy pieces, including sliding leapers such as the
+    // nightrider
+    static List<Board> createBoards(PieceTypes pieceTypes) {
+        return createBoards(pieceTypes, 4, ChaosLevel.WEIRD);
+    }
+
+    // The FEN positions plus random boards of the given chaos levels with the seeds 1 to seedCount
+    static List<Board> createBoards(PieceTypes pieceTypes, int seedCount, ChaosLevel... chaosLevels) {
+        List<Board> boards = new ArrayList<>();
+        for (String fen : FENS) {
+            boards.add(BoardFactory.createBoardFromFen(fen, pieceTypes));
+        }
+        for (ChaosLevel chaosLevel : chaosLevels) {
+            for (long seed = 1; seed <= seedCount; seed++) {
+                boards.add(BoardFactory.createRandomInitialBoard(chaosLevel, seed, pieceTypes));
+            }
+        }
+        return boards;
+    }
+
+    // Passes the board and every position up to depth plies away to the visitor, together with its legal moves, by
+    // making and unmaking the legal moves. Checks that unmaking a move restores the zobrist hash.
+    static void forEachPosition(Board board, RuleProcessor ruleProcessor, int depth,
+                                BiConsumer<Board, MoveList> visitor) {
+        MoveList legalMoves = new MoveList();
+        ruleProcessor.calculateLegalMoves(board, legalMoves);
+        visitor.accept(board, legalMoves);
+        if (depth == 0) {
+            return;
+        }
+        long zobristHash = board.getZobristHash();
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            board.makeMove(move);
+            forEachPosition(board, ruleProcessor, depth - 1, visitor);
+            board.unmakeMove(move);
+            assertEquals(zobristHash, board.getZobristHash());
+        }
+    }
+}
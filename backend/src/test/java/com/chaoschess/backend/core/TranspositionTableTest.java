@@ -0,0 +1,134 @@
+package com.chaoschess.backend.core;
+
+import com.chaoschess.backend.core.ai.AlphaBetaSearcher;
+import com.chaoschess.backend.core.ai.BoardEvaluator;
+import com.chaoschess.backend.core.ai.TranspositionTable;
+import com.chaoschess.backend.core.engine.Move;
+import com.chaoschess.backend.core.engine.MoveEncoding;
+import com.chaoschess.backend.core.engine.MovePool;
+import com.chaoschess.backend.core.engine.RuleProcessor;
+import com.chaoschess.backend.core.engine.board.Board;
+import com.chaoschess.backend.core.engine.board.BoardFactory;
+import com.chaoschess.backend.core.model.PieceTypes;
+import com.chaoschess.backend.core.service.ConfigLoader;
+import com.chaoschess.backend.core.utils.ZobristKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TranspositionTableTest {
+
+    private static final long HASH = 0x123456789ABCDEF0L;
+    private static final int MOVE = MoveEncoding.encode(12, 28, -1, -1, false, false, 2);
+
+    private PieceTypes pieceTypes;
+    private RuleProcessor ruleProcessor;
+
+    @BeforeEach
+    public void setUp() {
+        ConfigLoader configLoader = new ConfigLoader();
+        this.pieceTypes = new PieceTypes(configLoader.loadPieceTypes());
+        ZobristKeys.initializeKeys(16, 16, this.pieceTypes.pieceTypesMap().size());
+
+        this.ruleProcessor = new RuleProcessor(new MovePool());
+    }
+
+    @Test
+    @DisplayName("Stored entries should be returned only for the same position, with all their fields intact")
+    public void testStoreAndProbe() {
+        TranspositionTable transpositionTable = new TranspositionTable(1);
+        assertEquals(1 << 16, transpositionTable.getEntryCount());
+        assertEquals(0, transpositionTable.probe(HASH));
+
+        transpositionTable.store(HASH, 5, -1234, TranspositionTable.UPPER_BOUND, MOVE, 3);
+        long entry = transpositionTable.probe(HASH);
+        assertEquals(MOVE, TranspositionTable.getMove(entry));
+        assertEquals(-1234, TranspositionTable.getScore(entry, 3));
+        assertEquals(5, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.UPPER_BOUND, TranspositionTable.getBound(entry));
+
+        // Same entry index, different position
+        assertEquals(0, transpositionTable.probe(HASH ^ (1L << 40)));
+
+        transpositionTable.clear();
+        assertEquals(0, transpositionTable.probe(HASH));
+    }
+
+    @Test
+    @DisplayName("Mate scores should be stored relative to the node they were found at")
+    public void testMateScoresAreAdjustedByPly() {
+        TranspositionTable transpositionTable = new TranspositionTable(1);
+        // Mate found 2 plies below a node at ply 3, read again at ply 7
+        transpositionTable.store(HASH, 2, BoardEvaluator.MATE_SCORE - 5, TranspositionTable.EXACT, MOVE, 3);
+        assertEquals(BoardEvaluator.MATE_SCORE - 9, TranspositionTable.getScore(transpositionTable.probe(HASH), 7));
+
+        transpositionTable.store(HASH, 2, -(BoardEvaluator.MATE_SCORE - 5), TranspositionTable.EXACT, MOVE, 3);
+        assertEquals(-(BoardEvaluator.MATE_SCORE - 9), TranspositionTable.getScore(transpositionTable.probe(HASH), 7));
+
+        // Infinite window bounds are clamped to the storable range, but stay on the right side
+        transpositionTable.store(HASH, 2, Integer.MIN_VALUE + 1, TranspositionTable.UPPER_BOUND, MOVE, 0);
+        assertTrue(TranspositionTable.getScore(transpositionTable.probe(HASH), 0) < -BoardEvaluator.MATE_SCORE);
+    }
+
+    @Test
+    @DisplayName("Deeper entries of the current search should only be replaced by results of the same position")
+    public void testReplacementScheme() {
+        TranspositionTable transpositionTable = new TranspositionTable(1);
+        long otherHash = HASH ^ (1L << 40);
+        transpositionTable.store(HASH, 6, 10, TranspositionTable.EXACT, MOVE, 0);
+
+        transpositionTable.store(otherHash, 3, 20, TranspositionTable.EXACT, MoveEncoding.NONE, 0);
+        assertEquals(6, TranspositionTable.getDepth(transpositionTable.probe(HASH)));
+
+        // A shallower bound of the same position is dropped, a shallower exact score keeps the best move
+        transpositionTable.store(HASH, 2, 30, TranspositionTable.LOWER_BOUND, MoveEncoding.NONE, 0);
+        assertEquals(6, TranspositionTable.getDepth(transpositionTable.probe(HASH)));
+        transpositionTable.store(HASH, 2, 30, TranspositionTable.EXACT, MoveEncoding.NONE, 0);
+        assertEquals(2, TranspositionTable.getDepth(transpositionTable.probe(HASH)));
+        assertEquals(MOVE, TranspositionTable.getMove(transpositionTable.probe(HASH)));
+
+        // Entries of earlier searches are always replaced
+        transpositionTable.store(HASH, 6, 10, TranspositionTable.EXACT, MOVE, 0);
+        transpositionTable.startNewSearch();
+        transpositionTable.store(otherHash, 1, 20, TranspositionTable.EXACT, MoveEncoding.NONE, 0);
+        assertEquals(0, transpositionTable.probe(HASH));
+        assertEquals(20, TranspositionTable.getScore(transpositionTable.probe(otherHash), 0));
+    }
+
+    @Test
+    @DisplayName("Table sizes should be rounded down to a power of two of entries")
+    public void testTableSize() {
+        // 5 MB hold 327,680 entries of 16 bytes
+        assertEquals(1 << 18, new TranspositionTable(5).getEntryCount());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    @DisplayName("A search should store its result, and searching the same position again should use it")
+    public void testSearchUsesTranspositionTable() throws InterruptedException {
+        Board board = BoardFactory.createBoardFromFen(
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", this.pieceTypes);
+        BoardEvaluator boardEvaluator = new BoardEvaluator(this.pieceTypes);
+        boardEvaluator.initializePSTs(board.getWidth(), board.getHeight(), this.pieceTypes);
+        AlphaBetaSearcher searcher = new AlphaBetaSearcher(this.ruleProcessor, boardEvaluator, 1);
+
+        Move firstMove = searcher.findBestMove(board, 3);
+        assertNotNull(firstMove);
+        long rootEntry = searcher.getTranspositionTable().probe(board.getZobristHash());
+        assertEquals(TranspositionTable.EXACT, TranspositionTable.getBound(rootEntry));
+        assertEquals(3, TranspositionTable.getDepth(rootEntry));
+        long firstEvaluations = searcher.getBoardsEvaluatedPerMove();
+
+        Move secondMove = searcher.findBestMove(board, 3);
+        assertEquals(firstMove.getFrom(), secondMove.getFrom());
+        assertEquals(firstMove.getTo(), secondMove.getTo());
+        assertTrue(searcher.getTranspositionTableCutoffsPerMove() > 0);
+        assertTrue(searcher.getBoardsEvaluatedPerMove() < firstEvaluations);
+        assertTrue(searcher.getTranspositionTableHitsPerMove() <= searcher.getTranspositionTableProbesPerMove());
+    }
+}